@@ -2,7 +2,7 @@ package it.flaviosimonelli.isw2;
 
 import it.flaviosimonelli.isw2.controller.*;
 import it.flaviosimonelli.isw2.git.client.IGitClient;
-import it.flaviosimonelli.isw2.git.client.JGitClient;
+import it.flaviosimonelli.isw2.git.client.GitClientFactory;
 import it.flaviosimonelli.isw2.git.service.GitService;
 import it.flaviosimonelli.isw2.jira.client.IJiraClient;
 import it.flaviosimonelli.isw2.jira.service.JiraService;
@@ -105,6 +105,10 @@ public class Main {
 
             case REFACTORING_EXPERIMENT -> runRefactoringExperiment(projectKey);
 
+            case MICRO_BENCHMARK -> runMicroBenchmark();
+
+            case GIT_CLIENT_BENCHMARK -> runGitClientBenchmark();
+
             default -> logger.warn("Modalità non riconosciuta o pre-requisiti non soddisfatti.");
         }
     }
@@ -139,12 +143,14 @@ public class Main {
 
         String gitRepoPath = AppConfig.get("git.repoPath");
         IJiraClient jiraClient = new RestJiraClient();
-        IGitClient gitClient = new JGitClient(gitRepoPath);
-        JiraService jiraService = new JiraService(jiraClient);
-        GitService gitService = new GitService(gitClient);
+        // Il client va chiuso: quello nativo tiene aperti processi git per tutta la sua vita
+        try (IGitClient gitClient = GitClientFactory.create(gitRepoPath)) {
+            JiraService jiraService = new JiraService(jiraClient);
+            GitService gitService = new GitService(gitClient);
 
-        DatasetGeneratorController controller = new DatasetGeneratorController(jiraService, gitService);
-        controller.createDataset(projectKey, outputCsvPath);
+            DatasetGeneratorController controller = new DatasetGeneratorController(jiraService, gitService);
+            controller.createDataset(projectKey, outputCsvPath);
+        }
     }
 
     private static void runCorrelationAnalysis(String inputCsvPath, String outputReportPath) {
@@ -183,6 +189,18 @@ public class Main {
         controller.runAnalysis();
     }
 
+    private static void runMicroBenchmark() {
+        logger.info(">>> STEP: Micro-benchmark (file in locale)");
+        MicroBenchmarkController controller = new MicroBenchmarkController();
+        controller.runBenchmarks();
+    }
+
+    private static void runGitClientBenchmark() {
+        logger.info(">>> STEP: Benchmark client Git (JGit vs git nativo)");
+        GitClientBenchmarkController controller = new GitClientBenchmarkController();
+        controller.runBenchmarks();
+    }
+
     // Utility per verificare i pre-requisiti
     private static boolean ensureFileExists(String path) {
         if (!new File(path).exists()) {
@@ -196,9 +214,14 @@ public class Main {
     private static void runRefactoringExperiment(String projectKey) {
         logger.info(">>> STEP: Refactoring Experiment (Analisi Post-Modifica)");
 
-        // 1. Setup Servizi
+        // 1. Setup Servizi (il client Git viene chiuso a fine esperimento)
         String gitRepoPath = AppConfig.get("git.repoPath");
-        GitService gitService = new GitService(new JGitClient(gitRepoPath));
+        try (IGitClient gitClient = GitClientFactory.create(gitRepoPath)) {
+            runRefactoringExperiment(projectKey, new GitService(gitClient));
+        }
+    }
+
+    private static void runRefactoringExperiment(String projectKey, GitService gitService) {
         StaticAnalysisService staticService = new StaticAnalysisService(gitService);
         RefactoringController refactoringCtrl = new RefactoringController(staticService);
 
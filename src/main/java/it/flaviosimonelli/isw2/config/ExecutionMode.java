@@ -9,7 +9,9 @@ public enum ExecutionMode {
     TRAIN_FINAL,
     REFACTORING_EXPERIMENT,
     CREATE_VARIANTS,
-    WHATIF_ANALYSIS;
+    WHATIF_ANALYSIS,
+    MICRO_BENCHMARK,   // Micro-benchmark dei componenti di mining su file locali
+    GIT_CLIENT_BENCHMARK; // Confronto JGit vs git nativo sullo stesso repository
 
 
     public static ExecutionMode fromString(String value) {
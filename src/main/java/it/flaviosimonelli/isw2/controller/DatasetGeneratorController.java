@@ -6,13 +6,22 @@ import it.flaviosimonelli.isw2.git.service.GitService;
 import it.flaviosimonelli.isw2.jira.bean.JiraRelease;
 import it.flaviosimonelli.isw2.jira.bean.JiraTicket;
 import it.flaviosimonelli.isw2.jira.service.JiraService;
+import it.flaviosimonelli.isw2.jira.service.ReleaseTimeline;
 import it.flaviosimonelli.isw2.metrics.StaticAnalysisService;
+import it.flaviosimonelli.isw2.metrics.process.ProcessHistoryEngine;
 import it.flaviosimonelli.isw2.metrics.process.ProcessMetricAnalyzer;
+import it.flaviosimonelli.isw2.model.MethodIdDictionary;
 import it.flaviosimonelli.isw2.model.MethodIdentity;
 import it.flaviosimonelli.isw2.model.MethodProcessMetrics;
 import it.flaviosimonelli.isw2.model.MethodStaticMetrics;
 import it.flaviosimonelli.isw2.snoring.SnoringControlService;
+import it.flaviosimonelli.isw2.store.AnalysisStore;
+import it.flaviosimonelli.isw2.store.CommitAnalysisCache;
+import it.flaviosimonelli.isw2.szz.BuggyRegistry;
+import it.flaviosimonelli.isw2.szz.IVEstimationStrategy;
 import it.flaviosimonelli.isw2.szz.SZZService;
+import it.flaviosimonelli.isw2.szz.impl.IncrementalProportionStrategy;
+import it.flaviosimonelli.isw2.util.AppConfig;
 import it.flaviosimonelli.isw2.config.ProjectConstants;
 import it.flaviosimonelli.isw2.util.CsvUtils;
 import org.apache.commons.csv.CSVPrinter;
@@ -20,7 +29,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.time.LocalDate;
 import java.util.*;
 
 public class DatasetGeneratorController {
@@ -30,7 +38,10 @@ public class DatasetGeneratorController {
     private final JiraService jiraService;
     private final GitService gitService;
     private final StaticAnalysisService staticService;
+    // Diff e confini dei metodi per commit: calcolati una volta, usati da SZZ e metriche di processo
+    private final CommitAnalysisCache commitCache;
     private final ProcessMetricAnalyzer processAnalyzer;
+    private AnalysisStore store = AnalysisStore.disabled();
 
     private static final String SEP = "===============================================================";
 
@@ -38,73 +49,152 @@ public class DatasetGeneratorController {
         this.jiraService = jiraService;
         this.gitService = gitService;
         this.staticService = new StaticAnalysisService(gitService);
-        this.processAnalyzer = new ProcessMetricAnalyzer(gitService);
+        this.commitCache = new CommitAnalysisCache(gitService);
+        this.processAnalyzer = new ProcessMetricAnalyzer(commitCache);
     }
 
     public void createDataset(String projectKey, String outputCsvPath) {
         logger.info("Inizio generazione dataset per {}", projectKey);
 
-        // 1. Inizializzazione dati Jira e SZZ
-        List<JiraRelease> releases = getSortedReleases(projectKey);
-        List<JiraTicket> tickets = jiraService.getTickets(projectKey);
-        Map<String, Set<MethodIdentity>> buggyRegistry = new SZZService(gitService, releases).getBuggyMethodsPerRelease(tickets);
-        SnoringControlService snoringService = new SnoringControlService(releases);
-
-        // 2. Preparazione accumulatore e headers
-        Map<MethodIdentity, MethodProcessMetrics> globalProcessMap = new HashMap<>();
-        List<String> headers = buildHeaders();
+        // 0. Store persistente: riusa i risultati di run precedenti (metriche per blob, diff, SZZ)
+        try (AnalysisStore analysisStore = AnalysisStore.fromConfig(projectKey)) {
+            this.store = analysisStore;
+            gitService.setAnalysisStore(store);
+            staticService.attachStore(store);
+
+            // 1. Inizializzazione dati Jira e SZZ
+            ReleaseTimeline timeline = getReleaseTimeline(projectKey);
+            List<JiraRelease> releases = timeline.asList();
+            List<JiraTicket> tickets = jiraService.getTickets(projectKey);
+            SZZService szzService = new SZZService(gitService, timeline, commitCache);
+            szzService.setAnalysisStore(store);
+            // Varianti di stima dell'IV (szz.variants): stesse metriche, un dataset etichettato per variante
+            Map<String, BuggyRegistry> registries =
+                    szzService.getBuggyMethodsPerStrategy(tickets, buildStrategyVariants(timeline));
+            store.flush();
+            List<LabelTarget> targets = buildLabelTargets(registries, timeline, outputCsvPath);
+
+            // 2. Preparazione motore storico (passata unica sui commit) e headers
+            ProcessHistoryEngine history = new ProcessHistoryEngine(processAnalyzer, gitService.getAllCommits());
+            List<String> headers = buildHeaders();
+
+            // 3. Loop di processamento release
+            processReleases(releases, targets, history, headers);
+            commitCache.logStats();
+            gitService.logStats();
+        } finally {
+            // Le identità dei metodi servono solo a questo run: liberiamo il dizionario per il progetto successivo
+            MethodIdDictionary.global().reset();
+        }
+    }
 
-        // 3. Loop di processamento release
-        processReleases(releases, buggyRegistry, snoringService, globalProcessMap, outputCsvPath, headers);
+    /**
+     * Legge {@code szz.variants} (lista di {@code window:defaultP}) e crea una strategia Proportion per variante.
+     */
+    private Map<String, IVEstimationStrategy> buildStrategyVariants(ReleaseTimeline timeline) {
+        Map<String, IVEstimationStrategy> variants = new LinkedHashMap<>();
+        for (String spec : AppConfig.getList("szz.variants", "")) {
+            String[] parts = spec.split(":");
+            try {
+                int windowSize = Integer.parseInt(parts[0].trim());
+                double defaultP = Double.parseDouble(parts[1].trim());
+                variants.put("w" + windowSize + "_p" + defaultP,
+                        new IncrementalProportionStrategy(timeline, windowSize, defaultP));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException _) {
+                logger.warn("Variante SZZ '{}' non valida (formato atteso window:defaultP), ignorata.", spec);
+            }
+        }
+        return variants;
     }
 
-    private void processReleases(List<JiraRelease> releases, Map<String, Set<MethodIdentity>> buggyRegistry,
-                                 SnoringControlService snoring, Map<MethodIdentity, MethodProcessMetrics> globalProcessMap,
-                                 String outputPath, List<String> headers) {
+    /**
+     * Un dataset per registro: il principale sul path richiesto, le varianti accanto con il nome della variante.
+     */
+    private List<LabelTarget> buildLabelTargets(Map<String, BuggyRegistry> registries, ReleaseTimeline timeline,
+                                                String outputCsvPath) {
+        List<LabelTarget> targets = new ArrayList<>();
+        for (Map.Entry<String, BuggyRegistry> entry : registries.entrySet()) {
+            String path = SZZService.PRIMARY_STRATEGY.equals(entry.getKey())
+                    ? outputCsvPath
+                    : variantPath(outputCsvPath, entry.getKey());
+            targets.add(new LabelTarget(path, entry.getValue(), new SnoringControlService(timeline)));
+        }
+        return targets;
+    }
 
-        List<Long> stats = new ArrayList<>(Arrays.asList(0L, 0L)); // [totalRows, buggyRows]
+    private static String variantPath(String outputCsvPath, String variant) {
+        int dot = outputCsvPath.lastIndexOf('.');
+        return (dot > 0)
+                ? outputCsvPath.substring(0, dot) + "_szz-" + variant + outputCsvPath.substring(dot)
+                : outputCsvPath + "_szz-" + variant;
+    }
 
-        try (CSVPrinter printer = CsvUtils.createPrinter(outputPath, false, headers.toArray(new String[0]))) {
-            JiraRelease prevRelease = null;
+    private void processReleases(List<JiraRelease> releases, List<LabelTarget> targets,
+                                 ProcessHistoryEngine history, List<String> headers) {
 
-            for (int i = 0; i < releases.size() && !snoring.shouldStopProcessingReleases(i); i++) {
+        List<LabelledOutput> outputs = new ArrayList<>();
+        try {
+            for (LabelTarget target : targets) {
+                CSVPrinter printer = CsvUtils.createPrinter(target.path(), false, headers.toArray(new String[0]));
+                outputs.add(new LabelledOutput(target, printer, new ArrayList<>(Arrays.asList(0L, 0L)))); // [totalRows, buggyRows]
+            }
+            for (int i = 0; i < releases.size() && !shouldStopProcessing(outputs, i); i++) {
                 JiraRelease current = releases.get(i);
 
-                // 1. Analisi storica: consumiamo i commit di questa release
-                Map<MethodIdentity, MethodProcessMetrics> intervalMap = performProcessAnalysis(prevRelease, current, globalProcessMap);
+                // 1. Analisi storica: il motore avanza fino al confine di questa release (locale e globale in place)
+                Map<MethodIdentity, MethodProcessMetrics> intervalMap = history.advanceTo(current.getReleaseDate());
 
                 // 2. Analisi statica: scattiamo la foto al codice
                 Map<MethodIdentity, MethodStaticMetrics> staticMap = performStaticAnalysis(current);
 
                 // 3. Scrittura: solo se abbiamo dati per popolare il CSV
                 if (!staticMap.isEmpty()) {
-                    WriteContext ctx = new WriteContext(printer, i, current, intervalMap, globalProcessMap, buggyRegistry, snoring, stats);
+                    WriteContext ctx = new WriteContext(outputs, i, current, intervalMap, history.getGlobalHistory());
                     writeReleaseRows(ctx, staticMap);
-                    printer.flush();
+                    for (LabelledOutput output : outputs) {
+                        output.printer().flush();
+                    }
                 }
 
-                // 4. Update: passiamo alla prossima finestra temporale.
-                // Fondamentale per non processare due volte gli stessi commit!
-                prevRelease = current;
+                // Persistiamo quanto calcolato finora: un run interrotto riparte da qui
+                store.flush();
             }
 
-            snoring.printFinalReport(outputPath);
-            // Passiamo il totale (indice 0) e i buggy (indice 1)
-            logDatasetReport(outputPath, stats.getFirst(), stats.get(1));
+            for (LabelledOutput output : outputs) {
+                String outputPath = output.target().path();
+                output.target().snoring().printFinalReport(outputPath);
+                // Passiamo il totale (indice 0) e i buggy (indice 1)
+                logDatasetReport(outputPath, output.stats().getFirst(), output.stats().get(1));
+            }
 
         } catch (IOException e) {
             throw new DatasetGenerationException("Creazione dataset fallita", e);
+        } finally {
+            closePrinters(outputs);
         }
     }
 
-    private Map<MethodIdentity, MethodProcessMetrics> performProcessAnalysis(JiraRelease prev, JiraRelease current,
-                                                                             Map<MethodIdentity, MethodProcessMetrics> global) {
-        LocalDate start = (prev != null) ? prev.getReleaseDate() : null;
-        List<GitCommit> commits = gitService.getCommitsBetweenDates(start, current.getReleaseDate());
+    /**
+     * La configurazione di snoring è la stessa per tutti i dataset: interroghiamo ogni servizio
+     * (aggiornano le proprie statistiche) e usiamo la risposta del principale, che è il primo.
+     */
+    private boolean shouldStopProcessing(List<LabelledOutput> outputs, int releaseIdx) {
+        boolean stop = false;
+        for (int i = 0; i < outputs.size(); i++) {
+            boolean answer = outputs.get(i).target().snoring().shouldStopProcessingReleases(releaseIdx);
+            if (i == 0) stop = answer;
+        }
+        return stop;
+    }
 
-        Map<MethodIdentity, MethodProcessMetrics> intervalMap = processAnalyzer.extractProcessMetrics(commits);
-        processAnalyzer.mergeToGlobal(global, intervalMap);
-        return intervalMap;
+    private void closePrinters(List<LabelledOutput> outputs) {
+        for (LabelledOutput output : outputs) {
+            try {
+                output.printer().close();
+            } catch (IOException e) {
+                logger.warn("Chiusura del dataset {} fallita: {}", output.target().path(), e.getMessage());
+            }
+        }
     }
 
     private Map<MethodIdentity, MethodStaticMetrics> performStaticAnalysis(JiraRelease release) {
@@ -121,24 +211,27 @@ public class DatasetGeneratorController {
      */
     private void writeReleaseRows(WriteContext ctx, Map<MethodIdentity, MethodStaticMetrics> staticMap) throws IOException {
 
-        Set<MethodIdentity> buggyInThisRelease = ctx.buggyRegistry()
-                .getOrDefault(ctx.release().getName(), Collections.emptySet());
-
         for (var entry : staticMap.entrySet()) {
             MethodIdentity id = entry.getKey();
-            boolean isBuggy = buggyInThisRelease.contains(id);
+            // Metadati e metriche sono comuni a tutti i dataset: costruiti al più una volta per metodo
+            List<Object> features = null;
 
-            // Verifichiamo se la riga va mantenuta (Snoring Control)
-            if (ctx.snoring().shouldKeepRow(ctx.releaseIdx(), isBuggy)) {
-                writeSingleRow(ctx, id, entry.getValue(), isBuggy);
+            for (LabelledOutput output : ctx.outputs()) {
+                boolean isBuggy = output.target().registry().isBuggy(id, ctx.releaseIdx());
+
+                // Verifichiamo se la riga va mantenuta (Snoring Control)
+                if (output.target().snoring().shouldKeepRow(ctx.releaseIdx(), isBuggy)) {
+                    if (features == null) features = buildFeatures(ctx, id, entry.getValue());
+                    writeSingleRow(output, features, isBuggy);
+                }
             }
         }
     }
 
     /**
-     * Helper per la costruzione fisica della riga.
+     * Helper per la costruzione della parte della riga indipendente dalla label.
      */
-    private void writeSingleRow(WriteContext ctx, MethodIdentity id, MethodStaticMetrics staticMetrics, boolean isBuggy) throws IOException {
+    private List<Object> buildFeatures(WriteContext ctx, MethodIdentity id, MethodStaticMetrics staticMetrics) {
         List<Object> row = new ArrayList<>();
 
         // 1. Metadati
@@ -153,16 +246,25 @@ public class DatasetGeneratorController {
         row.addAll(staticService.getValuesAsList(staticMetrics));
         row.addAll(processAnalyzer.getLocalValues(ctx.intervalMap().get(id)));
         row.addAll(processAnalyzer.getGlobalValues(ctx.globalHistory().get(id)));
+        return row;
+    }
+
+    /**
+     * Helper per la scrittura fisica della riga su un dataset.
+     */
+    private void writeSingleRow(LabelledOutput output, List<Object> features, boolean isBuggy) throws IOException {
+        List<Object> row = new ArrayList<>(features.size() + 1);
+        row.addAll(features);
 
         // 3. Label
         row.add(isBuggy ? ProjectConstants.BUGGY_LABEL : ProjectConstants.CLEAN_LABEL);
 
-        ctx.printer().printRecord(row);
+        output.printer().printRecord(row);
 
         // Aggiornamento statistiche
-        ctx.stats.set(0, ctx.stats.getFirst() + 1);
+        output.stats().set(0, output.stats().getFirst() + 1);
         if (isBuggy) {
-            ctx.stats.set(1, ctx.stats.get(1) + 1);
+            output.stats().set(1, output.stats().get(1) + 1);
         }
     }
 
@@ -178,26 +280,33 @@ public class DatasetGeneratorController {
         return h;
     }
 
-    private List<JiraRelease> getSortedReleases(String projectKey) {
+    private ReleaseTimeline getReleaseTimeline(String projectKey) {
         // Non c'è bisogno di ordinare di nuovo qui,
         // il JiraService restituisce già una lista ordinata cronologicamente.
-        return jiraService.getReleases(projectKey);
+        return jiraService.getReleaseTimeline(projectKey);
     }
 
     /**
      * Raggruppa i dati necessari alla scrittura
      */
     private record WriteContext(
-            CSVPrinter printer,
+            List<LabelledOutput> outputs,
             int releaseIdx,
             JiraRelease release,
             Map<MethodIdentity, MethodProcessMetrics> intervalMap,
-            Map<MethodIdentity, MethodProcessMetrics> globalHistory,
-            Map<String, Set<MethodIdentity>> buggyRegistry,
-            SnoringControlService snoring,
-            List<Long> stats
+            Map<MethodIdentity, MethodProcessMetrics> globalHistory
     ) {}
 
+    /**
+     * Dataset da produrre: path, registro SZZ che fornisce la label e snoring control dedicato.
+     */
+    private record LabelTarget(String path, BuggyRegistry registry, SnoringControlService snoring) {}
+
+    /**
+     * Dataset aperto in scrittura, con le sue statistiche [totalRows, buggyRows].
+     */
+    private record LabelledOutput(LabelTarget target, CSVPrinter printer, List<Long> stats) {}
+
     /**
      * Funzione Helper per la stampa del report finale.
      */
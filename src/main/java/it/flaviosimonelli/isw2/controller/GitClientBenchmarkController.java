@@ -0,0 +1,182 @@
+package it.flaviosimonelli.isw2.controller;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+import it.flaviosimonelli.isw2.git.client.GitClientFactory.ClientType;
+import it.flaviosimonelli.isw2.git.client.IGitClient;
+import it.flaviosimonelli.isw2.git.client.JGitClient;
+import it.flaviosimonelli.isw2.git.client.NativeGitClient;
+import it.flaviosimonelli.isw2.util.AppConfig;
+import org.eclipse.jgit.diff.Edit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Benchmark dei due client Git ({@link JGitClient} e {@link NativeGitClient}) sullo stesso repository
+ * ({@code git.repoPath}).
+ * <p>
+ * Misura le operazioni usate dalla pipeline di mining (storia, diff con edit, lettura dei file modificati,
+ * snapshot dei sorgenti) su commit campionati uniformemente, e confronta i risultati: i contenuti devono
+ * coincidere, mentre sugli edit sono ammesse differenze tra i due algoritmi di diff (vengono contate).
+ * </p>
+ * Configurazione: {@code benchmark.git.commits}, {@code benchmark.git.snapshots}.
+ */
+public class GitClientBenchmarkController {
+    private static final Logger logger = LoggerFactory.getLogger(GitClientBenchmarkController.class);
+
+    // Commit usati per scaldare JIT, cache dei pack e processi prima delle misure
+    private static final int WARMUP_COMMITS = 10;
+
+    private final String repoPath;
+    private final int sampledCommits;
+    private final int snapshots;
+
+    public GitClientBenchmarkController() {
+        this.repoPath = AppConfig.get("git.repoPath");
+        this.sampledCommits = Math.max(1, AppConfig.getInt("benchmark.git.commits", 200));
+        this.snapshots = Math.max(0, AppConfig.getInt("benchmark.git.snapshots", 3));
+    }
+
+    public void runBenchmarks() {
+        try (JGitClient jgit = new JGitClient(repoPath);
+             NativeGitClient nativeGit = new NativeGitClient(repoPath)) {
+            List<GitCommit> history = benchmarkHistory(jgit, nativeGit);
+            List<String> sample = sample(history, sampledCommits);
+            List<String> warmup = sample.subList(0, Math.min(WARMUP_COMMITS, sample.size()));
+            logger.info("Benchmark client Git su {}: {} commit campionati, {} snapshot.",
+                    repoPath, sample.size(), snapshots);
+
+            for (String hash : warmup) {
+                jgit.getDiffsWithEdits(hash);
+                nativeGit.getDiffsWithEdits(hash);
+            }
+            benchmarkDiffs(jgit, nativeGit, sample);
+            benchmarkFileReads(jgit, nativeGit, sample);
+            benchmarkSnapshots(jgit, nativeGit, sample(history, snapshots));
+        }
+    }
+
+    private List<GitCommit> benchmarkHistory(IGitClient jgit, IGitClient nativeGit) {
+        long start = System.nanoTime();
+        List<GitCommit> jgitHistory = jgit.getAllCommits();
+        long jgitNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<GitCommit> nativeHistory = nativeGit.getAllCommits();
+        long nativeNanos = System.nanoTime() - start;
+
+        boolean same = jgitHistory.size() == nativeHistory.size();
+        for (int i = 0; same && i < jgitHistory.size(); i++) {
+            same = jgitHistory.get(i).getHash().equals(nativeHistory.get(i).getHash());
+        }
+        logTimings("getAllCommits", jgitHistory.size(), jgitNanos, nativeNanos);
+        if (!same) {
+            logger.error("getAllCommits: storia diversa tra i due client ({} vs {} commit).",
+                    jgitHistory.size(), nativeHistory.size());
+        }
+        return jgitHistory;
+    }
+
+    private void benchmarkDiffs(IGitClient jgit, IGitClient nativeGit, List<String> commits) {
+        List<Map<String, List<Edit>>> jgitDiffs = new ArrayList<>();
+        long jgitNanos = measure(commits, hash -> jgitDiffs.add(jgit.getDiffsWithEdits(hash)));
+
+        List<Map<String, List<Edit>>> nativeDiffs = new ArrayList<>();
+        long nativeNanos = measure(commits, hash -> nativeDiffs.add(nativeGit.getDiffsWithEdits(hash)));
+
+        int files = 0;
+        int differentPaths = 0;
+        int differentEdits = 0;
+        for (int i = 0; i < commits.size(); i++) {
+            Map<String, List<Edit>> expected = jgitDiffs.get(i);
+            Map<String, List<Edit>> actual = nativeDiffs.get(i);
+            files += expected.size();
+            if (!expected.keySet().equals(actual.keySet())) differentPaths++;
+            for (Map.Entry<String, List<Edit>> entry : expected.entrySet()) {
+                List<Edit> other = actual.get(entry.getKey());
+                if (other != null && !other.equals(entry.getValue())) differentEdits++;
+            }
+        }
+        logTimings("getDiffsWithEdits", commits.size(), jgitNanos, nativeNanos);
+        if (differentPaths > 0 || differentEdits > 0) {
+            logger.warn("getDiffsWithEdits: {} commit con file diversi (rename detection), {} file su {} con edit diversi.",
+                    differentPaths, differentEdits, files);
+        }
+    }
+
+    private void benchmarkFileReads(IGitClient jgit, IGitClient nativeGit, List<String> commits) {
+        // Stessi file per entrambi: i .java toccati dai commit campionati (diff di JGit)
+        List<String[]> reads = new ArrayList<>();
+        for (String hash : commits) {
+            for (String path : jgit.getDiffsWithEdits(hash).keySet()) {
+                if (path.endsWith(".java")) reads.add(new String[] {hash, path});
+            }
+        }
+
+        List<String> jgitContents = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String[] read : reads) jgitContents.add(jgit.getFileContent(read[0], read[1]));
+        long jgitNanos = System.nanoTime() - start;
+
+        List<String> nativeContents = new ArrayList<>();
+        start = System.nanoTime();
+        for (String[] read : reads) nativeContents.add(nativeGit.getFileContent(read[0], read[1]));
+        long nativeNanos = System.nanoTime() - start;
+
+        long mismatches = 0;
+        for (int i = 0; i < reads.size(); i++) {
+            if (!Objects.equals(jgitContents.get(i), nativeContents.get(i))) mismatches++;
+        }
+        logTimings("getFileContent", reads.size(), jgitNanos, nativeNanos);
+        if (mismatches > 0) {
+            logger.error("getFileContent: {} file su {} con contenuto diverso tra i due client!", mismatches, reads.size());
+        }
+    }
+
+    private void benchmarkSnapshots(IGitClient jgit, IGitClient nativeGit, List<String> commits) {
+        if (commits.isEmpty()) return;
+
+        List<Map<String, String>> jgitSnapshots = new ArrayList<>();
+        long jgitNanos = measure(commits, hash -> jgitSnapshots.add(jgit.getJavaFilesContent(hash)));
+
+        List<Map<String, String>> nativeSnapshots = new ArrayList<>();
+        long nativeNanos = measure(commits, hash -> nativeSnapshots.add(nativeGit.getJavaFilesContent(hash)));
+
+        logTimings("getJavaFilesContent", commits.size(), jgitNanos, nativeNanos);
+        if (!jgitSnapshots.equals(nativeSnapshots)) {
+            logger.error("getJavaFilesContent: snapshot diversi tra i due client!");
+        }
+    }
+
+    private static long measure(List<String> commits, Consumer<String> operation) {
+        long start = System.nanoTime();
+        for (String hash : commits) operation.accept(hash);
+        return System.nanoTime() - start;
+    }
+
+    private static void logTimings(String operation, int calls, long jgitNanos, long nativeNanos) {
+        logger.info("{}: {} chiamate | {} {} ms, {} {} ms (speedup {}x)",
+                operation, calls,
+                ClientType.JGIT, "%.1f".formatted(jgitNanos / 1e6),
+                ClientType.NATIVE, "%.1f".formatted(nativeNanos / 1e6),
+                "%.2f".formatted(nativeNanos > 0 ? (double) jgitNanos / nativeNanos : 0.0));
+    }
+
+    /**
+     * Campione uniforme (e deterministico) sull'intera storia.
+     */
+    private static List<String> sample(List<GitCommit> history, int count) {
+        List<String> hashes = new ArrayList<>();
+        if (history.isEmpty() || count == 0) return hashes;
+        int size = Math.min(count, history.size());
+        for (int i = 0; i < size; i++) {
+            hashes.add(history.get((int) ((long) i * history.size() / size)).getHash());
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,154 @@
+package it.flaviosimonelli.isw2.controller;
+
+import it.flaviosimonelli.isw2.parser.MethodBoundary;
+import it.flaviosimonelli.isw2.parser.MethodBoundaryLocator;
+import it.flaviosimonelli.isw2.parser.MethodIntervalIndex;
+import it.flaviosimonelli.isw2.util.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro-benchmark dei componenti della pipeline di mining, eseguiti su file locali
+ * (di default i sorgenti in {@code refactoring_experiments/}).
+ * <p>
+ * Mapping edit -> metodi: confronta la scansione lineare (ogni edit contro ogni metodo)
+ * con {@link MethodIntervalIndex} su un insieme di edit sintetici riproducibili,
+ * verificando che i due approcci trovino gli stessi metodi.
+ * </p>
+ * Configurazione: {@code benchmark.files}, {@code benchmark.edits}, {@code benchmark.iterations}.
+ */
+public class MicroBenchmarkController {
+    private static final Logger logger = LoggerFactory.getLogger(MicroBenchmarkController.class);
+
+    private static final String DEFAULT_FILES =
+            "refactoring_experiments/AnnotationPersistenceMappingParser_Original.java,"
+                    + "refactoring_experiments/AnnotationPersistenceMappingParser_Refactored.java";
+
+    // Lunghezza massima (in righe) di un edit sintetico: 0 = cancellazione puntuale
+    private static final int MAX_EDIT_LENGTH = 8;
+    private static final long SEED = 42L;
+
+    private final MethodBoundaryLocator methodLocator = new MethodBoundaryLocator();
+    private final List<String> files;
+    private final int editsPerFile;
+    private final int iterations;
+
+    public MicroBenchmarkController() {
+        this.files = AppConfig.getList("benchmark.files", DEFAULT_FILES);
+        this.editsPerFile = Math.max(1, AppConfig.getInt("benchmark.edits", 2000));
+        this.iterations = Math.max(1, AppConfig.getInt("benchmark.iterations", 200));
+    }
+
+    public void runBenchmarks() {
+        logger.info("Micro-benchmark mapping edit -> metodi: {} file, {} edit per file, {} iterazioni.",
+                files.size(), editsPerFile, iterations);
+        for (String file : files) {
+            try {
+                benchmarkIntervalIndex(Paths.get(file));
+            } catch (IOException e) {
+                logger.error("Impossibile leggere il file di benchmark {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void benchmarkIntervalIndex(Path file) throws IOException {
+        String sourceCode = Files.readString(file);
+        int lineCount = (int) sourceCode.lines().count();
+
+        List<MethodBoundary> methods = methodLocator.locate(sourceCode);
+        MethodIntervalIndex index = MethodIntervalIndex.of(methods);
+        int[][] edits = syntheticEdits(lineCount);
+
+        // Correttezza prima dei tempi: stesso insieme di match e stesso "primo metodo"
+        if (!sameResults(methods, index, edits)) {
+            logger.error("{}: l'indice a intervalli restituisce risultati diversi dalla scansione lineare!", file);
+            return;
+        }
+
+        // Riscaldamento JIT, poi misura
+        runLinear(methods, edits, iterations);
+        runIndexed(index, edits, iterations);
+
+        long start = System.nanoTime();
+        long linearMatches = runLinear(methods, edits, iterations);
+        long linearNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long indexedMatches = runIndexed(index, edits, iterations);
+        long indexedNanos = System.nanoTime() - start;
+
+        long queries = (long) edits.length * iterations;
+        logger.info("{}: {} righe, {} metodi, {} match per passata | lineare {} ns/edit, indice {} ns/edit (speedup {}x)",
+                file.getFileName(), lineCount, methods.size(), linearMatches / iterations,
+                "%.1f".formatted((double) linearNanos / queries),
+                "%.1f".formatted((double) indexedNanos / queries),
+                "%.1f".formatted(indexedNanos > 0 ? (double) linearNanos / indexedNanos : 0.0));
+
+        if (linearMatches != indexedMatches) {
+            logger.warn("{}: conteggio match diverso tra le due misure ({} vs {}).", file, linearMatches, indexedMatches);
+        }
+    }
+
+    /**
+     * Edit sintetici [inizio, fine] base-1, distribuiti uniformemente sul file e riproducibili (seed fisso).
+     */
+    private int[][] syntheticEdits(int lineCount) {
+        Random random = new Random(SEED);
+        int[][] edits = new int[editsPerFile][];
+        for (int i = 0; i < editsPerFile; i++) {
+            int begin = 1 + random.nextInt(Math.max(1, lineCount));
+            int end = begin + random.nextInt(MAX_EDIT_LENGTH + 1);
+            edits[i] = new int[] {begin, end};
+        }
+        return edits;
+    }
+
+    private boolean sameResults(List<MethodBoundary> methods, MethodIntervalIndex index, int[][] edits) {
+        for (int[] edit : edits) {
+            MethodBoundary firstLinear = null;
+            int linearCount = 0;
+            for (MethodBoundary method : methods) {
+                if (method.overlaps(edit[0], edit[1])) {
+                    if (firstLinear == null) firstLinear = method;
+                    linearCount++;
+                }
+            }
+            int[] indexedCount = {0};
+            index.forEachOverlapping(edit[0], edit[1], method -> indexedCount[0]++);
+
+            if (linearCount != indexedCount[0] || firstLinear != index.firstOverlapping(edit[0], edit[1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long runLinear(List<MethodBoundary> methods, int[][] edits, int rounds) {
+        long matches = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (int[] edit : edits) {
+                for (MethodBoundary method : methods) {
+                    if (method.overlaps(edit[0], edit[1])) matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static long runIndexed(MethodIntervalIndex index, int[][] edits, int rounds) {
+        long[] matches = {0};
+        for (int r = 0; r < rounds; r++) {
+            for (int[] edit : edits) {
+                index.forEachOverlapping(edit[0], edit[1], method -> matches[0]++);
+            }
+        }
+        return matches[0];
+    }
+}
@@ -0,0 +1,235 @@
+package it.flaviosimonelli.isw2.git.client;
+
+import org.eclipse.jgit.api.errors.CanceledException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rename detection di {@link JGitClient}, limitata e con cache per commit.
+ * <p>
+ * La ricerca per similarità è quadratica nel numero di file aggiunti/cancellati: un grande refactoring
+ * o un import può bloccare il run. Per ogni commit:
+ * <ul>
+ * <li>oltre {@code git.renames.limit} file aggiunti o cancellati si cercano solo le rinomine esatte (stesso blob);</li>
+ * <li>la ricerca per contenuto ha un budget sulla dimensione dei blob da indicizzare ({@code git.renames.budget.mb},
+ * 0 = illimitato), stimata per eccesso su tutti i file aggiunti e cancellati: se lo supera si cercano solo
+ * le rinomine esatte. Il budget è deterministico (non dipende dal carico della macchina), quindi lo stesso
+ * commit dà sempre lo stesso risultato;</li>
+ * <li>le coppie trovate restano in cache (per commit e query sui path), così diff entry ed edit list
+ * dello stesso commit non ripetono la ricerca.</li>
+ * </ul>
+ * I commit che superano limite o budget vengono loggati; per quelli oltre il budget
+ * {@link #isOverBudget(String)} permette al chiamante di non persisterne i risultati.
+ * </p>
+ * Thread-safe: due thread sullo stesso commit possono calcolarlo entrambi, il risultato è lo stesso.
+ */
+final class CommitRenameDetector {
+    private static final Logger logger = LoggerFactory.getLogger(CommitRenameDetector.class);
+
+    // Con limite 1 JGit salta la similarità (a parte il banale caso 1x1): restano le rinomine esatte
+    private static final int EXACT_ONLY_LIMIT = 1;
+
+    private final Repository repository;
+    private final RenameSettings settings;
+
+    // commit|query -> rinomine e copie trovate (lista vuota = nessuna)
+    private final Map<String, List<RenamePair>> cache = new ConcurrentHashMap<>();
+    // commit|query per cui la ricerca per similarità è stata saltata per budget
+    private final Set<String> overBudgetKeys = ConcurrentHashMap.newKeySet();
+
+    // Statistiche
+    private final AtomicLong detections = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong overLimit = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+
+    private record RenamePair(ChangeType type, String oldPath, String newPath, int score) {}
+
+    CommitRenameDetector(Repository repository, RenameSettings settings) {
+        this.repository = repository;
+        this.settings = settings;
+    }
+
+    /**
+     * Applica la rename detection alle diff entry grezze del commit (calcolate senza rinomine).
+     *
+     * @param cacheKey commit e query sui path: a parità di chiave le entry grezze sono le stesse
+     */
+    List<DiffEntry> detect(String cacheKey, List<DiffEntry> rawEntries) throws IOException {
+        if (!hasAddsAndDeletes(rawEntries)) {
+            return rawEntries; // Niente da appaiare
+        }
+
+        List<RenamePair> cached = cache.get(cacheKey);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return apply(rawEntries, cached);
+        }
+
+        detections.incrementAndGet();
+        List<DiffEntry> result = compute(cacheKey, rawEntries);
+        List<RenamePair> pairs = new ArrayList<>();
+        for (DiffEntry entry : result) {
+            if (entry.getChangeType() == ChangeType.RENAME || entry.getChangeType() == ChangeType.COPY) {
+                pairs.add(new RenamePair(entry.getChangeType(), entry.getOldPath(), entry.getNewPath(), entry.getScore()));
+            }
+        }
+        cache.put(cacheKey, pairs.isEmpty() ? List.of() : List.copyOf(pairs));
+        return result;
+    }
+
+    private List<DiffEntry> compute(String cacheKey, List<DiffEntry> rawEntries) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            long candidateBytes = candidateBytes(reader, rawEntries);
+            if (settings.budgetMb() > 0 && candidateBytes > settings.budgetBytes()) {
+                overBudget.incrementAndGet();
+                overBudgetKeys.add(cacheKey);
+                logger.warn("Rename detection: {} oltre il budget ({} MB di file aggiunti/cancellati, budget {} MB): solo rinomine esatte.",
+                        cacheKey, candidateBytes >> 20, settings.budgetMb());
+                return computeWithLimit(reader, EXACT_ONLY_LIMIT, rawEntries);
+            }
+
+            RenameDetector detector = newDetector(settings.limit(), rawEntries);
+            List<DiffEntry> result = compute(detector, reader);
+            if (detector.isOverRenameLimit()) {
+                overLimit.incrementAndGet();
+                logger.warn("Rename detection: {} oltre il limite ({} file aggiunti/cancellati, limite {}): solo rinomine esatte.",
+                        cacheKey, maxSide(rawEntries), settings.limit());
+            }
+            return result;
+        }
+    }
+
+    private List<DiffEntry> computeWithLimit(ObjectReader reader, int limit, List<DiffEntry> rawEntries) throws IOException {
+        return compute(newDetector(limit, rawEntries), reader);
+    }
+
+    private static List<DiffEntry> compute(RenameDetector detector, ObjectReader reader) throws IOException {
+        try {
+            return detector.compute(reader, NullProgressMonitor.INSTANCE);
+        } catch (CanceledException e) {
+            throw new IOException("Rename detection annullata senza monitor", e); // Non può accadere
+        }
+    }
+
+    /**
+     * Byte dei blob che la ricerca per similarità dovrebbe indicizzare: tutti gli aggiunti e i cancellati
+     * (per eccesso: quelli appaiati come rinomine esatte verrebbero esclusi). Legge solo gli header degli oggetti.
+     */
+    private static long candidateBytes(ObjectReader reader, List<DiffEntry> rawEntries) throws IOException {
+        long bytes = 0;
+        for (DiffEntry entry : rawEntries) {
+            // Solo i blob (i gitlink dei submodule non sono nel repository)
+            if (entry.getChangeType() == ChangeType.ADD && entry.getNewMode().getObjectType() == Constants.OBJ_BLOB) {
+                bytes += reader.getObjectSize(entry.getNewId().toObjectId(), Constants.OBJ_BLOB);
+            } else if (entry.getChangeType() == ChangeType.DELETE && entry.getOldMode().getObjectType() == Constants.OBJ_BLOB) {
+                bytes += reader.getObjectSize(entry.getOldId().toObjectId(), Constants.OBJ_BLOB);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * True se per la chiave indicata la ricerca per similarità è stata saltata per budget.
+     */
+    boolean isOverBudget(String cacheKey) {
+        return overBudgetKeys.contains(cacheKey);
+    }
+
+    private RenameDetector newDetector(int limit, List<DiffEntry> rawEntries) {
+        RenameDetector detector = new RenameDetector(repository);
+        detector.setRenameLimit(limit);
+        detector.setRenameScore(settings.score());
+        detector.addAll(rawEntries);
+        return detector;
+    }
+
+    /**
+     * Ricostruisce il risultato dalle coppie in cache: ogni coppia sostituisce la cancellazione
+     * e l'aggiunta che la compongono (una sorgente copiata più volte viene consumata una volta sola).
+     */
+    private static List<DiffEntry> apply(List<DiffEntry> rawEntries, List<RenamePair> pairs) {
+        if (pairs.isEmpty()) return rawEntries;
+
+        Map<String, DiffEntry> deletes = new HashMap<>();
+        Map<String, DiffEntry> adds = new HashMap<>();
+        for (DiffEntry entry : rawEntries) {
+            if (entry.getChangeType() == ChangeType.DELETE) deletes.put(entry.getOldPath(), entry);
+            else if (entry.getChangeType() == ChangeType.ADD) adds.put(entry.getNewPath(), entry);
+        }
+
+        List<DiffEntry> result = new ArrayList<>(rawEntries.size());
+        Set<DiffEntry> consumed = new HashSet<>();
+        for (RenamePair pair : pairs) {
+            DiffEntry source = deletes.get(pair.oldPath());
+            DiffEntry destination = adds.get(pair.newPath());
+            if (source != null && destination != null) {
+                result.add(new PairedEntry(pair.type(), source, destination, pair.score()));
+                consumed.add(source);
+                consumed.add(destination);
+            }
+        }
+        for (DiffEntry entry : rawEntries) {
+            if (!consumed.contains(entry)) result.add(entry);
+        }
+        return result;
+    }
+
+    private static boolean hasAddsAndDeletes(List<DiffEntry> entries) {
+        boolean add = false;
+        boolean delete = false;
+        for (DiffEntry entry : entries) {
+            add |= entry.getChangeType() == ChangeType.ADD;
+            delete |= entry.getChangeType() == ChangeType.DELETE;
+            if (add && delete) return true;
+        }
+        return false;
+    }
+
+    private static long maxSide(List<DiffEntry> entries) {
+        long adds = entries.stream().filter(e -> e.getChangeType() == ChangeType.ADD).count();
+        return Math.max(adds, entries.stream().filter(e -> e.getChangeType() == ChangeType.DELETE).count());
+    }
+
+    /**
+     * Logga l'efficacia della cache e i commit che hanno superato limite o budget.
+     */
+    void logStats() {
+        logger.info("Rename detection: {} commit analizzati, {} riusi da cache, {} oltre il limite, {} oltre il budget.",
+                detections.get(), cacheHits.get(), overLimit.get(), overBudget.get());
+    }
+
+    /**
+     * Rinomina/copia ricostruita dalla cache (il costruttore di JGit per le coppie non è pubblico).
+     */
+    private static final class PairedEntry extends DiffEntry {
+        PairedEntry(ChangeType type, DiffEntry source, DiffEntry destination, int score) {
+            this.changeType = type;
+            this.score = score;
+            this.oldPath = source.getOldPath();
+            this.oldMode = source.getOldMode();
+            this.oldId = source.getOldId();
+            this.newPath = destination.getNewPath();
+            this.newMode = destination.getNewMode();
+            this.newId = destination.getNewId();
+            this.diffAttribute = destination.getDiffAttribute();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package it.flaviosimonelli.isw2.git.client;
+
+import it.flaviosimonelli.isw2.util.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Sceglie l'implementazione di {@link IGitClient} in base a {@code git.client}:
+ * {@code JGIT} (default, {@link JGitClient}) o {@code NATIVE} ({@link NativeGitClient}).
+ */
+public final class GitClientFactory {
+    private static final Logger logger = LoggerFactory.getLogger(GitClientFactory.class);
+
+    public enum ClientType { JGIT, NATIVE }
+
+    private GitClientFactory() {}
+
+    public static IGitClient create(String repoPath) {
+        return create(configuredType(), repoPath);
+    }
+
+    public static IGitClient create(ClientType type, String repoPath) {
+        return switch (type) {
+            case JGIT -> new JGitClient(repoPath);
+            case NATIVE -> new NativeGitClient(repoPath);
+        };
+    }
+
+    public static ClientType configuredType() {
+        String value = AppConfig.getProperty("git.client", "JGIT");
+        try {
+            return ClientType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException _) {
+            logger.warn("git.client non valido ({}): uso JGIT.", value);
+            return ClientType.JGIT;
+        }
+    }
+}
@@ -3,11 +3,17 @@ package it.flaviosimonelli.isw2.git.client;
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.git.bean.GitDiffEntry;
 import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectId;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
-public interface IGitClient {
+/**
+ * Accesso in lettura al repository Git. Da chiudere a fine uso: le implementazioni tengono aperti
+ * repository e processi ({@link #close()} non lancia eccezioni checked).
+ */
+public interface IGitClient extends AutoCloseable {
 
     /**
      * Recupera tutti i commit del repository.
@@ -24,7 +30,15 @@ public interface IGitClient {
      * Recupera la lista dei file modificati in un commit rispetto al suo genitore.
      * Fondamentale per capire quali classi sono coinvolte in un bug fix.
      */
-    List<GitDiffEntry> getDiffEntries(String commitHash);
+    default List<GitDiffEntry> getDiffEntries(String commitHash) {
+        return getDiffEntries(commitHash, PathQuery.all());
+    }
+
+    /**
+     * Come {@link #getDiffEntries(String)}, limitato ai file selezionati dalla query.
+     * La rename detection lavora solo sui file selezionati.
+     */
+    List<GitDiffEntry> getDiffEntries(String commitHash, PathQuery query);
 
     List<String> getAllJavaFiles(String commitHash);
 
@@ -33,9 +47,84 @@ public interface IGitClient {
      * * @param commitHash il commit da analizzare.
      * @return Una Mappa: FilePath -> Lista di Edit (Range di righe modificate).
      */
-    Map<String, List<Edit>> getDiffsWithEdits(String commitHash);
+    default Map<String, List<Edit>> getDiffsWithEdits(String commitHash) {
+        return getDiffsWithEdits(commitHash, PathQuery.all());
+    }
+
+    /**
+     * Come {@link #getDiffsWithEdits(String)}, ma i file non selezionati dalla query non vengono
+     * né diffati né letti (la rename detection lavora solo sui file selezionati).
+     */
+    Map<String, List<Edit>> getDiffsWithEdits(String commitHash, PathQuery query);
 
     List<String> listAllFiles(String commitHash);
 
-    Map<String, String> getJavaFilesContent(String commitHash);
+    /**
+     * Contenuto dei sorgenti Java dello snapshot, esclusi i path con il marker di test di default.
+     */
+    default Map<String, String> getJavaFilesContent(String commitHash) {
+        return getFilesContent(commitHash, PathQuery.javaSources(PathQuery.DEFAULT_TEST_MARKER));
+    }
+
+    /**
+     * Contenuto testuale (UTF-8) dei file dello snapshot selezionati dalla query.
+     */
+    Map<String, String> getFilesContent(String commitHash, PathQuery query);
+
+    /**
+     * Recupera l'id del blob di ogni file Java dello snapshot, SENZA leggerne il contenuto.
+     * File byte-identici in snapshot diversi condividono lo stesso ObjectId:
+     * è la chiave naturale per riusare i risultati di analisi già calcolati.
+     *
+     * @param commitHash il commit (snapshot) da esplorare.
+     * @return Una Mappa: FilePath -> ObjectId del blob.
+     */
+    default Map<String, ObjectId> getJavaFilesBlobIds(String commitHash) {
+        return getBlobIds(commitHash, PathQuery.javaSources(PathQuery.DEFAULT_TEST_MARKER));
+    }
+
+    /**
+     * Come {@link #getJavaFilesBlobIds(String)}, per i file selezionati dalla query.
+     */
+    Map<String, ObjectId> getBlobIds(String commitHash, PathQuery query);
+
+    /**
+     * Legge il contenuto testuale (UTF-8) di un blob dato il suo id.
+     */
+    String getBlobContent(ObjectId blobId);
+
+    /**
+     * Lettura bulk di più blob con un solo ObjectReader, nell'ordine in cui stanno nei pack.
+     * I byte restituiti sono i buffer del loader (nessuna copia): vanno trattati in sola lettura.
+     *
+     * @return Una Mappa: ObjectId -> contenuto grezzo. I blob inesistenti sono assenti.
+     */
+    Map<ObjectId, byte[]> readBlobs(Collection<ObjectId> blobIds);
+
+    /**
+     * Lettura bulk di più file di uno stesso commit: una sola visita dell'albero
+     * e un solo ObjectReader per tutti i path, blob letti in ordine di pack.
+     *
+     * @return Una Mappa: FilePath -> contenuto grezzo. I path non presenti nel commit sono assenti.
+     */
+    Map<String, byte[]> readFiles(String commitHash, Collection<String> filePaths);
+
+    /**
+     * True se, in una chiamata di diff già eseguita per il commit e la query, la rename detection è stata
+     * ridotta alle sole rinomine esatte per il budget ({@code git.renames.budget.mb}): risultati di ripiego,
+     * da non persistere. Di default false (nessun budget).
+     */
+    default boolean isRenameBudgetExceeded(String commitHash, PathQuery query) {
+        return false;
+    }
+
+    /**
+     * Logga le statistiche interne del client (es. rename detection); di default nessuna.
+     */
+    default void logStats() {
+        // Nessuna statistica
+    }
+
+    @Override
+    void close();
 }
@@ -3,20 +3,30 @@ package it.flaviosimonelli.isw2.git.client;
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.git.bean.GitDiffEntry;
 import it.flaviosimonelli.isw2.git.exceptions.GitClientException;
+import it.flaviosimonelli.isw2.util.AppConfig;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.Pack;
+import org.eclipse.jgit.internal.storage.file.PackIndex;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 import org.slf4j.Logger;
@@ -29,13 +39,24 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
 public class JGitClient implements IGitClient {
     private static final Logger logger = LoggerFactory.getLogger(JGitClient.class);
+
+    // Modalità in memoria: finestre grandi, così a cache calda ogni pack occupa poche finestre contigue
+    private static final int PINNED_WINDOW_SIZE = 1 << 20;
+    private static final int MIN_DELTA_BASE_CACHE = 10 << 20;
+    private static final long MB = 1L << 20;
+
     private final Repository repository;
+    // Rename detection limitata e condivisa tra getDiffEntries e getDiffsWithEdits
+    private final CommitRenameDetector renameDetector;
 
     // Costruttore: Apre il repository locale
     public JGitClient(String repoPath) {
@@ -49,6 +70,96 @@ public class JGitClient implements IGitClient {
         } catch (IOException e) {
             throw new GitClientException("Impossibile aprire il repository Git in: " + repoPath, e);
         }
+        this.renameDetector = new CommitRenameDetector(repository, RenameSettings.fromConfig());
+        if ("PINNED".equalsIgnoreCase(AppConfig.getProperty("git.memory.mode", "DISK").trim())) {
+            pinPacksInMemory();
+        }
+    }
+
+    // --- Modalità in memoria (git.memory.mode=PINNED) ---
+
+    /**
+     * Dimensiona la WindowCache di JGit per contenere tutti i pack del repository, con riferimenti forti
+     * (le finestre lette non vengono più scaricate) e senza mmap, e la riscalda leggendo gli header degli
+     * oggetti in ordine di offset: da lì in poi tree walk e letture di blob non toccano il disco.
+     * <p>
+     * Il budget ({@code git.memory.budget.mb}) copre pack, indici e cache delle basi delta (almeno
+     * {@code MIN_DELTA_BASE_CACHE}). Se non ci stanno, o il budget supera l'heap massimo, il caricamento
+     * viene rifiutato e il client resta su disco.
+     * La WindowCache è globale: la configurazione vale per tutti i repository aperti nella JVM.
+     * Gli oggetti loose restano su disco (conviene un {@code git gc} prima del run).
+     * </p>
+     */
+    private void pinPacksInMemory() {
+        if (!(repository.getObjectDatabase() instanceof ObjectDirectory objectDirectory)) {
+            logger.warn("git.memory.mode=PINNED richiede un repository su file: resto su disco.");
+            return;
+        }
+        long budget = Math.max(1, AppConfig.getInt("git.memory.budget.mb", 2048)) * MB;
+        List<Pack> packs = new ArrayList<>(objectDirectory.getPacks());
+        long packBytes = 0;
+        long indexBytes = 0;
+        for (Pack pack : packs) {
+            packBytes += pack.getPackFile().length();
+            indexBytes += pack.getPackFile().create(PackExt.INDEX).length();
+        }
+        // Limite della cache arrotondato alla finestra: l'ultima finestra di ogni pack può essere parziale
+        long packedGitLimit = packBytes + (long) packs.size() * PINNED_WINDOW_SIZE;
+        long heapMax = Runtime.getRuntime().maxMemory();
+
+        logger.info("Memoria repository: {} pack, {} MB di pack, {} MB di indici | budget {} MB, heap max {} MB",
+                packs.size(), packBytes / MB, indexBytes / MB, budget / MB, heapMax / MB);
+
+        // Pack + indici (anch'essi tenuti con riferimenti forti) + cache minima delle basi delta
+        long required = packedGitLimit + indexBytes + MIN_DELTA_BASE_CACHE;
+        if (required > budget) {
+            logger.error("Pack, indici e cache delta ({} MB) superano git.memory.budget.mb ({} MB): caricamento in memoria rifiutato, resto su disco.",
+                    required / MB, budget / MB);
+            return;
+        }
+        if (budget > heapMax) {
+            logger.error("git.memory.budget.mb ({} MB) supera l'heap massimo ({} MB, -Xmx): caricamento in memoria rifiutato.",
+                    budget / MB, heapMax / MB);
+            return;
+        }
+
+        WindowCacheConfig cacheConfig = new WindowCacheConfig();
+        cacheConfig.setPackedGitMMAP(false);
+        cacheConfig.setPackedGitUseStrongRefs(true);
+        cacheConfig.setPackedIndexGitUseStrongRefs(true);
+        cacheConfig.setPackedGitWindowSize(PINNED_WINDOW_SIZE);
+        cacheConfig.setPackedGitLimit(packedGitLimit);
+        cacheConfig.setPackedGitOpenFiles(Math.max(cacheConfig.getPackedGitOpenFiles(), packs.size()));
+        // Quel che resta del budget va alle basi delta (ricostruzione dei blob deltificati): almeno il minimo,
+        // già garantito dal controllo sopra, quindi il totale resta entro il budget
+        cacheConfig.setDeltaBaseCacheLimit((int) Math.min(Integer.MAX_VALUE, budget - packedGitLimit - indexBytes));
+        cacheConfig.install();
+
+        preloadPacks(packs);
+    }
+
+    private void preloadPacks(List<Pack> packs) {
+        long start = System.currentTimeMillis();
+        long objects = 0;
+        try (ObjectReader reader = repository.newObjectReader()) {
+            for (Pack pack : packs) {
+                List<PackIndex.MutableEntry> entries = new ArrayList<>();
+                for (PackIndex.MutableEntry entry : pack.getIndex()) {
+                    entries.add(entry.cloneEntry());
+                }
+                entries.sort(Comparator.comparingLong(PackIndex.MutableEntry::getOffset));
+                // La dimensione si legge dall'header dell'oggetto: carica ogni finestra una volta, in ordine
+                for (PackIndex.MutableEntry entry : entries) {
+                    reader.getObjectSize(entry.toObjectId(), ObjectReader.OBJ_ANY);
+                }
+                objects += entries.size();
+            }
+        } catch (IOException e) {
+            logger.warn("Pre-caricamento dei pack interrotto (le finestre mancanti verranno lette su richiesta): {}",
+                    e.getMessage());
+            return;
+        }
+        logger.info("Pack caricati in memoria: {} oggetti in {} ms.", objects, System.currentTimeMillis() - start);
     }
 
     @Override
@@ -102,7 +213,7 @@ public class JGitClient implements IGitClient {
     }
 
     @Override
-    public List<GitDiffEntry> getDiffEntries(String commitHash) {
+    public List<GitDiffEntry> getDiffEntries(String commitHash, PathQuery query) {
         List<GitDiffEntry> diffs = new ArrayList<>();
         try (RevWalk revWalk = new RevWalk(repository);
              DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
@@ -122,10 +233,13 @@ public class JGitClient implements IGitClient {
             // 4. Configura il formatter per confrontare i due alberi
             diffFormatter.setRepository(repository);
             diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
-            diffFormatter.setDetectRenames(true);
+            // Rinomine calcolate a parte: limitate, con budget e in cache per commit
+            diffFormatter.setDetectRenames(false);
+            diffFormatter.setPathFilter(PathQueryFilter.compile(query));
 
             // 5. Esegui il diff (Parent vs Current)
-            List<DiffEntry> entries = diffFormatter.scan(parent.getTree(), commit.getTree());
+            List<DiffEntry> entries = renameDetector.detect(renameKey(commitHash, query),
+                    diffFormatter.scan(parent.getTree(), commit.getTree()));
 
             for (DiffEntry entry : entries) {
                 // Filtriamo solo file Java se necessario, o prendiamo tutto
@@ -144,7 +258,7 @@ public class JGitClient implements IGitClient {
     }
 
     @Override
-    public Map<String, String> getJavaFilesContent(String commitHash) {
+    public Map<String, String> getFilesContent(String commitHash, PathQuery query) {
         Map<String, String> contents = new HashMap<>();
 
         try (RevWalk revWalk = new RevWalk(repository);
@@ -156,15 +270,12 @@ public class JGitClient implements IGitClient {
             treeWalk.addTree(commit.getTree());
             treeWalk.setRecursive(true);
 
-            // Filtriamo subito per .java
-            treeWalk.setFilter(PathSuffixFilter.create(".java"));
+            // Filtriamo subito (suffissi ed esclusioni della query): le directory escluse non vengono visitate
+            treeWalk.setFilter(PathQueryFilter.compile(query));
 
             while (treeWalk.next()) {
                 String path = treeWalk.getPathString();
 
-                // FILTRO EXTRA: Se vuoi escludere i test direttamente qui
-                if (path.contains("/test/")) continue;
-
                 // Leggiamo il contenuto "al volo"
                 ObjectId blobId = treeWalk.getObjectId(0);
                 ObjectLoader loader = repository.open(blobId);
@@ -184,6 +295,138 @@ public class JGitClient implements IGitClient {
         return contents;
     }
 
+    @Override
+    public Map<String, ObjectId> getBlobIds(String commitHash, PathQuery query) {
+        Map<String, ObjectId> blobIds = new HashMap<>();
+
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+
+            ObjectId commitId = ObjectId.fromString(commitHash);
+            RevCommit commit = revWalk.parseCommit(commitId);
+
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            // Stesso filtro di getFilesContent: a parità di query i due metodi vedono gli stessi file
+            treeWalk.setFilter(PathQueryFilter.compile(query));
+
+            while (treeWalk.next()) {
+                String path = treeWalk.getPathString();
+
+                // Solo l'id: il contenuto verrà letto (eventualmente) con getBlobContent
+                blobIds.put(path, treeWalk.getObjectId(0));
+            }
+
+        } catch (Exception e) {
+            throw new GitClientException("Errore lettura blob id file Java per commit " + commitHash, e);
+        }
+
+        return blobIds;
+    }
+
+    @Override
+    public String getBlobContent(ObjectId blobId) {
+        try {
+            ObjectLoader loader = repository.open(blobId);
+            // Decodifica direttamente dal buffer del loader, senza passare da uno stream
+            return new String(loader.getCachedBytes(Integer.MAX_VALUE), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new GitClientException("Errore lettura blob " + blobId.name(), e);
+        }
+    }
+
+    @Override
+    public Map<ObjectId, byte[]> readBlobs(Collection<ObjectId> blobIds) {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            return readInPackOrder(reader, blobIds);
+        } catch (Exception e) {
+            throw new GitClientException("Errore lettura bulk di " + blobIds.size() + " blob", e);
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> readFiles(String commitHash, Collection<String> filePaths) {
+        Map<String, byte[]> contents = new HashMap<>();
+        if (filePaths.isEmpty()) return contents;
+
+        // Un solo reader per commit, albero e blob: condivide cache dei pack e inflater
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+
+            RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitHash));
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            // Una sola visita per tutti i path richiesti, invece di una per file
+            treeWalk.setFilter(PathFilterGroup.createFromStrings(filePaths));
+
+            Map<String, ObjectId> blobIds = new HashMap<>();
+            while (treeWalk.next()) {
+                blobIds.put(treeWalk.getPathString(), treeWalk.getObjectId(0));
+            }
+
+            Map<ObjectId, byte[]> blobs = readInPackOrder(reader, blobIds.values());
+            for (Map.Entry<String, ObjectId> entry : blobIds.entrySet()) {
+                byte[] content = blobs.get(entry.getValue());
+                if (content != null) contents.put(entry.getKey(), content);
+            }
+        } catch (Exception e) {
+            throw new GitClientException("Errore lettura bulk di " + filePaths.size() + " file al commit " + commitHash, e);
+        }
+        return contents;
+    }
+
+    /**
+     * Legge i blob con il reader indicato, ordinati per (pack, offset): le letture sul pack diventano
+     * in gran parte sequenziali invece che sparse. Il buffer restituito dal loader non viene copiato.
+     */
+    private Map<ObjectId, byte[]> readInPackOrder(ObjectReader reader, Collection<ObjectId> blobIds) throws IOException {
+        Map<ObjectId, byte[]> contents = new HashMap<>();
+        for (ObjectId blobId : sortByPackOffset(blobIds)) {
+            try {
+                ObjectLoader loader = reader.open(blobId, Constants.OBJ_BLOB);
+                contents.put(blobId, loader.getCachedBytes(Integer.MAX_VALUE));
+            } catch (MissingObjectException _) {
+                logger.debug("Blob {} non presente nel repository", blobId.name());
+            }
+        }
+        return contents;
+    }
+
+    private record PackPosition(ObjectId blobId, int pack, long offset) {}
+
+    /**
+     * Ordina gli id per posizione nei pack (oggetti loose in coda, nell'ordine ricevuto).
+     * Usa l'indice dei pack di JGit (API interna): se non è disponibile l'ordine resta quello in input.
+     */
+    private List<ObjectId> sortByPackOffset(Collection<ObjectId> blobIds) {
+        List<ObjectId> unique = new ArrayList<>(new LinkedHashSet<>(blobIds));
+        if (unique.size() <= 1 || !(repository.getObjectDatabase() instanceof ObjectDirectory objectDirectory)) {
+            return unique;
+        }
+
+        try {
+            List<Pack> packs = new ArrayList<>(objectDirectory.getPacks());
+            List<PackPosition> positions = new ArrayList<>(unique.size());
+            for (ObjectId blobId : unique) {
+                positions.add(locate(blobId, packs));
+            }
+            positions.sort(Comparator.comparingInt(PackPosition::pack).thenComparingLong(PackPosition::offset));
+            return positions.stream().map(PackPosition::blobId).toList();
+        } catch (IOException e) {
+            logger.debug("Indice dei pack non leggibile, lettura nell'ordine originale: {}", e.getMessage());
+            return unique;
+        }
+    }
+
+    private static PackPosition locate(ObjectId blobId, List<Pack> packs) throws IOException {
+        for (int p = 0; p < packs.size(); p++) {
+            long offset = packs.get(p).getIndex().findOffset(blobId);
+            if (offset >= 0) return new PackPosition(blobId, p, offset);
+        }
+        return new PackPosition(blobId, packs.size(), 0);
+    }
+
     @Override
     public List<String> getAllJavaFiles(String commitHash) {
         List<String> filePaths = new ArrayList<>();
@@ -209,7 +452,7 @@ public class JGitClient implements IGitClient {
     }
 
     @Override
-    public Map<String, List<Edit>> getDiffsWithEdits(String commitHash) {
+    public Map<String, List<Edit>> getDiffsWithEdits(String commitHash, PathQuery query) {
         Map<String, List<Edit>> diffMap = new HashMap<>();
 
         // Usiamo il try-with-resources per chiudere automaticamente formatter e walk
@@ -218,7 +461,10 @@ public class JGitClient implements IGitClient {
 
             diffFormatter.setRepository(repository);
             diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
-            diffFormatter.setDetectRenames(true);
+            // Rinomine calcolate a parte: limitate, con budget e in cache per commit
+            diffFormatter.setDetectRenames(false);
+            // I file esclusi non entrano nel diff: niente edit list (né letture dei blob) per xml, doc, test...
+            diffFormatter.setPathFilter(PathQueryFilter.compile(query));
 
             // 1. Risolviamo il commit corrente dall'hash
             ObjectId commitId = ObjectId.fromString(commitHash);
@@ -232,7 +478,8 @@ public class JGitClient implements IGitClient {
 
             // 3. Calcoliamo i Diff (Parent vs Current)
             // Se parent è null, scan gestisce automaticamente il confronto con "albero vuoto"
-            List<DiffEntry> entries = diffFormatter.scan(parentCommit, currentCommit);
+            List<DiffEntry> entries = renameDetector.detect(renameKey(commitHash, query),
+                    diffFormatter.scan(parentCommit, currentCommit));
 
             for (DiffEntry entry : entries) {
                 // Ignoriamo le cancellazioni pure (non possiamo analizzare metodi su file che non esistono più)
@@ -274,6 +521,26 @@ public class JGitClient implements IGitClient {
         return filePaths;
     }
 
+    // Le diff entry grezze dipendono solo dal commit e dalla query sui path
+    private static String renameKey(String commitHash, PathQuery query) {
+        return commitHash + "|" + query.fingerprint();
+    }
+
+    @Override
+    public boolean isRenameBudgetExceeded(String commitHash, PathQuery query) {
+        return renameDetector.isOverBudget(renameKey(commitHash, query));
+    }
+
+    @Override
+    public void logStats() {
+        renameDetector.logStats();
+    }
+
+    @Override
+    public void close() {
+        repository.close();
+    }
+
     // --- Helper per convertire RevCommit in GitCommit ---
     private GitCommit convert(RevCommit rev) {
         // JGit usa i secondi dall'epoca, Java Time usa Instant/LocalDateTime
@@ -0,0 +1,525 @@
+package it.flaviosimonelli.isw2.git.client;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+import it.flaviosimonelli.isw2.git.bean.GitDiffEntry;
+import it.flaviosimonelli.isw2.git.exceptions.GitClientException;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Implementazione di {@link IGitClient} basata sul Git nativo, alternativa a {@link JGitClient}.
+ * <p>
+ * Tiene aperti due processi per tutta la vita del client e dialoga con loro tramite le pipe:
+ * <ul>
+ * <li>{@code git cat-file --batch}: commit, alberi e blob (contenuti, listing degli snapshot);</li>
+ * <li>{@code git diff-tree --stdin}: diff e edit list, una richiesta per commit.</li>
+ * </ul>
+ * Nessuna chiamata per file o per commit lancia un processo; solo {@link #getAllCommits()}
+ * usa un {@code git log} una tantum. Le richieste su ciascun processo sono serializzate.
+ * </p>
+ * <p>
+ * Il diff è configurato come quello di JGit (histogram, niente indent heuristic, rename detection con
+ * gli stessi {@link RenameSettings#score()} e {@link RenameSettings#limit()}; il budget vale solo per JGit),
+ * ma due implementazioni diverse possono produrre edit diversi su hunk ambigui: il benchmark dei client ne conta le differenze. Il diff-tree persistente ha argomenti
+ * fissi: una {@link PathQuery} filtra i file a valle del diff (sugli alberi invece pota le directory escluse).
+ * </p>
+ * Richiede {@code git} nel PATH. Da chiudere a fine uso ({@link #close()}).
+ */
+public class NativeGitClient implements IGitClient {
+    private static final Logger logger = LoggerFactory.getLogger(NativeGitClient.class);
+
+    // Riga che non è un hash: diff-tree --stdin la ripete in output, segnando la fine della risposta
+    private static final String END_MARKER = "END-OF-REQUEST";
+    private static final String DEV_NULL = "/dev/null";
+    private static final String TREE_MODE = "40000";
+    private static final int RAW_ID_LENGTH = 20;
+    private static final Pattern HUNK = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@");
+
+    private final File repoDir;
+    private final GitProcess catFile;
+    private final GitProcess diffTree;
+
+    private record GitObject(String type, byte[] content) {}
+
+    private record TreeEntry(String path, ObjectId id, boolean blob) {}
+
+    public NativeGitClient(String repoPath) {
+        this.repoDir = new File(repoPath);
+        if (!new File(repoDir, ".git").exists()) {
+            throw new GitClientException("Impossibile aprire il repository Git in: " + repoPath);
+        }
+        RenameSettings renames = RenameSettings.fromConfig();
+        this.catFile = new GitProcess(repoDir, "cat-file", "--batch");
+        this.diffTree = new GitProcess(repoDir, "-c", "core.quotePath=false",
+                "diff-tree", "--stdin", "-r", "--root", "-p", "-U0", "--no-color", "--no-ext-diff",
+                "--no-indent-heuristic", "--diff-algorithm=histogram",
+                "-M" + renames.score() + "%",
+                "-l" + renames.limit(),
+                "--src-prefix=a/", "--dst-prefix=b/");
+        logger.info("Repository Git aperto con client nativo (cat-file/diff-tree persistenti): {}", repoPath);
+    }
+
+    @Override
+    public List<GitCommit> getAllCommits() {
+        // Una tantum: record separati da NUL (-z), campi da 0x1f
+        byte[] output = runOnce("log", "-z", "--format=%H%x1f%an%x1f%ct%x1f%B");
+        List<GitCommit> commits = new ArrayList<>();
+        for (String rec : new String(output, StandardCharsets.UTF_8).split("\0")) {
+            if (rec.isBlank()) continue;
+            String[] fields = rec.split("\u001f", 4);
+            LocalDateTime date = LocalDateTime.ofInstant(
+                    Instant.ofEpochSecond(Long.parseLong(fields[2].trim())), ZoneId.systemDefault());
+            commits.add(new GitCommit(fields[0].trim(), fields.length > 3 ? fields[3] : "", fields[1], date));
+        }
+        return commits;
+    }
+
+    @Override
+    public String getFileContent(String commitHash, String filePath) {
+        GitObject object = readObject(commitHash + ":" + filePath);
+        if (object == null || !"blob".equals(object.type())) {
+            return null;
+        }
+        return new String(object.content(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<GitDiffEntry> getDiffEntries(String commitHash, PathQuery query) {
+        List<GitDiffEntry> diffs = new ArrayList<>();
+        if (firstParent(commitHash) == null) {
+            return diffs; // Come JGitClient: nessun diff per il primo commit
+        }
+        for (FileDiff diff : diffTree(commitHash)) {
+            if (!query.matches("DELETE".equals(diff.changeType) ? diff.oldPath : diff.newPath)) continue;
+            diffs.add(new GitDiffEntry(diff.changeType, diff.oldPath, diff.newPath));
+        }
+        return diffs;
+    }
+
+    @Override
+    public List<String> getAllJavaFiles(String commitHash) {
+        return walkTree(commitHash, PathQuery.all()).stream()
+                .map(TreeEntry::path)
+                .filter(path -> path.endsWith(".java"))
+                .toList();
+    }
+
+    @Override
+    public Map<String, List<Edit>> getDiffsWithEdits(String commitHash, PathQuery query) {
+        Map<String, List<Edit>> diffMap = new HashMap<>();
+        for (FileDiff diff : diffTree(commitHash)) {
+            // Come JGitClient: niente cancellazioni pure, chiave = path nuovo
+            if (!"DELETE".equals(diff.changeType) && query.matches(diff.newPath)) {
+                diffMap.put(diff.newPath, diff.edits);
+            }
+        }
+        return diffMap;
+    }
+
+    @Override
+    public List<String> listAllFiles(String commitHash) {
+        return walkTree(commitHash, PathQuery.all()).stream().map(TreeEntry::path).toList();
+    }
+
+    @Override
+    public Map<String, String> getFilesContent(String commitHash, PathQuery query) {
+        Map<String, String> contents = new HashMap<>();
+        for (Map.Entry<String, ObjectId> entry : getBlobIds(commitHash, query).entrySet()) {
+            GitObject blob = readObject(entry.getValue().name());
+            if (blob != null) {
+                contents.put(entry.getKey(), new String(blob.content(), StandardCharsets.UTF_8));
+            }
+        }
+        return contents;
+    }
+
+    @Override
+    public Map<String, ObjectId> getBlobIds(String commitHash, PathQuery query) {
+        Map<String, ObjectId> blobIds = new HashMap<>();
+        for (TreeEntry entry : walkTree(commitHash, query)) {
+            if (entry.blob() && query.matches(entry.path())) {
+                blobIds.put(entry.path(), entry.id());
+            }
+        }
+        return blobIds;
+    }
+
+    @Override
+    public String getBlobContent(ObjectId blobId) {
+        GitObject blob = readObject(blobId.name());
+        if (blob == null) {
+            throw new GitClientException("Errore lettura blob " + blobId.name());
+        }
+        return new String(blob.content(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Map<ObjectId, byte[]> readBlobs(Collection<ObjectId> blobIds) {
+        // L'ordine di lettura nei pack è gestito da git: le richieste viaggiano tutte sulla stessa pipe
+        Map<ObjectId, byte[]> contents = new HashMap<>();
+        for (ObjectId blobId : blobIds) {
+            GitObject blob = readObject(blobId.name());
+            if (blob != null) contents.put(blobId, blob.content());
+        }
+        return contents;
+    }
+
+    @Override
+    public Map<String, byte[]> readFiles(String commitHash, Collection<String> filePaths) {
+        Map<String, byte[]> contents = new HashMap<>();
+        for (String filePath : filePaths) {
+            GitObject blob = readObject(commitHash + ":" + filePath);
+            if (blob != null && "blob".equals(blob.type())) contents.put(filePath, blob.content());
+        }
+        return contents;
+    }
+
+    @Override
+    public void close() {
+        catFile.close();
+        diffTree.close();
+    }
+
+    // --- cat-file --batch ---
+
+    /**
+     * Legge un oggetto dato un riferimento ({@code <hash>} o {@code <commit>:<path>}); null se non esiste.
+     */
+    private GitObject readObject(String spec) {
+        synchronized (catFile) {
+            try {
+                catFile.writeLine(spec);
+                String header = catFile.readLine();
+                if (header == null) {
+                    throw new GitClientException("git cat-file terminato inaspettatamente");
+                }
+                // Risposte negative: "<spec> missing" / "<spec> ambiguous"
+                if (header.endsWith(" missing") || header.endsWith(" ambiguous")) {
+                    return null;
+                }
+                // "<oid> <type> <size>"
+                String[] parts = header.split(" ");
+                byte[] content = catFile.readBytes(Integer.parseInt(parts[2]));
+                catFile.readLine(); // LF finale
+                return new GitObject(parts[1], content);
+            } catch (IOException e) {
+                throw new GitClientException("Errore git cat-file su " + spec, e);
+            }
+        }
+    }
+
+    /**
+     * Visita ricorsiva (pre-ordine, ordine canonico degli alberi git) dell'albero del commit,
+     * saltando le directory escluse dalla query (i file vanno filtrati dal chiamante).
+     */
+    private List<TreeEntry> walkTree(String commitHash, PathQuery query) {
+        List<TreeEntry> entries = new ArrayList<>();
+        GitObject root = readObject(commitHash + "^{tree}");
+        if (root == null) {
+            throw new GitClientException("Commit non trovato: " + commitHash);
+        }
+        collectTree(root.content(), "", query, entries);
+        return entries;
+    }
+
+    private void collectTree(byte[] tree, String prefix, PathQuery query, List<TreeEntry> entries) {
+        // Formato: "<mode> <nome>\0<id binario>" ripetuto
+        int pos = 0;
+        while (pos < tree.length) {
+            int space = indexOf(tree, (byte) ' ', pos);
+            int nul = indexOf(tree, (byte) 0, space);
+            String mode = new String(tree, pos, space - pos, StandardCharsets.US_ASCII);
+            String path = prefix + new String(tree, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+            ObjectId id = ObjectId.fromRaw(tree, nul + 1);
+            pos = nul + 1 + RAW_ID_LENGTH;
+
+            if (TREE_MODE.equals(mode)) {
+                // Directory interamente esclusa dalla query: non la leggiamo nemmeno
+                if (query.excludesDirectory(path)) continue;
+                GitObject subtree = readObject(id.name());
+                if (subtree != null) collectTree(subtree.content(), path + "/", query, entries);
+            } else {
+                // I submodule (160000) compaiono nel listing come con TreeWalk, ma non sono blob
+                entries.add(new TreeEntry(path, id, !mode.startsWith("160")));
+            }
+        }
+    }
+
+    private static int indexOf(byte[] data, byte value, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) return i;
+        }
+        throw new GitClientException("Oggetto tree malformato");
+    }
+
+    // --- diff-tree --stdin ---
+
+    private static final class FileDiff {
+        String changeType = "MODIFY";
+        String oldPath;
+        String newPath;
+        final List<Edit> edits = new ArrayList<>();
+    }
+
+    /**
+     * Diff del commit rispetto al primo genitore (come JGitClient), o rispetto all'albero vuoto se è la radice.
+     */
+    private List<FileDiff> diffTree(String commitHash) {
+        String parent = firstParent(commitHash);
+        String request = (parent != null) ? commitHash + " " + parent : commitHash;
+
+        synchronized (diffTree) {
+            try {
+                diffTree.writeLine(request);
+                diffTree.writeLine(END_MARKER);
+                return parseDiffOutput();
+            } catch (IOException e) {
+                throw new GitClientException("Errore estrazione diff per " + commitHash, e);
+            }
+        }
+    }
+
+    private String firstParent(String commitHash) {
+        GitObject commit = readObject(commitHash);
+        if (commit == null || !"commit".equals(commit.type())) {
+            throw new GitClientException("Commit non trovato: " + commitHash);
+        }
+        for (String line : new String(commit.content(), StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) break; // fine dell'header
+            if (line.startsWith("parent ")) return line.substring("parent ".length()).trim();
+        }
+        return null;
+    }
+
+    private List<FileDiff> parseDiffOutput() throws IOException {
+        List<FileDiff> diffs = new ArrayList<>();
+        FileDiff current = null;
+        boolean inHunks = false;
+
+        String line;
+        while ((line = diffTree.readLine()) != null && !line.equals(END_MARKER)) {
+            if (line.startsWith("diff --git ")) {
+                current = new FileDiff();
+                diffs.add(current);
+                inHunks = false;
+                parseGitHeader(current, line.substring("diff --git ".length()));
+            } else if (current == null) {
+                // Riga con l'hash del commit che precede l'output
+            } else if (line.startsWith("@@ ")) {
+                inHunks = true;
+                current.edits.add(parseHunk(line));
+            } else if (!inHunks) {
+                parseExtendedHeader(current, line);
+            }
+        }
+        if (line == null) {
+            throw new GitClientException("git diff-tree terminato inaspettatamente");
+        }
+        return diffs;
+    }
+
+    private static void parseExtendedHeader(FileDiff diff, String line) {
+        if (line.startsWith("new file mode")) {
+            diff.changeType = "ADD";
+            diff.oldPath = DEV_NULL;
+        } else if (line.startsWith("deleted file mode")) {
+            diff.changeType = "DELETE";
+            diff.newPath = DEV_NULL;
+        } else if (line.startsWith("rename from ")) {
+            diff.changeType = "RENAME";
+            diff.oldPath = unquote(line.substring("rename from ".length()));
+        } else if (line.startsWith("rename to ")) {
+            diff.newPath = unquote(line.substring("rename to ".length()));
+        } else if (line.startsWith("copy from ")) {
+            diff.changeType = "COPY";
+            diff.oldPath = unquote(line.substring("copy from ".length()));
+        } else if (line.startsWith("copy to ")) {
+            diff.newPath = unquote(line.substring("copy to ".length()));
+        } else if (line.startsWith("--- ") && !line.equals("--- " + DEV_NULL)) {
+            diff.oldPath = stripPrefix(unquote(stripTrailingTab(line.substring(4))), "a/");
+        } else if (line.startsWith("+++ ") && !line.equals("+++ " + DEV_NULL)) {
+            diff.newPath = stripPrefix(unquote(stripTrailingTab(line.substring(4))), "b/");
+        }
+    }
+
+    /**
+     * Per i path che contengono spazi git chiude le righe "---"/"+++" con un TAB (come GNU diff).
+     */
+    private static String stripTrailingTab(String path) {
+        return path.endsWith("\t") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    /**
+     * Path dall'intestazione "a/X b/X": unica fonte per i file senza hunk (binari, cambi di modo).
+     */
+    private static void parseGitHeader(FileDiff diff, String paths) {
+        int length = (paths.length() - 5) / 2;
+        if (!paths.startsWith("\"") && length > 0 && paths.startsWith("a/")
+                && paths.endsWith(" b/" + paths.substring(2, 2 + length))) {
+            String path = paths.substring(2, 2 + length);
+            diff.oldPath = path;
+            diff.newPath = path;
+        }
+    }
+
+    /**
+     * Hunk senza contesto (-U0): con conteggio 0 l'inizio indica la riga dopo cui avviene il cambio.
+     */
+    private static Edit parseHunk(String line) {
+        Matcher m = HUNK.matcher(line);
+        if (!m.find()) {
+            throw new GitClientException("Intestazione hunk non valida: " + line);
+        }
+        int startA = Integer.parseInt(m.group(1));
+        int countA = (m.group(2) != null) ? Integer.parseInt(m.group(2)) : 1;
+        int startB = Integer.parseInt(m.group(3));
+        int countB = (m.group(4) != null) ? Integer.parseInt(m.group(4)) : 1;
+
+        int beginA = (countA == 0) ? startA : startA - 1;
+        int beginB = (countB == 0) ? startB : startB - 1;
+        return new Edit(beginA, beginA + countA, beginB, beginB + countB);
+    }
+
+    private static String stripPrefix(String path, String prefix) {
+        return path.startsWith(prefix) ? path.substring(prefix.length()) : path;
+    }
+
+    /**
+     * Rimuove le virgolette C-style che git usa per i path con caratteri speciali.
+     */
+    private static String unquote(String value) {
+        if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return value;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 1; i < value.length() - 1; i++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                bytes.writeBytes(String.valueOf(c).getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            char next = value.charAt(++i);
+            switch (next) {
+                case 'n' -> bytes.write('\n');
+                case 't' -> bytes.write('\t');
+                case '"', '\\' -> bytes.write(next);
+                default -> {
+                    // Ottale a tre cifre (byte UTF-8)
+                    bytes.write(Integer.parseInt(value.substring(i, i + 3), 8));
+                    i += 2;
+                }
+            }
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    // --- Processi ---
+
+    private byte[] runOnce(String... args) {
+        List<String> command = new ArrayList<>(List.of("git", "-C", repoDir.getPath()));
+        command.addAll(List.of(args));
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            byte[] output = process.getInputStream().readAllBytes();
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new GitClientException("git " + args[0] + " terminato con codice " + exitCode);
+            }
+            return output;
+        } catch (IOException e) {
+            throw new GitClientException("Impossibile eseguire git " + args[0], e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitClientException("Esecuzione di git " + args[0] + " interrotta", e);
+        }
+    }
+
+    /**
+     * Processo git di lunga durata con protocollo a righe su stdin/stdout.
+     */
+    private static final class GitProcess {
+        private final String name;
+        private final Process process;
+        private final OutputStream stdin;
+        private final InputStream stdout;
+
+        GitProcess(File repoDir, String... args) {
+            List<String> command = new ArrayList<>(List.of("git", "-C", repoDir.getPath()));
+            command.addAll(List.of(args));
+            this.name = String.join(" ", args);
+            try {
+                // stderr scartato: se si riempisse la pipe il processo si bloccherebbe
+                this.process = new ProcessBuilder(command)
+                        .redirectError(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+            } catch (IOException e) {
+                throw new GitClientException("Impossibile avviare git " + name, e);
+            }
+            this.stdin = process.getOutputStream();
+            this.stdout = new BufferedInputStream(process.getInputStream(), 1 << 16);
+        }
+
+        void writeLine(String line) throws IOException {
+            stdin.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+        }
+
+        /**
+         * Riga senza LF finale (UTF-8), null a fine stream.
+         */
+        String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int b;
+            while ((b = stdout.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            if (b == -1 && line.size() == 0) return null;
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        byte[] readBytes(int count) throws IOException {
+            byte[] data = stdout.readNBytes(count);
+            if (data.length != count) {
+                throw new IOException("Risposta troncata da git " + name);
+            }
+            return data;
+        }
+
+        void close() {
+            try {
+                stdin.close();
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            } catch (IOException e) {
+                process.destroy();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+            }
+        }
+    }
+}
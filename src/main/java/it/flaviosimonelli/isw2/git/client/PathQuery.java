@@ -0,0 +1,115 @@
+package it.flaviosimonelli.isw2.git.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro sui path dei file, passato a {@link IGitClient} per restringere diff e visite degli alberi.
+ * <p>
+ * Un path è selezionato se termina con uno dei suffissi inclusi (nessun suffisso = tutti i file)
+ * e non contiene nessuna delle sottostringhe escluse (es. il marker dei test).
+ * {@link JGitClient} lo compila in {@code TreeFilter} di JGit: i file scartati non vengono né diffati
+ * né letti, e le directory escluse non vengono nemmeno visitate.
+ * </p>
+ * Immutabile: i metodi {@code with...} restituiscono una nuova query.
+ */
+public final class PathQuery {
+
+    // Marker di default dei test, lo stesso di git.test.path.marker
+    public static final String DEFAULT_TEST_MARKER = "/test/";
+
+    private static final PathQuery ALL = new PathQuery(List.of(), List.of());
+
+    private final List<String> includedSuffixes;
+    private final List<String> excludedSubstrings;
+
+    private PathQuery(List<String> includedSuffixes, List<String> excludedSubstrings) {
+        this.includedSuffixes = List.copyOf(includedSuffixes);
+        this.excludedSubstrings = List.copyOf(excludedSubstrings);
+    }
+
+    /**
+     * Nessun filtro: tutti i file.
+     */
+    public static PathQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Sorgenti Java di produzione: suffisso {@code .java}, esclusi i path che contengono il marker dei test.
+     */
+    public static PathQuery javaSources(String testPathMarker) {
+        PathQuery query = all().withSuffix(".java");
+        return (testPathMarker == null || testPathMarker.isEmpty()) ? query : query.excluding(testPathMarker);
+    }
+
+    public PathQuery withSuffix(String suffix) {
+        List<String> suffixes = new ArrayList<>(includedSuffixes);
+        suffixes.add(suffix);
+        return new PathQuery(suffixes, excludedSubstrings);
+    }
+
+    public PathQuery excluding(String substring) {
+        List<String> excluded = new ArrayList<>(excludedSubstrings);
+        excluded.add(substring);
+        return new PathQuery(includedSuffixes, excluded);
+    }
+
+    public List<String> includedSuffixes() {
+        return includedSuffixes;
+    }
+
+    public List<String> excludedSubstrings() {
+        return excludedSubstrings;
+    }
+
+    public boolean isUnfiltered() {
+        return includedSuffixes.isEmpty() && excludedSubstrings.isEmpty();
+    }
+
+    /**
+     * True se il file con il path indicato è selezionato dalla query.
+     */
+    public boolean matches(String path) {
+        return hasIncludedSuffix(path) && !isExcluded(path);
+    }
+
+    /**
+     * True se il path contiene una delle sottostringhe escluse.
+     */
+    public boolean isExcluded(String path) {
+        for (String excluded : excludedSubstrings) {
+            if (path.contains(excluded)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True se tutto il contenuto della directory è escluso: ogni discendente ha il path
+     * {@code directory + "/" + ...}, quindi se già quel prefisso contiene una sottostringa esclusa
+     * la directory può essere saltata senza visitarla.
+     */
+    public boolean excludesDirectory(String directoryPath) {
+        return isExcluded(directoryPath + "/");
+    }
+
+    private boolean hasIncludedSuffix(String path) {
+        if (includedSuffixes.isEmpty()) return true;
+        for (String suffix : includedSuffixes) {
+            if (path.endsWith(suffix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Rappresentazione stabile della query, per le fingerprint dei risultati persistiti.
+     */
+    public String fingerprint() {
+        return "suffix=" + String.join(",", includedSuffixes) + ";exclude=" + String.join(",", excludedSubstrings);
+    }
+
+    @Override
+    public String toString() {
+        return "PathQuery[" + fingerprint() + "]";
+    }
+}
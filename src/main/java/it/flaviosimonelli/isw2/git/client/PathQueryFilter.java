@@ -0,0 +1,80 @@
+package it.flaviosimonelli.isw2.git.client;
+
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.OrTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compila una {@link PathQuery} nei {@link TreeFilter} di JGit, per TreeWalk e DiffFormatter.
+ * <p>
+ * Suffissi inclusi -> {@link PathSuffixFilter} (in OR); sottostringhe escluse -> filtro dedicato
+ * che scarta i file e pota le directory il cui contenuto è interamente escluso.
+ * </p>
+ */
+final class PathQueryFilter {
+
+    private PathQueryFilter() {}
+
+    static TreeFilter compile(PathQuery query) {
+        List<TreeFilter> filters = new ArrayList<>();
+
+        List<TreeFilter> suffixes = new ArrayList<>();
+        for (String suffix : query.includedSuffixes()) {
+            suffixes.add(PathSuffixFilter.create(suffix));
+        }
+        if (suffixes.size() == 1) {
+            filters.add(suffixes.getFirst());
+        } else if (suffixes.size() > 1) {
+            filters.add(OrTreeFilter.create(suffixes));
+        }
+
+        if (!query.excludedSubstrings().isEmpty()) {
+            filters.add(new ExcludedSubstringsFilter(query));
+        }
+
+        return switch (filters.size()) {
+            case 0 -> TreeFilter.ALL;
+            case 1 -> filters.getFirst();
+            default -> AndTreeFilter.create(filters);
+        };
+    }
+
+    /**
+     * Scarta i path che contengono una sottostringa esclusa; sulle directory decide con
+     * {@link PathQuery#excludesDirectory(String)}, così i sottoalberi esclusi non vengono aperti.
+     */
+    private static final class ExcludedSubstringsFilter extends TreeFilter {
+        private final PathQuery query;
+
+        ExcludedSubstringsFilter(PathQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public boolean include(TreeWalk walker) {
+            String path = walker.getPathString();
+            return walker.isSubtree() ? !query.excludesDirectory(path) : !query.isExcluded(path);
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            // Le sottostringhe possono comparire a qualunque profondità
+            return true;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this; // Senza stato mutabile
+        }
+
+        @Override
+        public String toString() {
+            return "EXCLUDE(" + String.join(",", query.excludedSubstrings()) + ")";
+        }
+    }
+}
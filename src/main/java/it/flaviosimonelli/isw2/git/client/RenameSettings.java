@@ -0,0 +1,35 @@
+package it.flaviosimonelli.isw2.git.client;
+
+import it.flaviosimonelli.isw2.util.AppConfig;
+
+/**
+ * Parametri della rename detection, condivisi dai client e dai fingerprint dei dati derivati dai diff.
+ *
+ * @param limit    oltre questo numero di file aggiunti o cancellati si cercano solo le rinomine esatte (0 = nessun limite)
+ * @param score    soglia di similarità (0-100) per considerare due file una rinomina
+ * @param budgetMb dimensione massima (MB) dei blob che la ricerca per similarità dovrebbe indicizzare,
+ *                 oltre la quale si cercano solo le rinomine esatte (0 = illimitato). Usato solo da {@link JGitClient}.
+ */
+public record RenameSettings(int limit, int score, int budgetMb) {
+
+    /**
+     * Legge {@code git.renames.limit}, {@code git.renames.score} e {@code git.renames.budget.mb}.
+     */
+    public static RenameSettings fromConfig() {
+        return new RenameSettings(
+                Math.max(0, AppConfig.getInt("git.renames.limit", 400)),
+                Math.min(100, Math.max(0, AppConfig.getInt("git.renames.score", 60))),
+                Math.max(0, AppConfig.getInt("git.renames.budget.mb", 64)));
+    }
+
+    public long budgetBytes() {
+        return budgetMb * (1L << 20);
+    }
+
+    /**
+     * Rappresentazione stabile dei parametri, per le fingerprint dei risultati persistiti.
+     */
+    public String fingerprint() {
+        return "renames=limit:" + limit + ",score:" + score + ",budgetMb:" + budgetMb;
+    }
+}
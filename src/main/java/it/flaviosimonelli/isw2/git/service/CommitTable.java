@@ -0,0 +1,155 @@
+package it.flaviosimonelli.isw2.git.service;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tabella colonnare dei commit, ordinata dal più recente al più vecchio (come {@link GitService#getAllCommits()}).
+ * <p>
+ * Accanto ai riferimenti ai commit tiene array primitivi paralleli: istante del commit in secondi
+ * e id dell'autore (nomi internati in un dizionario). Le query temporali diventano ricerche binarie
+ * sull'array dei tempi e restituiscono viste sulla tabella, senza copiare liste.
+ * </p>
+ * <p>
+ * I tempi sono i {@code LocalDateTime} dei commit letti come UTC: la conversione preserva l'ordine
+ * delle date, quindi le query danno gli stessi risultati dei confronti con isBefore/isAfter.
+ * </p>
+ * Immutabile dopo la costruzione.
+ */
+public final class CommitTable {
+
+    private final List<GitCommit> commits;
+    private final long[] epochSeconds;   // non crescente
+    private final int[] authorIds;
+    private final List<String> authorNames = new ArrayList<>();
+    private final Map<String, Integer> authorIdsByName = new HashMap<>();
+
+    /**
+     * @param newestFirst commit già ordinati per data decrescente.
+     */
+    public CommitTable(List<GitCommit> newestFirst) {
+        int n = newestFirst.size();
+        this.commits = Collections.unmodifiableList(new ArrayList<>(newestFirst));
+        this.epochSeconds = new long[n];
+        this.authorIds = new int[n];
+
+        for (int row = 0; row < n; row++) {
+            GitCommit commit = newestFirst.get(row);
+            epochSeconds[row] = toEpochSecond(commit.getDate());
+            if (row > 0 && epochSeconds[row] > epochSeconds[row - 1]) {
+                throw new IllegalArgumentException("Commit non ordinati per data decrescente alla riga " + row);
+            }
+            authorIds[row] = internAuthor(commit.getAuthorName());
+        }
+    }
+
+    private int internAuthor(String name) {
+        return authorIdsByName.computeIfAbsent(name, n -> {
+            authorNames.add(n);
+            return authorNames.size() - 1;
+        });
+    }
+
+    public int size() {
+        return commits.size();
+    }
+
+    /**
+     * Tutti i commit, dal più recente al più vecchio (vista non modificabile).
+     */
+    public List<GitCommit> asList() {
+        return commits;
+    }
+
+    public int authorCount() {
+        return authorNames.size();
+    }
+
+    /**
+     * Commit più recente con data <= {@code limit}, oppure null se non esiste.
+     */
+    public GitCommit floor(LocalDateTime limit) {
+        int row = firstRowAtOrBefore(toEpochSecond(limit));
+        return row < commits.size() ? commits.get(row) : null;
+    }
+
+    /**
+     * Commit con {@code from <= data <= to}, dal più recente al più vecchio.
+     * @return vista non modificabile sulla tabella.
+     */
+    public List<GitCommit> range(LocalDateTime from, LocalDateTime to) {
+        int first = firstRowAtOrBefore(toEpochSecond(to));
+        int last = firstRowBefore(ceilEpochSecond(from));
+        if (first >= last) return Collections.emptyList();
+        return commits.subList(first, last);
+    }
+
+    /**
+     * Come {@link #range(LocalDateTime, LocalDateTime)}, tenendo solo i commit di uno degli autori indicati.
+     * Il filtro lavora sugli id internati: nessun confronto tra stringhe per riga.
+     */
+    public List<GitCommit> rangeByAuthors(LocalDateTime from, LocalDateTime to, Set<String> authors) {
+        BitSet wanted = new BitSet(authorNames.size());
+        for (String author : authors) {
+            Integer id = authorIdsByName.get(author);
+            if (id != null) wanted.set(id);
+        }
+        if (wanted.isEmpty()) return Collections.emptyList();
+
+        int first = firstRowAtOrBefore(toEpochSecond(to));
+        int last = firstRowBefore(ceilEpochSecond(from));
+        List<GitCommit> result = new ArrayList<>();
+        for (int row = first; row < last; row++) {
+            if (wanted.get(authorIds[row])) {
+                result.add(commits.get(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prima riga con tempo <= t (size() se nessuna).
+     */
+    private int firstRowAtOrBefore(long t) {
+        int lo = 0;
+        int hi = epochSeconds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochSeconds[mid] > t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Prima riga con tempo < t (size() se nessuna).
+     */
+    private int firstRowBefore(long t) {
+        int lo = 0;
+        int hi = epochSeconds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochSeconds[mid] >= t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // I commit hanno precisione al secondo: un limite inferiore con frazioni esclude il secondo stesso
+    private static long ceilEpochSecond(LocalDateTime dateTime) {
+        return toEpochSecond(dateTime) + (dateTime.getNano() > 0 ? 1 : 0);
+    }
+}
@@ -1,43 +1,105 @@
 package it.flaviosimonelli.isw2.git.service;
 
+import it.flaviosimonelli.isw2.git.client.GitClientFactory;
 import it.flaviosimonelli.isw2.git.client.IGitClient;
+import it.flaviosimonelli.isw2.git.client.PathQuery;
+import it.flaviosimonelli.isw2.git.client.RenameSettings;
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.git.bean.GitDiffEntry;
 import it.flaviosimonelli.isw2.jira.bean.JiraTicket;
+import it.flaviosimonelli.isw2.store.AnalysisStore;
+import it.flaviosimonelli.isw2.store.StoreCodec;
+import it.flaviosimonelli.isw2.store.StoreSection;
 import it.flaviosimonelli.isw2.util.AppConfig;
 import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GitService {
     private static final Logger logger = LoggerFactory.getLogger(GitService.class);
+    // Versione del formato/configurazione dei diff persistiti (rename detection attiva, comparator DEFAULT,
+    // solo i file selezionati dalla query dei sorgenti)
+    private static final String EDITS_FINGERPRINT_PREFIX = "edits-v2|renames=true|comparator=DEFAULT|paths=";
+    // Versione dell'indice commit -> file Java toccati (rename detection attiva, filtro test; v2: filtro sui path
+    // applicato prima della rename detection)
+    private static final String TOUCHED_PATHS_FINGERPRINT_PREFIX = "touched-v2|renames=true|testMarker=";
     private final String testPathMarker;
+    // Sorgenti Java non di test: filtro spinto dentro diff e visite degli alberi del client
+    private final PathQuery sourceQuery;
 
     private final IGitClient gitClient;
 
-    // Cache locale per non ricaricare la lista commit 1000 volte
-    private List<GitCommit> allCommitsCache;
+    // Cache locale per non ricaricare la lista commit 1000 volte (tabella colonnare ordinata per data)
+    private CommitTable commitTable;
+    // Chiave ticket -> commit che la citano (costruito insieme a commitTable)
+    private TicketKeyIndex ticketIndex;
+
+    // Edit list persistite tra run diversi (null = nessuno store collegato)
+    private StoreSection editsStore;
+
+    // Indice commit -> file Java toccati: in memoria per il run, persistito nello store se collegato
+    private final Map<String, Set<String>> touchedPathsCache = new ConcurrentHashMap<>();
+    private StoreSection touchedPathsStore;
 
     public GitService(IGitClient gitClient) {
         this.gitClient = gitClient;
-        this.testPathMarker = AppConfig.getProperty("git.test.path.marker", "/test/");
+        this.testPathMarker = AppConfig.getProperty("git.test.path.marker", PathQuery.DEFAULT_TEST_MARKER);
+        this.sourceQuery = PathQuery.javaSources(testPathMarker);
+    }
+
+    /**
+     * Collega lo store persistente: le edit list per commit calcolate in run precedenti vengono riusate.
+     */
+    public void setAnalysisStore(AnalysisStore store) {
+        this.editsStore = store.section(AnalysisStore.COMMIT_EDITS,
+                EDITS_FINGERPRINT_PREFIX + sourceQuery.fingerprint() + "|" + diffFingerprint());
+        this.touchedPathsStore = store.section(AnalysisStore.TOUCHED_PATHS,
+                TOUCHED_PATHS_FINGERPRINT_PREFIX + testPathMarker + "|" + diffFingerprint());
+    }
+
+    /**
+     * Marker dei path di test ({@code git.test.path.marker}), lo stesso usato per filtrare diff e snapshot.
+     */
+    public String getTestPathMarker() {
+        return testPathMarker;
+    }
+
+    /**
+     * Configurazione da cui dipendono diff e rinomine (client, limite, soglia e budget della rename detection):
+     * entra nei fingerprint di tutti i dati persistiti derivati dai diff.
+     */
+    public String diffFingerprint() {
+        return "client=" + GitClientFactory.configuredType() + "|" + RenameSettings.fromConfig().fingerprint();
     }
 
     /**
      * Recupera tutti i commit (lazy loading con cache).
      */
     public List<GitCommit> getAllCommits() {
-        if (allCommitsCache == null) {
-            allCommitsCache = gitClient.getAllCommits();
+        return getCommitTable().asList();
+    }
+
+    // synchronized: SZZ interroga il servizio da più thread
+    private synchronized CommitTable getCommitTable() {
+        if (commitTable == null) {
+            List<GitCommit> commits = gitClient.getAllCommits();
             // Il Controller si aspetta: Indice 0 = Più Recente, Indice N = Più Vecchio.
-            allCommitsCache.sort(Comparator.comparing(GitCommit::getDate).reversed());
+            commits.sort(Comparator.comparing(GitCommit::getDate).reversed());
+
+            // Una sola passata sui messaggi: chiave ticket -> commit
+            ticketIndex = new TicketKeyIndex(commits);
+            commitTable = new CommitTable(commits);
+            logger.info("Indicizzati {} commit: {} chiavi ticket distinte nei messaggi, {} autori.",
+                    commitTable.size(), ticketIndex.size(), commitTable.authorCount());
         }
-        return allCommitsCache;
+        return commitTable;
     }
 
     /**
@@ -51,19 +113,11 @@ public class GitService {
             return null;
         }
 
-        List<GitCommit> commits = getAllCommits();
-
         // Impostiamo la deadline alla fine della giornata indicata
         LocalDateTime deadline = date.atTime(23, 59, 59);
 
-        // Poiché la lista va dal PIÙ RECENTE al PIÙ VECCHIO:
-        // Il primo che incontriamo che è <= deadline è quello che cerchiamo (lo Snapshot).
-        for (GitCommit commit : commits) {
-            if (!commit.getDate().isAfter(deadline)) {
-                return commit; // Trovato! È il più recente entro la data.
-            }
-        }
-        return null;
+        // Il più recente con data <= deadline è lo Snapshot (ricerca binaria sulla tabella)
+        return getCommitTable().floor(deadline);
     }
 
     /**
@@ -71,16 +125,13 @@ public class GitService {
      * Ovvero: (Data Release Precedente) < Commit Date <= (Data Release Corrente)
      * @param startDate Data di rilascio della precedente release (o null se vogliamo l'intera storia).
      * @param endDate Data fine (inclusa).
-     * @return List<GitCommit> lista dei commit dal più recente al meno recedente
+     * @return List<GitCommit> lista dei commit dal più recente al meno recedente (vista non modificabile)
      */
     public List<GitCommit> getCommitsBetweenDates(LocalDate startDate, LocalDate endDate) {
         if (endDate == null) {
             return Collections.emptyList();
         }
 
-        List<GitCommit> commits = getAllCommits();
-        List<GitCommit> filteredCommits = new ArrayList<>();
-
         LocalDateTime startLimit;
         if (startDate == null) {
             // Se è la prima release in assoluto, prendiamo tutto dall'inizio dei tempi
@@ -92,36 +143,23 @@ public class GitService {
 
         LocalDateTime endLimit = endDate.atTime(23, 59, 59);
 
-        for (GitCommit c : commits) {
-            // Logica: startLimit < commitDate <= endLimit
-            if (!c.getDate().isBefore(startLimit) && !c.getDate().isAfter(endLimit)) {
-                filteredCommits.add(c);
-            }
-        }
-        return filteredCommits; // Mantiene ordine Newest -> Oldest
+        // Logica: startLimit <= commitDate <= endLimit
+        return getCommitTable().range(startLimit, endLimit); // Mantiene ordine Newest -> Oldest
     }
 
     /**
      * Identifica i commit che hanno risolto un ticket specifico (Linking Jira-Git).
-     * Cerca la KEY del ticket nel messaggio di commit.
+     * Cerca la KEY del ticket nel messaggio di commit, tramite l'indice costruito al caricamento dei commit.
      */
     public List<GitCommit> findFixCommits(JiraTicket ticket) {
-        List<GitCommit> matches = new ArrayList<>();
         String ticketKey = ticket.getKey(); // es. BOOKKEEPER-1105
+        getAllCommits(); // garantisce che l'indice sia costruito
 
-        // Costruiamo la regex una volta sola per efficienza
-        // \b garantisce che BOOKKEEPER-1 non matchi BOOKKEEPER-12
-        String regex = ".*\\b" + Pattern.quote(ticketKey) + "\\b.*";
-        Pattern pattern = Pattern.compile(regex, Pattern.DOTALL);
-
-        for (GitCommit c : getAllCommits()) {
-            // 1. Nessun filtro data (come nel riferimento)
-            // 2. Uso della Regex (come nel riferimento)
-            // 3. Controllo su tutto il messaggio (meglio del riferimento, ma sicuro)
-            if (pattern.matcher(c.getMessage()).matches()) {
-                matches.add(c);
-            }
+        // Stessa semantica della regex \bKEY\b: BOOKKEEPER-1 non matcha BOOKKEEPER-12
+        if (!TicketKeyIndex.isIndexable(ticketKey)) {
+            logger.debug("Chiave ticket {} non nel formato PROGETTO-NUMERO: ricerca con regex su tutti i messaggi.", ticketKey);
         }
+        List<GitCommit> matches = new ArrayList<>(ticketIndex.get(ticketKey));
 
         // Ordiniamo per data per pulizia, ma li ritorniamo TUTTI
         matches.sort(Comparator.comparing(GitCommit::getDate));
@@ -162,22 +200,84 @@ public class GitService {
                 .toList();
     }
 
+    /**
+     * Contenuto dei sorgenti Java dello snapshot (esclusi i test secondo {@code git.test.path.marker}).
+     */
     public Map<String, String> getJavaFilesContent(GitCommit commit) {
-        return gitClient.getJavaFilesContent(commit.getHash());
+        return gitClient.getFilesContent(commit.getHash(), sourceQuery);
+    }
+
+    /**
+     * Recupera path -> blob id dei file Java dello snapshot (senza leggerne il contenuto),
+     * esclusi i test secondo {@code git.test.path.marker}.
+     */
+    public Map<String, ObjectId> getJavaFilesBlobIds(GitCommit commit) {
+        return gitClient.getBlobIds(commit.getHash(), sourceQuery);
+    }
+
+    public String getBlobContent(ObjectId blobId) {
+        return gitClient.getBlobContent(blobId);
     }
 
     /**
-     * Recupera le modifiche riga per riga (Edit List) delegando al client.
+     * Contenuto (UTF-8) di più blob con una sola lettura bulk in ordine di pack.
+     * I blob inesistenti sono assenti dalla mappa.
+     */
+    public Map<ObjectId, String> getBlobContents(Collection<ObjectId> blobIds) {
+        Map<ObjectId, String> contents = new HashMap<>();
+        gitClient.readBlobs(blobIds).forEach((id, bytes) -> contents.put(id, new String(bytes, StandardCharsets.UTF_8)));
+        return contents;
+    }
+
+    /**
+     * Recupera le modifiche riga per riga (Edit List) dei soli sorgenti Java non di test:
+     * il filtro viene applicato dal client, gli altri file non vengono nemmeno diffati.
      */
     public Map<String, List<Edit>> getDiffsWithEdits(GitCommit commit) {
-        // Delega semplice: passa l'hash al client
-        return gitClient.getDiffsWithEdits(commit.getHash());
+        if (editsStore == null) {
+            // Delega semplice: passa l'hash al client
+            return gitClient.getDiffsWithEdits(commit.getHash(), sourceQuery);
+        }
+
+        // Un commit è immutabile: se il diff è già stato calcolato in un run precedente lo riusiamo
+        String payload = editsStore.get(commit.getHash());
+        if (payload != null) {
+            try {
+                return StoreCodec.decodeEdits(payload);
+            } catch (IllegalArgumentException e) {
+                logger.debug("Entry edit non valida per {}: {}", commit.getHash(), e.getMessage());
+            }
+        }
+
+        Map<String, List<Edit>> diffs = gitClient.getDiffsWithEdits(commit.getHash(), sourceQuery);
+        // Rinomine ridotte a quelle esatte per budget: risultato di ripiego, non lo persistiamo
+        if (!gitClient.isRenameBudgetExceeded(commit.getHash(), sourceQuery)) {
+            editsStore.put(commit.getHash(), StoreCodec.encodeEdits(diffs));
+        }
+        return diffs;
     }
 
     public String getRawFileContent(GitCommit commit, String path) {
         return gitClient.getFileContent(commit.getHash(), path);
     }
 
+    /**
+     * Come {@link #getRawFileContent(GitCommit, String)} per più file dello stesso commit:
+     * una visita dell'albero e una lettura bulk. I path assenti nel commit non compaiono nella mappa.
+     */
+    public Map<String, String> getRawFileContents(GitCommit commit, Collection<String> paths) {
+        Map<String, String> contents = new HashMap<>();
+        gitClient.readFiles(commit.getHash(), paths).forEach((path, bytes) -> contents.put(path, new String(bytes, StandardCharsets.UTF_8)));
+        return contents;
+    }
+
+
+    /**
+     * Logga le statistiche del client Git sottostante.
+     */
+    public void logStats() {
+        gitClient.logStats();
+    }
 
     /**
      * --- NUOVO PER SZZ ---
@@ -187,28 +287,61 @@ public class GitService {
     public List<GitCommit> findCommitsInDateRange(LocalDateTime start, LocalDateTime end) {
         if (start == null || end == null) return Collections.emptyList();
 
-        // Nota: getAllCommits è già ordinata per data decrescente.
-        // Possiamo ottimizzare uscendo dal loop quando superiamo la start date,
-        // ma per ora il filtro semplice va bene.
-        return getAllCommits().stream()
-                .filter(c -> !c.getDate().isBefore(start) && !c.getDate().isAfter(end))
-                .toList();
+        // La tabella è ordinata per data decrescente: l'intervallo è una fetta contigua
+        return getCommitTable().range(start, end);
+    }
+
+    /**
+     * Come {@link #findCommitsInDateRange}, ma solo commit di uno degli autori indicati
+     * (filtro sugli id autore internati della tabella).
+     */
+    public List<GitCommit> findCommitsInDateRangeByAuthors(LocalDateTime start, LocalDateTime end, Set<String> authors) {
+        if (start == null || end == null) return Collections.emptyList();
+        return getCommitTable().rangeByAuthors(start, end, authors);
     }
 
     /**
      * --- NUOVO PER SZZ ---
      * Restituisce un Set di path dei file Java toccati.
      * Serve per fare l'intersezione veloce: SetA.retainAll(SetB).
+     * <p>
+     * Un commit è immutabile: il diff viene calcolato una sola volta e riusato (in memoria e,
+     * se lo store è collegato, nei run successivi). I nuovi commit si aggiungono all'indice al primo uso.
+     * </p>
+     * @return insieme non modificabile dei path.
      */
     public Set<String> getTouchedJavaFilePaths(GitCommit commit) {
-        List<GitDiffEntry> diffs = gitClient.getDiffEntries(commit.getHash());
+        String hash = commit.getHash();
+        Set<String> cached = touchedPathsCache.get(hash);
+        if (cached != null) return cached;
+
+        Set<String> touched = loadTouchedPaths(hash);
+        if (touched == null) {
+            touched = Collections.unmodifiableSet(computeTouchedJavaFilePaths(commit));
+            if (touchedPathsStore != null && !gitClient.isRenameBudgetExceeded(hash, sourceQuery)) {
+                touchedPathsStore.put(hash, StoreCodec.encodePaths(touched));
+            }
+        }
+        touchedPathsCache.put(hash, touched);
+        return touched;
+    }
+
+    private Set<String> loadTouchedPaths(String hash) {
+        if (touchedPathsStore == null) return null;
+        String payload = touchedPathsStore.get(hash);
+        return (payload != null) ? Collections.unmodifiableSet(StoreCodec.decodePaths(payload)) : null;
+    }
+
+    private Set<String> computeTouchedJavaFilePaths(GitCommit commit) {
+        // Solo i sorgenti Java non di test entrano nel diff (e nella rename detection)
+        List<GitDiffEntry> diffs = gitClient.getDiffEntries(commit.getHash(), sourceQuery);
         Set<String> touchedFiles = new HashSet<>();
 
         for (GitDiffEntry entry : diffs) {
             String path = entry.getNewPath().equals("/dev/null") ? entry.getOldPath() : entry.getNewPath();
 
-            // Filtriamo solo i file Java (e opzionalmente rimuoviamo i test)
-            if (path.endsWith(".java") && !path.contains(this.testPathMarker)) {
+            // Il client applica già la query: controllo difensivo, a costo nullo
+            if (sourceQuery.matches(path)) {
                 touchedFiles.add(path);
             }
         }
@@ -0,0 +1,128 @@
+package it.flaviosimonelli.isw2.git.service;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Indice invertito chiave ticket -> commit che la citano nel messaggio.
+ * <p>
+ * Costruito con una sola passata sui messaggi: invece di una regex per ticket su tutta la storia,
+ * ogni lookup costa O(1). Le chiavi estratte sono tutte le sequenze {@code PAROLA-CIFRE} delimitate
+ * da confini di parola, cioè esattamente le occorrenze che {@code \bKEY\b} riconoscerebbe
+ * per una chiave Jira (prefisso alfanumerico, trattino, numero).
+ * </p>
+ * <p>
+ * Le chiavi fuori da questo formato (es. {@code KEY-12-34}) non vengono estratte: per quelle
+ * {@link #get(String)} ripiega sulla regex originale applicata a tutti i messaggi.
+ * </p>
+ */
+final class TicketKeyIndex {
+
+    private final List<GitCommit> allCommits;
+    private final Map<String, List<GitCommit>> commitsByKey = new HashMap<>();
+
+    /**
+     * @param commits commit da indicizzare; ogni lista dell'indice ne conserva l'ordine.
+     */
+    TicketKeyIndex(List<GitCommit> commits) {
+        this.allCommits = commits;
+        for (GitCommit commit : commits) {
+            String message = commit.getMessage();
+            if (message != null) {
+                indexMessage(commit, message);
+            }
+        }
+    }
+
+    /**
+     * Commit che citano la chiave (lista vuota se nessuno), nell'ordine di indicizzazione.
+     * Stessa semantica di {@code .*\bKEY\b.*} (DOTALL) sul messaggio.
+     */
+    List<GitCommit> get(String ticketKey) {
+        if (!isIndexable(ticketKey)) {
+            return scanWithRegex(ticketKey);
+        }
+        return commitsByKey.getOrDefault(ticketKey, Collections.emptyList());
+    }
+
+    int size() {
+        return commitsByKey.size();
+    }
+
+    /**
+     * True se la chiave ha la forma {@code PAROLA-CIFRE} che l'indice è in grado di riconoscere.
+     */
+    static boolean isIndexable(String ticketKey) {
+        int dash = ticketKey.lastIndexOf('-');
+        if (dash <= 0 || dash == ticketKey.length() - 1) return false;
+        for (int i = 0; i < dash; i++) {
+            if (!isWordChar(ticketKey.charAt(i))) return false;
+        }
+        for (int i = dash + 1; i < ticketKey.length(); i++) {
+            if (!isDigit(ticketKey.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private void indexMessage(GitCommit commit, String message) {
+        int length = message.length();
+        int i = 0;
+        while (i < length) {
+            if (!isWordChar(message.charAt(i))) {
+                i++;
+                continue;
+            }
+            // Parola massimale: il confine sinistro è garantito dal carattere precedente
+            int wordStart = i;
+            while (i < length && isWordChar(message.charAt(i))) i++;
+
+            // Serve "-" seguito da una parola massimale fatta solo di cifre
+            if (i + 1 < length && message.charAt(i) == '-' && isWordChar(message.charAt(i + 1))) {
+                int numberStart = i + 1;
+                int j = numberStart;
+                while (j < length && isDigit(message.charAt(j))) j++;
+                if (j == length || !isWordChar(message.charAt(j))) {
+                    add(message.substring(wordStart, j), commit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Percorso di riferimento: una regex per chiave su tutta la storia.
+     */
+    private List<GitCommit> scanWithRegex(String ticketKey) {
+        Pattern pattern = Pattern.compile(".*\\b" + Pattern.quote(ticketKey) + "\\b.*", Pattern.DOTALL);
+        List<GitCommit> matches = new ArrayList<>();
+        for (GitCommit commit : allCommits) {
+            String message = commit.getMessage();
+            if (message != null && pattern.matcher(message).matches()) {
+                matches.add(commit);
+            }
+        }
+        return matches;
+    }
+
+    private void add(String key, GitCommit commit) {
+        List<GitCommit> commits = commitsByKey.computeIfAbsent(key, k -> new ArrayList<>(2));
+        // Un messaggio che cita più volte lo stesso ticket conta una volta sola
+        if (commits.isEmpty() || commits.get(commits.size() - 1) != commit) {
+            commits.add(commit);
+        }
+    }
+
+    // Stessa classe di caratteri di \w (e quindi di \b) nelle regex Java
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
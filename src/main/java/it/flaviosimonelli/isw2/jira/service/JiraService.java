@@ -39,6 +39,13 @@ public class JiraService {
                 .toList();
     }
 
+    /**
+     * Come {@link #getReleases(String)}, ma indicizzate per nome, identità e data.
+     */
+    public ReleaseTimeline getReleaseTimeline(String projectKey) {
+        return new ReleaseTimeline(getReleases(projectKey));
+    }
+
     private JiraRelease mapToJiraRelease(JSONObject json) {
         String name = json.optString("name");
         String id = json.optString("id");
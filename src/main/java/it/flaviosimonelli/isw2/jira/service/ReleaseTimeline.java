@@ -0,0 +1,99 @@
+package it.flaviosimonelli.isw2.jira.service;
+
+import it.flaviosimonelli.isw2.jira.bean.JiraRelease;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Linea temporale delle release di un progetto, costruita una volta da {@link JiraService#getReleases(String)}.
+ * <p>
+ * Le release sono in ordine cronologico (indice 0 = la più vecchia). Le risoluzioni che SZZ,
+ * Proportion e Snoring fanno per ogni ticket diventano lookup in tempo costante o logaritmico:
+ * nome (case-insensitive) tramite hash map, indice tramite mappa per identità,
+ * data tramite ricerca binaria su un array di epoch-day.
+ * </p>
+ * Immutabile dopo la costruzione.
+ */
+public final class ReleaseTimeline {
+
+    private final List<JiraRelease> releases;
+    private final long[] epochDays;   // non decrescente
+    private final Map<String, JiraRelease> byName = new HashMap<>();
+    private final Map<JiraRelease, Integer> indexByRelease = new IdentityHashMap<>();
+
+    /**
+     * @param releases release ordinate per data crescente (come restituite da JiraService).
+     */
+    public ReleaseTimeline(List<JiraRelease> releases) {
+        this.releases = List.copyOf(releases);
+        this.epochDays = new long[this.releases.size()];
+
+        for (int i = 0; i < this.releases.size(); i++) {
+            JiraRelease release = this.releases.get(i);
+            epochDays[i] = release.getReleaseDate().toEpochDay();
+            if (i > 0 && epochDays[i] < epochDays[i - 1]) {
+                throw new IllegalArgumentException("Release non ordinate per data: " + release.getName());
+            }
+            // A parità di nome (ignorando il case) vince la prima, come nella ricerca lineare
+            byName.putIfAbsent(normalize(release.getName()), release);
+            indexByRelease.put(release, i);
+        }
+    }
+
+    /**
+     * Tutte le release in ordine cronologico (lista non modificabile).
+     */
+    public List<JiraRelease> asList() {
+        return releases;
+    }
+
+    public int size() {
+        return releases.size();
+    }
+
+    public JiraRelease get(int index) {
+        return releases.get(index);
+    }
+
+    /**
+     * Posizione della release nella timeline (confronto per identità), -1 se assente o null.
+     */
+    public int indexOf(JiraRelease release) {
+        if (release == null) return -1;
+        Integer index = indexByRelease.get(release);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Release con il nome indicato, ignorando maiuscole/minuscole; null se non esiste.
+     */
+    public JiraRelease getByName(String name) {
+        if (name == null) return null;
+        return byName.get(normalize(name));
+    }
+
+    /**
+     * Prima release con data di rilascio >= {@code date} (cioè la release che "contiene" la data); null se nessuna.
+     */
+    public JiraRelease getFirstOnOrAfter(LocalDate date) {
+        if (date == null) return null;
+        long day = date.toEpochDay();
+        int lo = 0;
+        int hi = epochDays.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDays[mid] < day) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo < releases.size() ? releases.get(lo) : null;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,166 @@
+package it.flaviosimonelli.isw2.metrics;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.*;
+import it.flaviosimonelli.isw2.metrics.impl.*;
+import it.flaviosimonelli.isw2.model.MethodStaticMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Motore di calcolo "fuso" della catena di metriche statiche.
+ * <p>
+ * Le metriche basate sulla visita dell'AST (complessità, nesting, variabili locali)
+ * vengono sostituite dalla loro versione {@link INodeMetric}: una sola visita per metodo
+ * alimenta tutte le callback, invece di una o più {@code findAll} per ciascuna metrica.
+ * Le metriche che non visitano l'AST (LOC, parametri, PMD...) restano {@link IMetric}.
+ * </p>
+ * <p>
+ * Ordine e nomi delle colonne coincidono con la catena originale; le implementazioni {@link IMetric}
+ * restano il riferimento per verificare l'equivalenza dei valori ({@code metrics.engine=CHAIN}).
+ * </p>
+ * Non thread-safe: ogni {@link MetricsCalculator} ha il proprio motore.
+ */
+public class FusedMetricsEngine {
+    private static final Logger logger = LoggerFactory.getLogger(FusedMetricsEngine.class);
+
+    // Catena nell'ordine originale: per ogni posizione è valorizzato uno solo dei due
+    private final IMetric[] methodMetrics;
+    private final INodeMetric[] nodeMetrics;
+    private final MetricSchema schema;
+
+    // Dispatch per classe esatta del nodo -> metriche interessate
+    private final Map<Class<?>, INodeMetric[]> callbacks = new HashMap<>();
+    private final INodeMetric[] fusedMetrics;
+
+    // Stato della visita corrente
+    private int maxNestingDepth;
+
+    /**
+     * @param schema schema del calcolatore: l'ordinale di ogni metrica è la sua posizione nella catena.
+     */
+    public FusedMetricsEngine(List<IMetric> metricsChain, MetricSchema schema) {
+        this.schema = schema;
+        this.methodMetrics = new IMetric[metricsChain.size()];
+        this.nodeMetrics = new INodeMetric[metricsChain.size()];
+        List<INodeMetric> fused = new ArrayList<>();
+        Map<Class<?>, List<INodeMetric>> listeners = new HashMap<>();
+
+        for (int i = 0; i < metricsChain.size(); i++) {
+            IMetric metric = metricsChain.get(i);
+            INodeMetric nodeMetric = fusedCounterpart(metric);
+            if (nodeMetric == null) {
+                methodMetrics[i] = metric;
+                continue;
+            }
+            nodeMetrics[i] = nodeMetric;
+            fused.add(nodeMetric);
+            for (Class<? extends Node> type : nodeMetric.getNodeTypes()) {
+                listeners.computeIfAbsent(type, _ -> new ArrayList<>()).add(nodeMetric);
+            }
+        }
+        this.fusedMetrics = fused.toArray(new INodeMetric[0]);
+        listeners.forEach((type, list) -> callbacks.put(type, list.toArray(new INodeMetric[0])));
+        logger.debug("Motore metriche fuso: {} metriche su visita unica, {} per metodo.",
+                fusedMetrics.length, metricsChain.size() - fusedMetrics.length);
+    }
+
+    /**
+     * Versione a visita unica delle metriche che attraversano l'AST; null se la metrica non ne ha una.
+     */
+    private static INodeMetric fusedCounterpart(IMetric metric) {
+        return switch (metric) {
+            case LocalVariableCountMetric _ -> new LocalVariableCountNodeMetric();
+            case CyclomaticComplexityMetric _ -> new CyclomaticComplexityNodeMetric();
+            case CognitiveComplexityMetric _ -> new CognitiveComplexityNodeMetric();
+            case NestingDepthMetric _ -> new NestingDepthNodeMetric();
+            default -> null;
+        };
+    }
+
+    /**
+     * Calcola l'intera catena per un metodo con una sola visita dell'AST.
+     * Come nella catena originale, una metrica che fallisce vale 0 senza bloccare le altre.
+     */
+    public MethodStaticMetrics calculate(MethodDeclaration methodDecl, String fullSignature) {
+        boolean visited = visitMethod(methodDecl, fullSignature);
+
+        MethodStaticMetrics metrics = new MethodStaticMetrics(schema);
+        for (int i = 0; i < methodMetrics.length; i++) {
+            if (nodeMetrics[i] != null) {
+                metrics.set(i, visited ? nodeMetrics[i].getValue(maxNestingDepth) : 0.0);
+                continue;
+            }
+            IMetric metric = methodMetrics[i];
+            try {
+                metrics.set(i, metric.calculate(methodDecl));
+            } catch (Exception e) {
+                logger.warn("Errore calcolo metrica {} su metodo {}: {}",
+                        metric.getName(), fullSignature, e.getMessage());
+                metrics.set(i, 0.0);
+            }
+        }
+        return metrics;
+    }
+
+    private boolean visitMethod(MethodDeclaration methodDecl, String fullSignature) {
+        if (fusedMetrics.length == 0) return true;
+
+        for (INodeMetric metric : fusedMetrics) {
+            metric.reset();
+        }
+        maxNestingDepth = 0;
+        try {
+            visit(methodDecl, 0);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Errore nella visita AST del metodo {}: {}", fullSignature, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Visita in pre-ordine sugli stessi figli ({@link Node#getChildNodes()}) usati da {@code findAll},
+     * così i conteggi coincidono con quelli delle metriche di riferimento.
+     * @param depth numero di strutture di controllo che racchiudono il nodo.
+     */
+    private void visit(Node node, int depth) {
+        if (depth > maxNestingDepth) {
+            maxNestingDepth = depth;
+        }
+
+        INodeMetric[] listeners = callbacks.get(node.getClass());
+        if (listeners != null) {
+            for (INodeMetric listener : listeners) {
+                listener.onNode(node);
+            }
+        }
+
+        int childDepth = isControlStructure(node) ? depth + 1 : depth;
+        List<Node> children = node.getChildNodes();
+        for (int i = 0; i < children.size(); i++) {
+            visit(children.get(i), childDepth);
+        }
+    }
+
+    /**
+     * Stesse strutture considerate da {@link NestingDepthMetric} e {@link CognitiveComplexityMetric}.
+     */
+    private static boolean isControlStructure(Node node) {
+        return node instanceof IfStmt ||
+                node instanceof ForStmt ||
+                node instanceof ForEachStmt ||
+                node instanceof WhileStmt ||
+                node instanceof DoStmt ||
+                node instanceof SwitchStmt ||
+                node instanceof TryStmt ||
+                node instanceof CatchClause;
+    }
+}
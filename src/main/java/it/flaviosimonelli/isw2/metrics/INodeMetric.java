@@ -0,0 +1,38 @@
+package it.flaviosimonelli.isw2.metrics;
+
+import com.github.javaparser.ast.Node;
+
+import java.util.List;
+
+/**
+ * Metrica calcolata tramite callback durante l'unica visita dell'AST del metodo
+ * eseguita dal {@link FusedMetricsEngine}, invece di una propria visita completa.
+ * <p>
+ * Le implementazioni mantengono contatori primitivi: {@link #reset()} li azzera
+ * prima di ogni metodo, {@link #onNode(Node)} li aggiorna, {@link #getValue(int)} produce il valore.
+ * </p>
+ */
+public interface INodeMetric {
+    /**
+     * Il nome della metrica nell'header del CSV (identico a quello della metrica {@link IMetric} equivalente).
+     */
+    String getName();
+
+    /**
+     * Tipi di nodo (classe esatta) per cui la metrica vuole ricevere {@link #onNode(Node)}.
+     */
+    List<Class<? extends Node>> getNodeTypes();
+
+    /**
+     * Azzera lo stato prima della visita di un nuovo metodo.
+     */
+    void reset();
+
+    void onNode(Node node);
+
+    /**
+     * @param maxNestingDepth profondità massima di annidamento delle strutture di controllo,
+     *                        calcolata dal motore durante la stessa visita.
+     */
+    double getValue(int maxNestingDepth);
+}
@@ -4,8 +4,11 @@ import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import it.flaviosimonelli.isw2.metrics.impl.*; // I tuoi pacchetti implementazioni
+import it.flaviosimonelli.isw2.model.MethodIdDictionary;
 import it.flaviosimonelli.isw2.model.MethodIdentity;
 import it.flaviosimonelli.isw2.model.MethodStaticMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
+import it.flaviosimonelli.isw2.util.AppConfig;
 import it.flaviosimonelli.isw2.util.JavaParserUtils;
 import net.sourceforge.pmd.reporting.RuleViolation;
 import org.slf4j.Logger;
@@ -22,13 +25,21 @@ public class MetricsCalculator {
 
     // Lista ordinata delle strategie di calcolo
     private final List<IMetric> metricsChain;
+    // Ordinale di ogni metrica (= posizione nella catena), assegnato alla registrazione
+    private final MetricSchema schema = new MetricSchema();
     // Manteniamo un riferimento specifico per poter settare il contesto
     private final PmdCodeSmellsMetric pmdMetric;
+    // Visita unica dell'AST per metodo (null = catena originale, una visita per metrica)
+    private final FusedMetricsEngine fusedEngine;
 
     public MetricsCalculator() {
         this.metricsChain = new ArrayList<>();
         this.pmdMetric = new PmdCodeSmellsMetric();
         registerMetrics();
+
+        // [Valori: FUSED, CHAIN] - CHAIN usa le implementazioni IMetric di riferimento
+        String engine = AppConfig.getProperty("metrics.engine", "FUSED");
+        this.fusedEngine = "CHAIN".equalsIgnoreCase(engine) ? null : new FusedMetricsEngine(metricsChain, schema);
     }
 
     private void registerMetrics() {
@@ -49,9 +60,19 @@ public class MetricsCalculator {
     }
 
     private void register(IMetric metric) {
+        if (schema.register(metric.getName()) != metricsChain.size()) {
+            throw new IllegalStateException("Nome metrica duplicato: " + metric.getName());
+        }
         this.metricsChain.add(metric);
     }
 
+    /**
+     * Schema delle metriche statiche: l'ordinale coincide con la posizione della colonna.
+     */
+    public MetricSchema getSchema() {
+        return schema;
+    }
+
     /**
      * Analizza il codice sorgente ed estrae le metriche per tutti i metodi trovati.
      * * @param sourceCode Il contenuto grezzo del file .java
@@ -76,11 +97,12 @@ public class MetricsCalculator {
 
             for (MethodDeclaration methodDecl : methodDeclarations) {
                 // 1. Costruzione Identità Robusta (delegata alla Utility)
-                MethodIdentity identity = new MethodIdentity(
+                // Istanza canonica: la stessa firma condivisa con SZZ, storico e registro buggy
+                MethodIdentity identity = MethodIdDictionary.global().canonical(new MethodIdentity(
                         JavaParserUtils.getFullyQualifiedSignature(methodDecl, cu),
                         JavaParserUtils.getParentClassName(methodDecl),
                         methodDecl.getNameAsString()
-                );
+                ));
                 // 2. Calcolo Metriche
                 MethodStaticMetrics metrics = calculateAllMetrics(methodDecl, identity.fullSignature());
                 extractedData.put(identity, metrics);
@@ -101,22 +123,38 @@ public class MetricsCalculator {
      * Metodo estratto per evitare try-catch annidati (SonarCloud S1141).
      */
     private MethodStaticMetrics calculateAllMetrics(MethodDeclaration methodDecl, String fullSignature) {
-        MethodStaticMetrics metrics = new MethodStaticMetrics();
+        if (fusedEngine != null) {
+            return fusedEngine.calculate(methodDecl, fullSignature);
+        }
+
+        MethodStaticMetrics metrics = new MethodStaticMetrics(schema);
 
-        for (IMetric metric : metricsChain) {
+        for (int i = 0; i < metricsChain.size(); i++) {
+            IMetric metric = metricsChain.get(i);
             try {
                 double value = metric.calculate(methodDecl);
-                metrics.addMetric(metric.getName(), value);
+                metrics.set(i, value);
             } catch (Exception e) {
                 // Se una singola metrica fallisce, non vogliamo bloccare le altre
                 logger.warn("Errore calcolo metrica {} su metodo {}: {}",
                         metric.getName(), fullSignature, e.getMessage());
-                metrics.addMetric(metric.getName(), 0.0);
+                metrics.set(i, 0.0);
             }
         }
         return metrics;
     }
 
+    /**
+     * Descrive la catena di metriche attiva (ordine, nome colonna e implementazione).
+     * Se cambia la registrazione delle metriche, cambia il fingerprint e le cache vanno invalidate.
+     * Il motore (FUSED/CHAIN) non ne fa parte: produce gli stessi valori.
+     */
+    public String getConfigurationFingerprint() {
+        return metricsChain.stream()
+                .map(m -> m.getName() + "=" + m.getClass().getName())
+                .collect(Collectors.joining(","));
+    }
+
     /**
      * Restituisce la lista delle intestazioni (Header) per le metriche statiche.
      * Usato da CsvUtils/CSVPrinter per definire le colonne.
@@ -141,22 +179,23 @@ public class MetricsCalculator {
                     .collect(Collectors.toList());
         }
 
-        return metricsChain.stream()
-                .map(metric -> {
-                    Double val = metrics.getMetric(metric.getName());
-
-                    // Safety check: se manca il valore, default a 0
-                    if (val == null) return 0;
-
-                    // Formattazione per pulizia CSV:
-                    // Se è un numero intero (es. 5.0), restituiscilo come Integer (5).
-                    // Altrimenti tienilo come Double (5.12).
-                    if (val % 1 == 0) {
-                        return val.intValue();
-                    } else {
-                        return val;
-                    }
-                })
-                .collect(Collectors.toList());
+        // Stessa registrazione in ogni calcolatore: l'ordinale vale anche per metriche prodotte da un altro worker
+        List<Object> values = new ArrayList<>(metricsChain.size());
+        for (int i = 0; i < metricsChain.size(); i++) {
+            double val = metrics.get(i);
+
+            // Safety check: se manca il valore, default a 0
+            if (Double.isNaN(val)) {
+                values.add(0);
+            } else if (val % 1 == 0) {
+                // Formattazione per pulizia CSV:
+                // Se è un numero intero (es. 5.0), restituiscilo come Integer (5).
+                // Altrimenti tienilo come Double (5.12).
+                values.add((int) val);
+            } else {
+                values.add(val);
+            }
+        }
+        return values;
     }
 }
\ No newline at end of file
@@ -14,14 +14,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import it.flaviosimonelli.isw2.util.AppConfig;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PmdAnalysisService {
 
     private static final Logger logger = LoggerFactory.getLogger(PmdAnalysisService.class);
     private final PMDConfiguration config;
     private final LanguageVersion defaultJavaVersion;
+    private final String[] configuredRulesets;
 
     public PmdAnalysisService() {
         this.config = new PMDConfiguration();
@@ -47,6 +57,7 @@ public class PmdAnalysisService {
 
         // 2. CONFIGURAZIONE RULESETS (Dinamica)
         String[] rulesets = AppConfig.getPmdRuleSets();
+        this.configuredRulesets = rulesets;
 
         for (String ruleset : rulesets) {
             try {
@@ -60,6 +71,38 @@ public class PmdAnalysisService {
         }
     }
 
+    /**
+     * Restituisce una descrizione testuale della configurazione PMD attiva
+     * (versione Java + ruleset + contenuto dei ruleset locali).
+     * Serve a invalidare i risultati in cache quando le regole cambiano.
+     */
+    public String getConfigurationFingerprint() {
+        StringBuilder sb = new StringBuilder("java=").append(defaultJavaVersion.getVersion());
+        for (String ruleset : configuredRulesets) {
+            sb.append("|ruleset=").append(ruleset).append('#').append(readRulesetContentHash(ruleset));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Hash del contenuto di un ruleset se è un file locale o una risorsa del classpath.
+     * I ruleset built-in di PMD (es. category/java/design.xml) sono versionati con la dipendenza.
+     */
+    private int readRulesetContentHash(String ruleset) {
+        try {
+            Path localFile = Path.of(ruleset);
+            if (Files.isRegularFile(localFile)) {
+                return Arrays.hashCode(Files.readAllBytes(localFile));
+            }
+            try (InputStream input = PmdAnalysisService.class.getClassLoader().getResourceAsStream(ruleset)) {
+                return (input != null) ? Arrays.hashCode(input.readAllBytes()) : 0;
+            }
+        } catch (IOException | InvalidPathException e) {
+            logger.debug("Impossibile leggere il ruleset {} per il fingerprint: {}", ruleset, e.getMessage());
+            return 0;
+        }
+    }
+
     public List<RuleViolation> analyze(String fileContent, String fileName) {
         if (fileContent == null || fileContent.isEmpty()) {
             return Collections.emptyList();
@@ -77,4 +120,59 @@ public class PmdAnalysisService {
             return Collections.emptyList();
         }
     }
+
+    /**
+     * Numero di thread usati internamente da PMD (vale per tutte le analisi successive).
+     */
+    public void setThreads(int threads) {
+        config.setThreads(threads);
+    }
+
+    /**
+     * Analizza in un'unica {@link PmdAnalysis} tutti i sorgenti forniti (es. i file cambiati di uno snapshot).
+     * Ruleset, language processor e classpath vengono inizializzati una volta sola
+     * e PMD distribuisce i file sui propri thread.
+     *
+     * @param sources path del file -> contenuto. I path devono essere univoci.
+     * @return path del file -> violazioni trovate (lista vuota se nessuna). I file su cui PMD è fallito
+     *         (errore di processing, o errore sull'intero batch) sono mappati a {@code null}: le loro
+     *         violazioni sono sconosciute, non zero, e il risultato non va messo in cache.
+     */
+    public Map<String, List<RuleViolation>> analyzeBatch(Map<String, String> sources) {
+        Map<String, List<RuleViolation>> violationsByFile = new HashMap<>();
+        Map<FileId, String> pathsById = new HashMap<>();
+        if (sources.isEmpty()) {
+            return violationsByFile;
+        }
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            for (Map.Entry<String, String> entry : sources.entrySet()) {
+                violationsByFile.put(entry.getKey(), new ArrayList<>());
+                if (entry.getValue() == null || entry.getValue().isEmpty()) continue;
+
+                FileId fileId = FileId.fromPathLikeString(entry.getKey());
+                pathsById.put(fileId, entry.getKey());
+                pmd.files().addFile(TextFile.forCharSeq(entry.getValue(), fileId, defaultJavaVersion));
+            }
+            Report report = pmd.performAnalysisAndCollectReport();
+
+            for (RuleViolation violation : report.getViolations()) {
+                String path = pathsById.get(violation.getFileId());
+                if (path != null) {
+                    violationsByFile.get(path).add(violation);
+                }
+            }
+            for (Report.ProcessingError error : report.getProcessingErrors()) {
+                logger.error("Errore PMD su {}: {}", error.getFileId().getOriginalPath(), error.getMsg());
+                String path = pathsById.get(error.getFileId());
+                if (path != null) {
+                    violationsByFile.put(path, null);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Errore PMD sul batch di {} file: {}", sources.size(), e.getMessage());
+            violationsByFile.replaceAll((path, violations) -> null);
+        }
+        return violationsByFile;
+    }
 }
\ No newline at end of file
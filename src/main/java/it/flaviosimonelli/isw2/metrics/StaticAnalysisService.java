@@ -4,15 +4,28 @@ import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.git.service.GitService;
 import it.flaviosimonelli.isw2.model.MethodIdentity;
 import it.flaviosimonelli.isw2.model.MethodStaticMetrics;
+import it.flaviosimonelli.isw2.store.AnalysisStore;
+import it.flaviosimonelli.isw2.util.AppConfig;
 import net.sourceforge.pmd.reporting.RuleViolation;
+import org.eclipse.jgit.lib.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class StaticAnalysisService {
     private static final Logger logger = LoggerFactory.getLogger(StaticAnalysisService.class);
@@ -20,22 +33,50 @@ public class StaticAnalysisService {
     private final GitService gitService;
     private final MetricsCalculator metricsCalculator;
     private final PmdAnalysisService pmdService;
+    private final StaticMetricsCache metricsCache;
+
+    // Analisi parallela: numero di worker e calculator riusabili tra una release e l'altra
+    private final int workerCount;
+    private final Queue<MetricsCalculator> idleCalculators = new ConcurrentLinkedQueue<>();
 
     public StaticAnalysisService(GitService gitService) {
         this.gitService = gitService;
         this.metricsCalculator = new MetricsCalculator();
         this.pmdService = new PmdAnalysisService();
+        this.metricsCache = new StaticMetricsCache(
+                metricsCalculator.getConfigurationFingerprint() + "|" + pmdService.getConfigurationFingerprint());
+
+        // 0 (o assente) = un worker per core; 1 = percorso sequenziale
+        int configuredThreads = AppConfig.getInt("static.analysis.threads", 0);
+        this.workerCount = (configuredThreads > 0) ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        // Il primo worker riusa il calculator principale; PMD usa lo stesso numero di thread sul batch
+        this.idleCalculators.add(metricsCalculator);
+        this.pmdService.setThreads(workerCount);
+        logger.debug("StaticAnalysisService inizializzato con {} worker.", workerCount);
+    }
+
+    /**
+     * Collega la cache delle metriche allo store persistente, così i blob già analizzati
+     * in run precedenti (con la stessa catena di metriche e gli stessi ruleset) non vengono rianalizzati.
+     */
+    public void attachStore(AnalysisStore store) {
+        metricsCache.attachStore(
+                store.section(AnalysisStore.STATIC_METRICS, metricsCache.getConfigHash()),
+                metricsCalculator.getSchema());
     }
 
     /**
      * Analizza l'intero progetto allo stato dello snapshot fornito.
      * Restituisce una mappa UNICA contenente le metriche di TUTTI i metodi di TUTTI i file.
+     * I file il cui blob è già stato analizzato in uno snapshot precedente vengono
+     * recuperati dalla cache, senza rileggere il contenuto né rieseguire parsing e PMD.
+     * I file rimanenti vengono analizzati in parallelo se {@code static.analysis.threads} > 1.
      */
     public Map<MethodIdentity, MethodStaticMetrics> analyzeRelease(GitCommit snapshot) {
         Map<MethodIdentity, MethodStaticMetrics> projectMap = new HashMap<>();
 
-        // 1. Recupera lista file
-        Map<String, String> javaFiles = gitService.getJavaFilesContent(snapshot);
+        // 1. Recupera lista file (solo blob id: il contenuto si legge solo se serve)
+        Map<String, ObjectId> javaFiles = gitService.getJavaFilesBlobIds(snapshot);
         // Log fondamentale per verificare che JGit stia funzionando
         logger.info("Analisi Statica Snapshot {}: trovati {} file .java candidati.", snapshot.getHash(), javaFiles.size());
 
@@ -44,43 +85,201 @@ public class StaticAnalysisService {
             return projectMap;
         }
 
-        // 2. Loop sui file
+        metricsCache.startRelease();
+
+        // 2. Cache lookup: i risultati sono indicizzati per posizione, così il merge finale
+        // segue l'ordine di iterazione dei file indipendentemente da chi li ha calcolati
+        List<String> filePaths = new ArrayList<>(javaFiles.keySet());
+        List<Map<MethodIdentity, MethodStaticMetrics>> fileResults = new ArrayList<>(Collections.nCopies(filePaths.size(), null));
+        List<Integer> misses = new ArrayList<>();
+
+        for (int i = 0; i < filePaths.size(); i++) {
+            String filePath = filePaths.get(i);
+            ObjectId blobId = javaFiles.get(filePath);
+            Map<MethodIdentity, MethodStaticMetrics> cached = metricsCache.get(blobId);
+            if (cached != null) {
+                fileResults.set(i, cached);
+            } else {
+                misses.add(i);
+            }
+        }
+        List<PendingFile> pending = loadPending(misses, filePaths, javaFiles);
+
+        // 3. Analisi dei soli file cambiati (cache miss)
+        analyzePending(pending, fileResults, snapshot.getHash());
+
+        // 4. Merge deterministico (stesso ordine del percorso sequenziale)
         int parsedFilesCount = 0;
-        for (Map.Entry<String, String> entry : javaFiles.entrySet()) {
-            String filePath = entry.getKey();
-            String sourceCode = entry.getValue();
-            try {
-                // Ora sourceCode non può essere null (al massimo vuoto)
-                if (sourceCode == null || sourceCode.trim().isEmpty()) {
-                    continue;
+        for (int i = 0; i < filePaths.size(); i++) {
+            Map<MethodIdentity, MethodStaticMetrics> fileMetrics = fileResults.get(i);
+            if (fileMetrics == null) continue; // Errore già loggato
+
+            if (fileMetrics.isEmpty()) {
+                if (!isIgnorableFile(filePaths.get(i))) {
+                    logger.debug("Nessun metodo trovato in: {}", filePaths.get(i));
                 }
+            } else {
+                projectMap.putAll(fileMetrics);
+                parsedFilesCount++;
+            }
+        }
+        metricsCache.logReleaseStats(snapshot.getHash());
+        logger.info("Analisi completata: parsati {} file, estratti {} metodi.", parsedFilesCount, projectMap.size());
+        return projectMap;
+    }
 
-                // CHECK 2: Log pre-analisi
-                logger.debug("Analisi file: {} ({} chars)", filePath, sourceCode.length());
+    /**
+     * Cache miss: legge in blocco i blob (un solo reader, ordine di pack) e li accoda per l'analisi
+     * nell'ordine dei file. Se la lettura bulk fallisce si ripiega sulla lettura per singolo blob.
+     */
+    private List<PendingFile> loadPending(List<Integer> misses, List<String> filePaths, Map<String, ObjectId> javaFiles) {
+        List<PendingFile> pending = new ArrayList<>(misses.size());
+        if (misses.isEmpty()) return pending;
+
+        Map<ObjectId, String> contents;
+        try {
+            contents = gitService.getBlobContents(misses.stream().map(i -> javaFiles.get(filePaths.get(i))).toList());
+        } catch (Exception e) {
+            logger.warn("Lettura bulk dei blob fallita, lettura per file: {}", e.getMessage());
+            for (int i : misses) {
+                loadPending(i, filePaths.get(i), javaFiles.get(filePaths.get(i)), pending);
+            }
+            return pending;
+        }
+
+        for (int i : misses) {
+            ObjectId blobId = javaFiles.get(filePaths.get(i));
+            String sourceCode = contents.get(blobId);
+            if (sourceCode == null) {
+                logger.error("Errore lettura file {}: blob {} non trovato", filePaths.get(i), blobId.name());
+                continue;
+            }
+            pending.add(new PendingFile(i, filePaths.get(i), blobId, sourceCode));
+        }
+        return pending;
+    }
+
+    /**
+     * Lettura del singolo blob (fallback): legge il contenuto e lo accoda per l'analisi.
+     */
+    private void loadPending(int order, String filePath, ObjectId blobId, List<PendingFile> pending) {
+        try {
+            String sourceCode = gitService.getBlobContent(blobId);
+            pending.add(new PendingFile(order, filePath, blobId, (sourceCode != null) ? sourceCode : ""));
+        } catch (Exception e) {
+            logger.error("Errore lettura file {}", filePath, e);
+        }
+    }
 
-                // 3. ESEGUI PMD SUL FILE
-                // Otteniamo la lista di tutte le violazioni nel file corrente
-                List<RuleViolation> violations = pmdService.analyze(sourceCode, filePath);
+    /**
+     * Analizza i file in cache miss: prima PMD su tutto il batch (una sola {@link net.sourceforge.pmd.PmdAnalysis}),
+     * poi il calcolo delle metriche, in parallelo se configurato.
+     * I file più grandi vengono schedulati per primi: un file enorme avviato per ultimo
+     * terrebbe occupato un solo worker mentre gli altri restano fermi.
+     */
+    private void analyzePending(List<PendingFile> pending, List<Map<MethodIdentity, MethodStaticMetrics>> fileResults,
+                                String snapshotHash) {
+        if (pending.isEmpty()) return;
 
-                // 4. PASSA LE VIOLAZIONI AL CALCULATOR
-                // (Nota: dobbiamo aggiornare la firma di extractMetrics nel passo successivo)
-                Map<MethodIdentity, MethodStaticMetrics> fileMetrics = metricsCalculator.extractMetrics(sourceCode, filePath, violations);
+        Map<String, List<RuleViolation>> violationsByFile = runPmdBatch(pending, snapshotHash);
 
-                if (fileMetrics.isEmpty()) {
-                    if (!isIgnorableFile(filePath)) {
-                        logger.debug("Nessun metodo trovato in: {}", filePath);
-                    }
-                } else {
-                    projectMap.putAll(fileMetrics);
-                    parsedFilesCount++;
+        if (workerCount <= 1 || pending.size() == 1) {
+            for (PendingFile file : pending) {
+                try {
+                    storeResult(file, analyzeWithWorker(file, violationsByFile), violationsByFile, fileResults);
+                } catch (Exception e) {
+                    logger.error("Errore parsing file {}", file.path(), e);
                 }
+            }
+            return;
+        }
+
+        List<PendingFile> schedule = new ArrayList<>(pending);
+        schedule.sort(Comparator.comparingInt((PendingFile f) -> f.sourceCode().length()).reversed());
 
-            } catch (Exception e) {
-                logger.error("Errore parsing file {}", filePath, e);
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.min(workerCount, schedule.size()))) {
+            // La coda FIFO del pool rispetta l'ordine di sottomissione (largest-first)
+            List<Future<Map<MethodIdentity, MethodStaticMetrics>>> futures = new ArrayList<>(schedule.size());
+            for (PendingFile file : schedule) {
+                futures.add(pool.submit(() -> analyzeWithWorker(file, violationsByFile)));
+            }
+            for (int i = 0; i < schedule.size(); i++) {
+                collectResult(schedule.get(i), futures.get(i), violationsByFile, fileResults);
             }
         }
-        logger.info("Analisi completata: parsati {} file, estratti {} metodi.", parsedFilesCount, projectMap.size());
-        return projectMap;
+    }
+
+    private void collectResult(PendingFile file, Future<Map<MethodIdentity, MethodStaticMetrics>> future,
+                               Map<String, List<RuleViolation>> violationsByFile,
+                               List<Map<MethodIdentity, MethodStaticMetrics>> fileResults) {
+        try {
+            storeResult(file, future.get(), violationsByFile, fileResults);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Analisi interrotta sul file {}", file.path());
+        } catch (ExecutionException e) {
+            logger.error("Errore parsing file {}", file.path(), e.getCause());
+        }
+    }
+
+    private void storeResult(PendingFile file, Map<MethodIdentity, MethodStaticMetrics> fileMetrics,
+                             Map<String, List<RuleViolation>> violationsByFile,
+                             List<Map<MethodIdentity, MethodStaticMetrics>> fileResults) {
+        fileResults.set(file.order(), fileMetrics);
+        // PMD fallito sul file: gli smell sono sconosciuti, non zero. Il risultato vale per questo snapshot
+        // ma non entra in cache (né nello store), così il blob viene rianalizzato alla prossima occorrenza
+        if (violationsByFile.containsKey(file.path()) && violationsByFile.get(file.path()) == null) {
+            logger.warn("PMD fallito su {}: metriche non messe in cache.", file.path());
+            return;
+        }
+        metricsCache.put(file.blobId(), fileMetrics);
+    }
+
+    /**
+     * Esegue PMD una sola volta su tutti i file in cache miss dello snapshot e logga il tempo impiegato.
+     */
+    private Map<String, List<RuleViolation>> runPmdBatch(List<PendingFile> pending, String snapshotHash) {
+        Map<String, String> sources = new HashMap<>();
+        for (PendingFile file : pending) {
+            if (!file.sourceCode().trim().isEmpty()) {
+                sources.put(file.path(), file.sourceCode());
+            }
+        }
+
+        long start = System.nanoTime();
+        Map<String, List<RuleViolation>> violationsByFile = pmdService.analyzeBatch(sources);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        int violationsCount = violationsByFile.values().stream().filter(Objects::nonNull).mapToInt(List::size).sum();
+        logger.info("PMD snapshot {}: {} file analizzati in {} ms ({} violazioni).",
+                snapshotHash, sources.size(), elapsedMs, violationsCount);
+        return violationsByFile;
+    }
+
+    /**
+     * Calcola le metriche di un file con un calculator dedicato preso dal pool.
+     * MetricsCalculator non è thread-safe: ogni istanza è usata da un solo thread alla volta.
+     */
+    private Map<MethodIdentity, MethodStaticMetrics> analyzeWithWorker(PendingFile file, Map<String, List<RuleViolation>> violationsByFile) {
+        if (file.sourceCode().trim().isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        MetricsCalculator calculator = idleCalculators.poll();
+        if (calculator == null) {
+            calculator = new MetricsCalculator();
+        }
+        try {
+            // CHECK 2: Log pre-analisi
+            logger.debug("Analisi file: {} ({} chars)", file.path(), file.sourceCode().length());
+
+            // Le violazioni PMD del file corrente (già calcolate dal batch; null = PMD fallito sul file)
+            List<RuleViolation> violations = violationsByFile.get(file.path());
+            if (violations == null) violations = Collections.emptyList();
+            return calculator.extractMetrics(file.sourceCode(), file.path(), violations);
+        } finally {
+            idleCalculators.offer(calculator);
+        }
     }
 
     /**
@@ -159,4 +358,9 @@ public class StaticAnalysisService {
                 filePath.endsWith("Exception.java") ||
                 filePath.contains("/test/");
     }
+
+    /**
+     * File in cache miss con il contenuto già letto. {@code order} è la posizione nel merge finale.
+     */
+    private record PendingFile(int order, String path, ObjectId blobId, String sourceCode) {}
 }
@@ -0,0 +1,147 @@
+package it.flaviosimonelli.isw2.metrics;
+
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+import it.flaviosimonelli.isw2.model.MethodStaticMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
+import it.flaviosimonelli.isw2.store.StoreCodec;
+import it.flaviosimonelli.isw2.store.StoreSection;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Cache content-addressed delle metriche statiche.
+ * <p>
+ * La chiave è l'id del blob Git (hash del contenuto del file): la configurazione di analisi
+ * (catena metriche + ruleset PMD) è la stessa per tutte le entry dell'istanza e versiona lo store.
+ * Un file che non cambia tra due release ha lo stesso blob id: le sue metriche
+ * vengono riusate senza rileggere, riparsare o rieseguire PMD.
+ * </p>
+ * <p>
+ * Opzionalmente la cache è collegata a una {@link StoreSection} persistente:
+ * i blob analizzati in run precedenti (con la stessa configurazione) sono hit anche al primo snapshot.
+ * </p>
+ */
+public class StaticMetricsCache {
+    private static final Logger logger = LoggerFactory.getLogger(StaticMetricsCache.class);
+
+    private final String configHash;
+    private final Map<ObjectId, Map<MethodIdentity, MethodStaticMetrics>> entries = new HashMap<>();
+
+    // Livello persistente opzionale (null = solo memoria)
+    private StoreSection persistentSection;
+    private MetricSchema schema;
+
+    // Statistiche della release corrente (azzerate da startRelease)
+    private int releaseHits = 0;
+    private int releaseMisses = 0;
+
+    // Statistiche cumulative sull'intero run
+    private long totalHits = 0;
+    private long totalMisses = 0;
+
+    /**
+     * @param configurationFingerprint descrizione della configurazione attiva; viene ridotta a un hash.
+     */
+    public StaticMetricsCache(String configurationFingerprint) {
+        this.configHash = hash(configurationFingerprint);
+    }
+
+    public String getConfigHash() {
+        return configHash;
+    }
+
+    /**
+     * Collega la cache a una sezione persistente dello store.
+     * @param section     sezione aperta con fingerprint = {@link #getConfigHash()}.
+     * @param schema      schema delle metriche: i valori sono serializzati nell'ordine degli ordinali.
+     */
+    public void attachStore(StoreSection section, MetricSchema schema) {
+        this.persistentSection = section;
+        this.schema = schema;
+    }
+
+    /**
+     * Cerca le metriche già calcolate per il blob. Aggiorna i contatori hit/miss.
+     * @return la mappa metodo -> metriche, oppure null se il blob non è mai stato analizzato.
+     */
+    public Map<MethodIdentity, MethodStaticMetrics> get(ObjectId blobId) {
+        Map<MethodIdentity, MethodStaticMetrics> cached = entries.get(blobId);
+        if (cached == null) {
+            cached = loadFromStore(blobId);
+            if (cached != null) entries.put(blobId.copy(), cached);
+        }
+        if (cached != null) {
+            releaseHits++;
+            totalHits++;
+        } else {
+            releaseMisses++;
+            totalMisses++;
+        }
+        return cached;
+    }
+
+    /**
+     * Registra il risultato dell'analisi di un blob (anche vuoto: evita di riparsare file senza metodi).
+     */
+    public void put(ObjectId blobId, Map<MethodIdentity, MethodStaticMetrics> metrics) {
+        entries.put(blobId.copy(), metrics);
+        if (persistentSection != null) {
+            persistentSection.put(blobId.name(), StoreCodec.encodeStaticMetrics(metrics, schema));
+        }
+    }
+
+    private Map<MethodIdentity, MethodStaticMetrics> loadFromStore(ObjectId blobId) {
+        if (persistentSection == null) return null;
+        String payload = persistentSection.get(blobId.name());
+        if (payload == null) return null;
+        try {
+            return StoreCodec.decodeStaticMetrics(payload, schema);
+        } catch (IllegalArgumentException e) {
+            // Entry corrotta: la trattiamo come miss e verrà ricalcolata
+            logger.debug("Entry store non valida per blob {}: {}", blobId.name(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Azzera i contatori della release: da chiamare prima di analizzare un nuovo snapshot.
+     */
+    public void startRelease() {
+        releaseHits = 0;
+        releaseMisses = 0;
+    }
+
+    /**
+     * Logga il tasso di riuso della release corrente e quello cumulativo.
+     */
+    public void logReleaseStats(String snapshotHash) {
+        int releaseTotal = releaseHits + releaseMisses;
+        long total = totalHits + totalMisses;
+        double releaseRate = (releaseTotal > 0) ? (double) releaseHits / releaseTotal * 100.0 : 0.0;
+        double totalRate = (total > 0) ? (double) totalHits / total * 100.0 : 0.0;
+
+        logger.info("Cache metriche statiche snapshot {}: hit={} miss={} (riuso {}%) | cumulativo hit={} miss={} (riuso {}%), blob in cache={}",
+                snapshotHash, releaseHits, releaseMisses, "%.1f".formatted(releaseRate),
+                totalHits, totalMisses, "%.1f".formatted(totalRate), entries.size());
+    }
+
+    private static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            // 8 byte bastano per distinguere configurazioni diverse
+            return HexFormat.of().formatHex(bytes, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 è garantito da ogni JVM, ma per sicurezza ripieghiamo su hashCode
+            return Integer.toHexString(text.hashCode());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package it.flaviosimonelli.isw2.metrics.impl;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.stmt.*;
+import it.flaviosimonelli.isw2.metrics.INodeMetric;
+
+import java.util.List;
+
+/**
+ * Versione a visita unica di {@link CognitiveComplexityMetric}:
+ * un punto per ogni struttura di controllo più la penalità di nesting (profondità massima - 1).
+ */
+public class CognitiveComplexityNodeMetric implements INodeMetric {
+    private int complexity;
+
+    @Override
+    public String getName() {
+        return "CognitiveComplexity";
+    }
+
+    @Override
+    public List<Class<? extends Node>> getNodeTypes() {
+        return List.of(IfStmt.class, ForStmt.class, ForEachStmt.class, WhileStmt.class, DoStmt.class,
+                SwitchStmt.class, CatchClause.class, ConditionalExpr.class);
+    }
+
+    @Override
+    public void reset() {
+        complexity = 0;
+    }
+
+    @Override
+    public void onNode(Node node) {
+        complexity++;
+    }
+
+    @Override
+    public double getValue(int maxNestingDepth) {
+        int nestingPenalty = Math.max(0, maxNestingDepth - 1);
+        return complexity + nestingPenalty;
+    }
+}
@@ -0,0 +1,44 @@
+package it.flaviosimonelli.isw2.metrics.impl;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.stmt.*;
+import it.flaviosimonelli.isw2.metrics.INodeMetric;
+
+import java.util.List;
+
+/**
+ * Versione a visita unica di {@link CyclomaticComplexityMetric}:
+ * 1 + un punto per ogni biforcazione (if, loop, catch, ternario, case con label).
+ */
+public class CyclomaticComplexityNodeMetric implements INodeMetric {
+    private int complexity;
+
+    @Override
+    public String getName() {
+        return "Cyclomatic";
+    }
+
+    @Override
+    public List<Class<? extends Node>> getNodeTypes() {
+        return List.of(IfStmt.class, ForStmt.class, ForEachStmt.class, WhileStmt.class, DoStmt.class,
+                CatchClause.class, ConditionalExpr.class, SwitchEntry.class);
+    }
+
+    @Override
+    public void reset() {
+        complexity = 1; // Base
+    }
+
+    @Override
+    public void onNode(Node node) {
+        // Per i case dello switch contiamo solo quelli con label (ignoriamo default)
+        if (node instanceof SwitchEntry entry && entry.getLabels().isEmpty()) return;
+        complexity++;
+    }
+
+    @Override
+    public double getValue(int maxNestingDepth) {
+        return complexity;
+    }
+}
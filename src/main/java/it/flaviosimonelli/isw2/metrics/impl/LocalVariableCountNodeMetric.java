@@ -0,0 +1,42 @@
+package it.flaviosimonelli.isw2.metrics.impl;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import it.flaviosimonelli.isw2.metrics.INodeMetric;
+
+import java.util.List;
+
+/**
+ * Versione a visita unica di {@link LocalVariableCountMetric}.
+ */
+public class LocalVariableCountNodeMetric implements INodeMetric {
+    private int count;
+
+    @Override
+    public String getName() {
+        return "NumLocalVars";
+    }
+
+    @Override
+    public List<Class<? extends Node>> getNodeTypes() {
+        return List.of(VariableDeclarator.class);
+    }
+
+    @Override
+    public void reset() {
+        count = 0;
+    }
+
+    @Override
+    public void onNode(Node node) {
+        if (node.getParentNode().isPresent() && !(node.getParentNode().get() instanceof Parameter)) {
+            count++;
+        }
+    }
+
+    @Override
+    public double getValue(int maxNestingDepth) {
+        return count;
+    }
+}
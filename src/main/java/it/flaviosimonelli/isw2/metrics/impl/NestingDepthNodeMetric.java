@@ -0,0 +1,37 @@
+package it.flaviosimonelli.isw2.metrics.impl;
+
+import com.github.javaparser.ast.Node;
+import it.flaviosimonelli.isw2.metrics.INodeMetric;
+
+import java.util.List;
+
+/**
+ * Versione a visita unica di {@link NestingDepthMetric}: la profondità è già calcolata dal motore.
+ */
+public class NestingDepthNodeMetric implements INodeMetric {
+
+    @Override
+    public String getName() {
+        return "NestingDepth";
+    }
+
+    @Override
+    public List<Class<? extends Node>> getNodeTypes() {
+        return List.of();
+    }
+
+    @Override
+    public void reset() {
+        // Nessuno stato proprio
+    }
+
+    @Override
+    public void onNode(Node node) {
+        // Non registrata su alcun tipo di nodo
+    }
+
+    @Override
+    public double getValue(int maxNestingDepth) {
+        return maxNestingDepth;
+    }
+}
@@ -2,6 +2,7 @@ package it.flaviosimonelli.isw2.metrics.process;
 
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.model.MethodProcessMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
 
 import java.util.*;
 
@@ -15,6 +16,11 @@ public abstract class AbstractConfigurableMetric implements IProcessMetric {
     private final Set<MetricStat> localConfig;
     private final Set<MetricStat> globalConfig;
 
+    // Ordinali nello schema dell'analizzatore (assegnati da bind)
+    private int sumOrdinal = -1;
+    private int maxOrdinal = -1;
+    private int nrOrdinal = -1;
+
     /**
      * Costruttore flessibile.
      * @param name Nome base della metrica (es. "Churn")
@@ -31,13 +37,20 @@ public abstract class AbstractConfigurableMetric implements IProcessMetric {
 
     protected abstract int calculateCommitValue(int added, int deleted);
 
+    @Override
+    public void bind(MetricSchema schema) {
+        this.sumOrdinal = schema.register(baseName);
+        this.maxOrdinal = schema.register(maxName);
+        this.nrOrdinal = schema.register(NR_KEY);
+    }
+
     @Override
     public void update(MethodProcessMetrics metrics, GitCommit commit, int added, int deleted) {
         // Calcoliamo SEMPRE tutto internamente. Costa pochissimo (2 somme e 1 max)
         // e ci garantisce che i dati siano pronti se la config cambia o per il merge globale.
         int val = calculateCommitValue(added, deleted);
-        metrics.increaseMetric(baseName, val);
-        metrics.updateMax(maxName, val);
+        metrics.increaseMetric(sumOrdinal, val);
+        metrics.updateMax(maxOrdinal, val);
     }
 
     @Override
@@ -64,22 +77,22 @@ public abstract class AbstractConfigurableMetric implements IProcessMetric {
             return values;
         }
 
-        // Recuperiamo il valore dalla mappa
-        Double rawTotal = metrics.getMetric(baseName);
+        // Recuperiamo il valore dall'array (NaN = mai aggiornato)
+        double rawTotal = metrics.getMetric(sumOrdinal);
 
-        // Se è null, usiamo il NOSTRO default definito nella classe
-        double total = (rawTotal != null) ? rawTotal : getDefaultValue();
+        // Se manca, usiamo il NOSTRO default definito nella classe
+        double total = !Double.isNaN(rawTotal) ? rawTotal : getDefaultValue();
 
         // Stessa logica per il Max
-        Double rawMax = metrics.getMetric(maxName);
-        double max = (rawMax != null) ? rawMax : getDefaultValue();
+        double rawMax = metrics.getMetric(maxOrdinal);
+        double max = !Double.isNaN(rawMax) ? rawMax : getDefaultValue();
 
         if (config.contains(MetricStat.SUM)) values.add(total);
         if (config.contains(MetricStat.MAX)) values.add(max);
 
         if (config.contains(MetricStat.AVG)) {
-            Double rawNr = metrics.getMetric(NR_KEY);
-            double nr = (rawNr != null) ? rawNr : 0.0; // NR ha sempre default 0 logicamente
+            double rawNr = metrics.getMetric(nrOrdinal);
+            double nr = !Double.isNaN(rawNr) ? rawNr : 0.0; // NR ha sempre default 0 logicamente
 
             double avg = (nr > 0) ? total / nr : getDefaultValue();
             values.add(avg);
@@ -92,16 +105,16 @@ public abstract class AbstractConfigurableMetric implements IProcessMetric {
     public void merge(MethodProcessMetrics history, MethodProcessMetrics current) {
         // 1. Gestione SUM (Accumulo) - Corrisponde a MetricStat.SUM
         // Usiamo baseName (es. "Churn", "LOC_Added")
-        Double currentSum = current.getMetric(baseName);
-        if (currentSum != null && currentSum != 0.0) {
-            history.increaseMetric(baseName, currentSum);
+        double currentSum = current.getMetric(sumOrdinal);
+        if (!Double.isNaN(currentSum) && currentSum != 0.0) {
+            history.increaseMetric(sumOrdinal, currentSum);
         }
 
         // 2. Gestione MAX (Picco) - Corrisponde a MetricStat.MAX
         // Usiamo maxName (es. "MAX_Churn")
-        Double currentMax = current.getMetric(maxName);
-        if (currentMax != null && currentMax != 0.0) {
-            history.updateMax(maxName, currentMax);
+        double currentMax = current.getMetric(maxOrdinal);
+        if (!Double.isNaN(currentMax) && currentMax != 0.0) {
+            history.updateMax(maxOrdinal, currentMax);
         }
 
         // Nota: AVG non si mergia, si ricalcola al volo basandosi su SUM e NR.
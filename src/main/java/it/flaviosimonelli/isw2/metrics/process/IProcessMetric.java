@@ -2,12 +2,28 @@ package it.flaviosimonelli.isw2.metrics.process;
 
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.model.MethodProcessMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
 
 import java.util.List;
 
-// Definisce interfaccia di come una metrica deve reagire quando viene rilevata una modifica a un metodo
+/**
+ * Definisce come una metrica deve reagire quando viene rilevata una modifica a un metodo.
+ * <p>
+ * <b>Contratto di ordinamento:</b> {@link #update} riceve i commit nell'ordine della lista analizzata,
+ * anche quando l'analizzatore usa più thread (in parallelo si anticipano solo diff e parsing).
+ * {@link #merge} riceve sempre in {@code current} commit che seguono quelli di {@code history}:
+ * una metrica sensibile all'ordine (es. "ultimo autore") deve implementarlo come "history seguito da current".
+ * Le implementazioni non devono avere stato proprio: i dati vivono in {@link MethodProcessMetrics}.
+ * </p>
+ */
 public interface IProcessMetric {
 
+    /**
+     * Registra nello schema dell'analizzatore le chiavi usate dalla metrica e ne memorizza gli ordinali.
+     * Chiamato una volta, alla registrazione della metrica, prima di qualsiasi {@link #update}.
+     */
+    void bind(MetricSchema schema);
+
     // Aggiorna lo stato interno (questo resta uguale, calcoliamo sempre tutto internamente)
     void update(MethodProcessMetrics metrics, GitCommit commit, int added, int deleted);
 
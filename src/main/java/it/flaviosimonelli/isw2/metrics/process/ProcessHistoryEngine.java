@@ -0,0 +1,90 @@
+package it.flaviosimonelli.isw2.metrics.process;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+import it.flaviosimonelli.isw2.model.MethodIdMap;
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+import it.flaviosimonelli.isw2.model.MethodProcessMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Motore a passata unica sulla storia dei commit per le metriche di processo.
+ * <p>
+ * I commit vengono consumati una sola volta, dal più vecchio al più recente, tramite un cursore.
+ * Ogni commit aggiorna in place sia l'accumulatore dell'intervallo corrente sia lo storico globale,
+ * quindi non servono né la selezione dei commit per ogni release né il merge dell'intervallo nello storico.
+ * Il costo complessivo è lineare nel numero di commit.
+ * </p>
+ * <p>
+ * {@link #advanceTo(LocalDate)} è il confine di release: consuma i commit fino alla data (inclusa)
+ * e consegna al chiamante le metriche dell'intervallo appena chiuso. Le finestre coincidono con quelle
+ * di {@code GitService.getCommitsBetweenDates(prev, current)}.
+ * </p>
+ * <p>
+ * Con più thread ({@code process.metrics.threads}) l'analizzatore anticipa in parallelo il diff e il parsing
+ * dei commit della finestra, che dominano il costo; l'accumulo in place resta lo stesso, in ordine cronologico.
+ * </p>
+ * Non thread-safe: pensato per il loop sequenziale sulle release.
+ */
+public class ProcessHistoryEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessHistoryEngine.class);
+
+    private final ProcessMetricAnalyzer analyzer;
+    private final List<GitCommit> newestFirst;
+    // Vive per tutto il run e copre quasi tutti i metodi: mappa densa per id invece di HashMap
+    private final Map<MethodIdentity, MethodProcessMetrics> globalHistory = new MethodIdMap<>();
+
+    // Indice del prossimo commit da consumare: si scorre la lista dal fondo (il più vecchio) verso la testa
+    private int cursor;
+    private LocalDateTime lastBoundary = null;
+
+    /**
+     * @param analyzer    catena di metriche da aggiornare.
+     * @param newestFirst tutti i commit, dal più recente al più vecchio (come {@code GitService.getAllCommits()}).
+     */
+    public ProcessHistoryEngine(ProcessMetricAnalyzer analyzer, List<GitCommit> newestFirst) {
+        this.analyzer = analyzer;
+        this.newestFirst = newestFirst;
+        this.cursor = newestFirst.size() - 1;
+    }
+
+    /**
+     * Consuma i commit fino alla fine del giorno di rilascio e chiude l'intervallo corrente.
+     *
+     * @param releaseDate data della release; le date vanno visitate in ordine non decrescente.
+     * @return metriche dei soli commit dell'intervallo (dalla release precedente esclusa a questa inclusa).
+     */
+    public Map<MethodIdentity, MethodProcessMetrics> advanceTo(LocalDate releaseDate) {
+        LocalDateTime boundary = releaseDate.atTime(23, 59, 59);
+        if (lastBoundary != null && boundary.isBefore(lastBoundary)) {
+            throw new IllegalArgumentException("Release non in ordine cronologico: " + releaseDate);
+        }
+        lastBoundary = boundary;
+
+        // Finestra della release, dal più vecchio al più recente
+        List<GitCommit> window = new ArrayList<>();
+        while (cursor >= 0 && !newestFirst.get(cursor).getDate().isAfter(boundary)) {
+            window.add(newestFirst.get(cursor--));
+        }
+
+        Map<MethodIdentity, MethodProcessMetrics> intervalMap = new HashMap<>();
+        analyzer.accumulateCommits(window, intervalMap, globalHistory);
+        logger.debug("Confine release {}: {} commit consumati, {} ancora da visitare.", releaseDate, window.size(), cursor + 1);
+        return intervalMap;
+    }
+
+    /**
+     * Storico globale aggiornato fino all'ultimo confine raggiunto (vista non modificabile).
+     */
+    public Map<MethodIdentity, MethodProcessMetrics> getGlobalHistory() {
+        return Collections.unmodifiableMap(globalHistory);
+    }
+}
@@ -1,36 +1,59 @@
 package it.flaviosimonelli.isw2.metrics.process;
 
-import com.github.javaparser.StaticJavaParser;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.MethodDeclaration;
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
-import it.flaviosimonelli.isw2.git.service.GitService;
 import it.flaviosimonelli.isw2.metrics.process.impl.*;
 import it.flaviosimonelli.isw2.model.MethodIdentity;
 import it.flaviosimonelli.isw2.model.MethodProcessMetrics;
-import it.flaviosimonelli.isw2.util.JavaParserUtils;
+import it.flaviosimonelli.isw2.model.MetricSchema;
+import it.flaviosimonelli.isw2.parser.MethodBoundary;
+import it.flaviosimonelli.isw2.parser.MethodIntervalIndex;
+import it.flaviosimonelli.isw2.store.CommitAnalysisCache;
+import it.flaviosimonelli.isw2.store.CommitAnalysisCache.FileAnalysis;
+import it.flaviosimonelli.isw2.util.AppConfig;
 import org.eclipse.jgit.diff.Edit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Analizzatore delle metriche di processo.
  * <p>
  * Questa classe orchestra l'estrazione delle metriche storiche (Churn, Revisioni, Autori, ecc.).
- * Funziona iterando sui commit Git, analizzando i Diff e mappandoli sui metodi Java tramite AST.
+ * Funziona iterando sui commit Git, analizzando i Diff e mappandoli sui metodi Java
+ * (diff e confini condivisi con SZZ tramite {@link CommitAnalysisCache}).
+ * </p>
+ * <p>
+ * Con {@code process.metrics.threads} diverso da 1 i worker anticipano il diff e il parsing dei commit
+ * (la parte costosa) su una finestra scorrevole, mentre l'applicazione degli edit alle mappe resta sequenziale
+ * e nell'ordine dei commit: il risultato non dipende dal numero di thread.
  * </p>
  */
 public class ProcessMetricAnalyzer {
     private static final Logger logger = LoggerFactory.getLogger(ProcessMetricAnalyzer.class);
-    private final GitService gitService;
+    // Analisi dei commit (diff + confini metodi), condivisa con SZZ
+    private final CommitAnalysisCache commitCache;
 
     // Chain of Responsibility: Lista delle metriche attive
     private final List<IProcessMetric> metricsChain = new ArrayList<>();
+    // Ordinali delle chiavi numeriche, assegnati alla registrazione delle metriche
+    private final MetricSchema schema = new MetricSchema();
 
-    public ProcessMetricAnalyzer(GitService gitService) {
-        this.gitService = gitService;
+    // Commit in analisi per worker davanti a quello da applicare: limita la memoria delle analisi in attesa
+    private static final int PREFETCH_PER_WORKER = 4;
+    private final int workerCount;
+
+    /**
+     * @param commitCache cache di analisi dei commit dello stesso run, condivisa con SZZ
+     */
+    public ProcessMetricAnalyzer(CommitAnalysisCache commitCache) {
+        this.commitCache = commitCache;
+        int configuredThreads = AppConfig.getInt("process.metrics.threads", 0);
+        this.workerCount = (configuredThreads > 0) ? configuredThreads : Runtime.getRuntime().availableProcessors();
         registerMetrics();
     }
 
@@ -50,82 +73,121 @@ public class ProcessMetricAnalyzer {
     }
 
     public void register(IProcessMetric metric) {
+        metric.bind(schema);
         this.metricsChain.add(metric);
     }
 
+    /**
+     * True se l'estrazione usa più worker ({@code process.metrics.threads}).
+     */
+    public boolean isParallel() {
+        return workerCount > 1;
+    }
+
     /**
      * Estrae le metriche di processo analizzando la cronologia dei commit.
+     * Le metriche vedono i commit nell'ordine della lista (contratto di {@link IProcessMetric}).
      */
     public Map<MethodIdentity, MethodProcessMetrics> extractProcessMetrics(List<GitCommit> commits) {
         Map<MethodIdentity, MethodProcessMetrics> metricsMap = new HashMap<>();
-
-        for (GitCommit commit : commits) {
-            analyzeCommitChanges(commit, metricsMap);
-        }
+        accumulate(commits, metricsMap);
         return metricsMap;
     }
 
-    private void analyzeCommitChanges(GitCommit commit, Map<MethodIdentity, MethodProcessMetrics> metricsMap) {
-        Map<String, List<Edit>> diffs = gitService.getDiffsWithEdits(commit);
+    /**
+     * Applica i commit, nell'ordine della lista, a entrambi gli accumulatori (intervallo corrente e storico globale).
+     * Ogni edit viene mappato sul suo metodo una volta sola: non serve più fondere l'intervallo nello storico.
+     */
+    public void accumulateCommits(List<GitCommit> commits, Map<MethodIdentity, MethodProcessMetrics> intervalMap,
+                                  Map<MethodIdentity, MethodProcessMetrics> globalMap) {
+        accumulate(commits, intervalMap, globalMap);
+    }
 
-        for (Map.Entry<String, List<Edit>> entry : diffs.entrySet()) {
-            String filePath = entry.getKey();
+    @SafeVarargs
+    private void accumulate(List<GitCommit> commits, Map<MethodIdentity, MethodProcessMetrics>... metricsMaps) {
+        if (!isParallel() || commits.size() <= 1) {
+            for (GitCommit commit : commits) {
+                analyzeCommitChanges(commit, metricsMaps);
+            }
+            return;
+        }
 
-            // Filtro file: solo Java e non test (utilizziamo logica centralizzata)
-            if (filePath.endsWith(".java")) {
-                processFileDiff(commit, filePath, entry.getValue(), metricsMap);
+        int maxInFlight = workerCount * PREFETCH_PER_WORKER;
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.min(workerCount, commits.size()))) {
+            Deque<Future<Map<String, FileAnalysis>>> inFlight = new ArrayDeque<>(maxInFlight);
+            int next = 0;
+            for (GitCommit commit : commits) {
+                // I worker analizzano i commit successivi mentre questo viene applicato alle mappe
+                while (next < commits.size() && inFlight.size() < maxInFlight) {
+                    GitCommit ahead = commits.get(next++);
+                    inFlight.add(pool.submit(() -> commitCache.getJavaFileAnalyses(ahead)));
+                }
+                applyCommitChanges(commit, collectAnalyses(inFlight.poll()), metricsMaps);
             }
         }
     }
 
-    private void processFileDiff(GitCommit commit, String filePath, List<Edit> edits,
-                                 Map<MethodIdentity, MethodProcessMetrics> metricsMap) {
+    private Map<String, FileAnalysis> collectAnalyses(Future<Map<String, FileAnalysis>> future) {
         try {
-            String sourceCode = gitService.getRawFileContent(commit, filePath);
-            if (sourceCode == null || sourceCode.isEmpty()) return;
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Estrazione metriche di processo interrotta", e);
+        } catch (ExecutionException e) {
+            // Stesso comportamento del percorso sequenziale: l'errore interrompe la generazione
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Estrazione metriche di processo fallita", e.getCause());
+        }
+    }
 
-            CompilationUnit cu = StaticJavaParser.parse(sourceCode);
-            List<MethodDeclaration> methods = cu.findAll(MethodDeclaration.class);
+    @SafeVarargs
+    private void analyzeCommitChanges(GitCommit commit, Map<MethodIdentity, MethodProcessMetrics>... metricsMaps) {
+        // Diff e confini dei metodi: condivisi con SZZ, ogni commit viene analizzato una volta sola
+        applyCommitChanges(commit, commitCache.getJavaFileAnalyses(commit), metricsMaps);
+    }
 
-            for (Edit edit : edits) {
-                mapEditToMethods(edit, methods, cu, commit, metricsMap);
-            }
-        } catch (Exception e) {
-            logger.debug("Skip file {} on commit {}: {}", filePath, commit.getHash(), e.getMessage());
+    @SafeVarargs
+    private void applyCommitChanges(GitCommit commit, Map<String, FileAnalysis> files,
+                                    Map<MethodIdentity, MethodProcessMetrics>... metricsMaps) {
+        for (Map.Entry<String, FileAnalysis> entry : files.entrySet()) {
+            // Filtro file: solo Java (già applicato dalla cache)
+            processFileDiff(commit, entry.getKey(), entry.getValue(), metricsMaps);
         }
     }
 
-    private void mapEditToMethods(Edit edit, List<MethodDeclaration> methods, CompilationUnit cu,
-                                  GitCommit commit, Map<MethodIdentity, MethodProcessMetrics> metricsMap) {
+    private void processFileDiff(GitCommit commit, String filePath, FileAnalysis file,
+                                 Map<MethodIdentity, MethodProcessMetrics>[] metricsMaps) {
+        if (!file.isParsed()) {
+            logger.debug("Skip file {} on commit {}: {}", filePath, commit.getHash(), file.parseError());
+            return;
+        }
+        // Indice a intervalli: ogni edit trova il suo metodo in tempo logaritmico
+        for (Edit edit : file.edits()) {
+            mapEditToMethods(edit, file.methods(), commit, metricsMaps);
+        }
+    }
+
+    private void mapEditToMethods(Edit edit, MethodIntervalIndex methods,
+                                  GitCommit commit, Map<MethodIdentity, MethodProcessMetrics>[] metricsMaps) {
         // Conversione indici JGit -> JavaParser
         int editStart = edit.getBeginB() + 1;
         int editEnd = edit.getEndB() + 1;
 
-        for (MethodDeclaration method : methods) {
-            if (isEditInsideMethod(editStart, editEnd, method)) {
-                updateMethodMetrics(method, cu, commit, edit, metricsMap);
-                // Trovato il metodo per questo edit, passiamo al prossimo edit
-                break;
+        // Come la scansione lineare originale: un solo metodo per edit, il primo nell'ordine del file
+        MethodBoundary method = methods.firstOverlapping(editStart, editEnd);
+        if (method != null) {
+            for (Map<MethodIdentity, MethodProcessMetrics> metricsMap : metricsMaps) {
+                updateMethodMetrics(method, commit, edit, metricsMap);
             }
         }
     }
 
-    private boolean isEditInsideMethod(int editStart, int editEnd, MethodDeclaration method) {
-        return method.getRange().map(range ->
-                editStart <= range.end.line && editEnd >= range.begin.line
-        ).orElse(false);
-    }
-
-    private void updateMethodMetrics(MethodDeclaration method, CompilationUnit cu, GitCommit commit,
+    private void updateMethodMetrics(MethodBoundary method, GitCommit commit,
                                      Edit edit, Map<MethodIdentity, MethodProcessMetrics> metricsMap) {
 
-        MethodIdentity identity = new MethodIdentity(
-                JavaParserUtils.getFullyQualifiedSignature(method, cu),
-                JavaParserUtils.getParentClassName(method),
-                method.getNameAsString()
-        );
-
-        MethodProcessMetrics data = metricsMap.computeIfAbsent(identity, k -> new MethodProcessMetrics());
+        MethodProcessMetrics data = metricsMap.computeIfAbsent(method.identity(), k -> new MethodProcessMetrics(schema));
 
         // Dati grezzi del cambiamento
         int added = edit.getLengthB();
@@ -148,8 +210,7 @@ public class ProcessMetricAnalyzer {
             MethodProcessMetrics currentData = entry.getValue();
 
             // Recupera o crea lo storico
-            globalRegistry.putIfAbsent(id, new MethodProcessMetrics());
-            MethodProcessMetrics historyData = globalRegistry.get(id);
+            MethodProcessMetrics historyData = globalRegistry.computeIfAbsent(id, k -> new MethodProcessMetrics(schema));
 
             // Delega il merge alla catena di metriche
             for (IProcessMetric metric : metricsChain) {
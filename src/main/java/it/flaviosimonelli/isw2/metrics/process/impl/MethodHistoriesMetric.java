@@ -3,6 +3,7 @@ package it.flaviosimonelli.isw2.metrics.process.impl;
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.metrics.process.IProcessMetric;
 import it.flaviosimonelli.isw2.model.MethodProcessMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
 
 import java.util.List;
 
@@ -21,6 +22,14 @@ public class MethodHistoriesMetric implements IProcessMetric {
      */
     public static final String NR_KEY = "NR";
 
+    // Ordinale di NR nello schema dell'analizzatore
+    private int nrOrdinal = -1;
+
+    @Override
+    public void bind(MetricSchema schema) {
+        this.nrOrdinal = schema.register(NR_KEY);
+    }
+
     /**
      * Aggiorna il conteggio delle revisioni.
      * Ogni volta che questo metodo viene chiamato, significa che il metodo è stato
@@ -34,7 +43,7 @@ public class MethodHistoriesMetric implements IProcessMetric {
     @Override
     public void update(MethodProcessMetrics metrics, GitCommit commit, int added, int deleted) {
         // Usiamo l'helper increaseMetric per sommare 1.0 al valore esistente
-        metrics.increaseMetric(NR_KEY, 1.0);
+        metrics.increaseMetric(nrOrdinal, 1.0);
     }
 
     /**
@@ -63,14 +72,14 @@ public class MethodHistoriesMetric implements IProcessMetric {
         if (data == null) return List.of(0);
 
         // Restituiamo come intero per pulizia nel CSV (es. 5 invece di 5.0)
-        return List.of(data.getMetric(NR_KEY).intValue());
+        return List.of((int) data.getMetric(nrOrdinal));
     }
 
     @Override
     public void merge(MethodProcessMetrics history, MethodProcessMetrics current) {
-        Double val = current.getMetric(NR_KEY);
-        if (val != null && val > 0) {
-            history.increaseMetric(NR_KEY, val);
+        double val = current.getMetric(nrOrdinal);
+        if (val > 0) { // false anche per NaN
+            history.increaseMetric(nrOrdinal, val);
         }
     }
 
@@ -3,9 +3,12 @@ package it.flaviosimonelli.isw2.metrics.process.impl;
 import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.metrics.process.IProcessMetric;
 import it.flaviosimonelli.isw2.model.MethodProcessMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
 
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Calcola il numero di autori DISTINTI (Number of Authors - NAuth).
@@ -15,8 +18,8 @@ import java.util.Set;
  * a una maggiore probabilità di bug (mancanza di ownership chiara).
  * </p>
  * <p>
- * Nota: Questa metrica gestisce un Set di stringhe internamente al {@link MethodProcessMetrics}
- * per garantire l'unicità dei nomi.
+ * Nota: i nomi degli autori vengono internati in id interi (dizionario della metrica, thread-safe):
+ * {@link MethodProcessMetrics} tiene solo gli id distinti, non un Set di stringhe per metodo.
  * </p>
  */
 public class NumberOfAuthorsMetric implements IProcessMetric {
@@ -26,10 +29,22 @@ public class NumberOfAuthorsMetric implements IProcessMetric {
      */
     public static final String NAUTH_KEY = "NAuth";
 
+    // Autore sconosciuto (nome null): conta come un autore, come nel Set originale
+    private static final int UNKNOWN_AUTHOR_ID = -1;
+
+    // Dizionario nome -> id, condiviso da tutti i metodi (e dai worker paralleli)
+    private final Map<String, Integer> authorIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextAuthorId = new AtomicInteger();
+
+    @Override
+    public void bind(MetricSchema schema) {
+        // Nessuna colonna numerica: il conteggio è la cardinalità dell'insieme di autori
+    }
+
     /**
      * Aggiorna il set degli autori.
-     * Estrae il nome dell'autore dal commit e lo aggiunge al Set gestito
-     * da {@code MethodProcessMetrics}. L'unicità è gestita dal Set stesso.
+     * Estrae il nome dell'autore dal commit, lo interna e aggiunge l'id all'insieme
+     * gestito da {@code MethodProcessMetrics}, che ignora i duplicati.
      *
      * @param metrics Il contenitore dati.
      * @param commit  Il commit corrente contenente il nome dell'autore.
@@ -38,9 +53,7 @@ public class NumberOfAuthorsMetric implements IProcessMetric {
      */
     @Override
     public void update(MethodProcessMetrics metrics, GitCommit commit, int added, int deleted) {
-        String authorName = commit.getAuthorName();
-        // addToSet aggiorna automaticamente anche il contatore numerico associato alla chiave
-        metrics.addToSet(NAUTH_KEY, authorName);
+        metrics.addAuthor(internAuthor(commit.getAuthorName()));
     }
 
     /**
@@ -66,20 +79,19 @@ public class NumberOfAuthorsMetric implements IProcessMetric {
     public List<Object> getValues(MethodProcessMetrics data, boolean isGlobal) {
         if (data == null) return List.of(0);
 
-        // Recuperiamo il valore numerico (size del Set) calcolato dal DTO
-        return List.of(data.getMetric(NAUTH_KEY).intValue());
+        // Cardinalità dell'insieme di autori tenuto dal DTO
+        return List.of(data.getAuthorCount());
     }
 
     @Override
     public void merge(MethodProcessMetrics history, MethodProcessMetrics current) {
-        // Recuperiamo il Set degli autori della release corrente
-        Set<String> newAuthors = current.getSet(NAUTH_KEY);
+        // Uniamo gli autori della release corrente a quelli storici
+        history.addAuthors(current);
+    }
 
-        // Lo uniamo al Set storico
-        for (String author : newAuthors) {
-            history.addToSet(NAUTH_KEY, author);
-        }
-        // Il DTO aggiornerà automaticamente il contatore numerico
+    private int internAuthor(String authorName) {
+        if (authorName == null) return UNKNOWN_AUTHOR_ID;
+        return authorIds.computeIfAbsent(authorName, _ -> nextAuthorId.getAndIncrement());
     }
 
     @Override
@@ -0,0 +1,107 @@
+package it.flaviosimonelli.isw2.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dizionario globale delle identità dei metodi: ogni firma riceve una volta sola un id intero denso.
+ * <p>
+ * Le stesse firme vengono ricostruite a ogni parsing (locator, calcolatore statico, store) e finivano
+ * duplicate nella mappa statica, in quella dell'intervallo, nello storico globale e nel registro SZZ.
+ * Passando per {@link #canonical(MethodIdentity)} tutte le strutture condividono la stessa istanza
+ * (e le stesse stringhe); le mappe di lunga durata usano l'id come indice ({@link MethodIdMap}).
+ * L'istanza canonica memorizza il proprio id, quindi la ricerca dell'id non ricalcola né confronta la firma.
+ * </p>
+ * Thread-safe: i worker di SZZ e dell'analisi statica internano in parallelo.
+ */
+public final class MethodIdDictionary {
+
+    private static final MethodIdDictionary GLOBAL = new MethodIdDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Scritture sotto lock; l'array viene ripubblicato (volatile) a ogni crescita
+    private volatile MethodIdentity[] identities = new MethodIdentity[1024];
+    private int nextId = 0;
+
+    /**
+     * Dizionario condiviso dall'intero processo.
+     */
+    public static MethodIdDictionary global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Id della firma, assegnato alla prima richiesta.
+     */
+    public int intern(MethodIdentity identity) {
+        int cached = cachedId(identity);
+        if (cached >= 0) return cached;
+
+        Integer id = ids.get(identity.fullSignature());
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = ids.get(identity.fullSignature());
+            if (id != null) return id;
+
+            MethodIdentity[] current = identities;
+            if (nextId == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            // L'istanza canonica porta con sé il proprio id: le ricerche successive non passano dalla mappa
+            current[nextId] = new MethodIdentity(identity.fullSignature(), identity.className(),
+                    identity.methodName(), nextId);
+            identities = current;
+            // L'id diventa visibile agli altri thread solo dopo che l'identità è nell'array
+            ids.put(identity.fullSignature(), nextId);
+            return nextId++;
+        }
+    }
+
+    /**
+     * Id della firma se già internata, -1 altrimenti (non modifica il dizionario).
+     */
+    public int idOf(MethodIdentity identity) {
+        int cached = cachedId(identity);
+        if (cached >= 0) return cached;
+
+        Integer id = ids.get(identity.fullSignature());
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Id portato dall'identità, valido solo se è proprio l'istanza canonica di questo dizionario
+     * (un id di un altro dizionario o di prima di {@link #reset()} non supera il confronto per riferimento).
+     */
+    private int cachedId(MethodIdentity identity) {
+        int id = identity.id();
+        MethodIdentity[] current = identities;
+        return (id >= 0 && id < current.length && current[id] == identity) ? id : -1;
+    }
+
+    /**
+     * Istanza canonica (la prima vista) per la firma dell'identità indicata.
+     */
+    public MethodIdentity canonical(MethodIdentity identity) {
+        return get(intern(identity));
+    }
+
+    public MethodIdentity get(int id) {
+        return identities[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Svuota il dizionario a fine run, così le firme di un progetto non restano in memoria per il successivo.
+     * Da chiamare senza worker attivi: le {@link MethodIdMap} create prima non vanno più usate.
+     */
+    public synchronized void reset() {
+        ids.clear();
+        identities = new MethodIdentity[1024];
+        nextId = 0;
+    }
+}
@@ -0,0 +1,127 @@
+package it.flaviosimonelli.isw2.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Mappa metodo -> valore indicizzata dall'id di {@link MethodIdDictionary}.
+ * <p>
+ * I valori stanno in un array denso indicizzato dall'id: nessun nodo di hash map per entry e, per le
+ * istanze canoniche del dizionario (che portano il proprio id), nessun hash né confronto della firma.
+ * Pensata per le strutture che vivono per tutto il run (storico globale delle metriche, registro SZZ)
+ * e toccano gran parte dei metodi del progetto.
+ * L'iterazione segue l'ordine degli id (ordine di prima apparizione delle firme).
+ * </p>
+ * Non ammette valori null. Non thread-safe, come {@link java.util.HashMap}.
+ */
+public class MethodIdMap<V> extends AbstractMap<MethodIdentity, V> {
+
+    private final MethodIdDictionary dictionary;
+    private Object[] values = new Object[16];
+    private int size = 0;
+
+    public MethodIdMap() {
+        this(MethodIdDictionary.global());
+    }
+
+    public MethodIdMap(MethodIdDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof MethodIdentity identity)) return null;
+        int id = dictionary.idOf(identity);
+        return (id >= 0 && id < values.length) ? (V) values[id] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(MethodIdentity key, V value) {
+        Objects.requireNonNull(value, "MethodIdMap non ammette valori null");
+        int id = dictionary.intern(key);
+        if (id >= values.length) {
+            values = Arrays.copyOf(values, Math.max(id + 1, values.length * 2));
+        }
+        V previous = (V) values[id];
+        values[id] = value;
+        if (previous == null) size++;
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (!(key instanceof MethodIdentity identity)) return null;
+        int id = dictionary.idOf(identity);
+        if (id < 0 || id >= values.length || values[id] == null) return null;
+        V previous = (V) values[id];
+        values[id] = null;
+        size--;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<MethodIdentity, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<MethodIdentity, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Scorre gli slot valorizzati; le entry sono in sola lettura (l'identità viene materializzata dal dizionario).
+     */
+    private final class EntryIterator implements Iterator<Entry<MethodIdentity, V>> {
+        private int next = advance(0);
+
+        private int advance(int from) {
+            int i = from;
+            while (i < values.length && values[i] == null) i++;
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<MethodIdentity, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int id = next;
+            next = advance(id + 1);
+            return new SimpleImmutableEntry<>(dictionary.get(id), (V) values[id]);
+        }
+    }
+}
@@ -9,8 +9,16 @@ import java.util.Objects;
  * @param fullSignature L'identificativo univoco (es. "it.pkg.MyClass.myMethod(int)")
  * @param className     Nome della classe
  * @param methodName    Nome del metodo
+ * @param id            Id assegnato da {@link MethodIdDictionary} all'istanza canonica, {@link #NO_ID} altrimenti
+ *                      (non partecipa a equals/hashCode)
  */
-public record MethodIdentity(String fullSignature, String className, String methodName) {
+public record MethodIdentity(String fullSignature, String className, String methodName, int id) {
+
+    public static final int NO_ID = -1;
+
+    public MethodIdentity(String fullSignature, String className, String methodName) {
+        this(fullSignature, className, methodName, NO_ID);
+    }
 
     /**
      * Costruttore compatto per la validazione.
@@ -33,10 +41,11 @@ public record MethodIdentity(String fullSignature, String className, String meth
 
     /**
      * L'hashcode deve essere consistente con la logica di equals basata solo sulla firma.
+     * Usiamo l'hash della String (calcolato una volta e memorizzato) senza l'array varargs di Objects.hash.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(fullSignature);
+        return fullSignature.hashCode();
     }
 
     @Override
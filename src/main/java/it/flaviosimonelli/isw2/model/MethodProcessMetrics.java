@@ -1,54 +1,111 @@
 package it.flaviosimonelli.isw2.model;
 
-import java.util.*;
+import java.util.Arrays;
 
 /**
  * Contenitore puro per le metriche di processo (storiche).
  * Esempio: Numero di revisioni, Linee aggiunte, Autori distinti.
+ * <p>
+ * I valori numerici vivono in un {@code double[]} indicizzato dallo {@link MetricSchema} dell'analizzatore
+ * (NaN = metrica mai aggiornata); gli autori distinti sono id interi internati, in un array ordinato.
+ * </p>
  */
 public class MethodProcessMetrics {
 
-    // Mappa per valori numerici semplici (CSV ready)
-    private final Map<String, Double> metrics = new HashMap<>();
+    private static final int[] NO_AUTHORS = new int[0];
 
-    // Mappa per dati complessi (es. Set di Autori) necessari per il calcolo
-    private final Map<String, Set<String>> complexData = new HashMap<>();
+    private final MetricSchema schema;
+    // Valori numerici (CSV ready), per ordinale
+    private double[] values;
 
-    // --- Gestione Metriche Numeriche ---
-    public void addMetric(String key, double value) {
-        metrics.put(key, value);
+    // Autori distinti: id ordinati in authors[0..authorCount)
+    private int[] authors = NO_AUTHORS;
+    private int authorCount = 0;
+
+    public MethodProcessMetrics(MetricSchema schema) {
+        this.schema = schema;
+        this.values = newValues(schema.size());
     }
 
-    public Double getMetric(String key) {
-        return metrics.get(key);
+    // --- Gestione Metriche Numeriche ---
+
+    /**
+     * Valore della metrica con l'ordinale indicato; NaN se mai aggiornata.
+     */
+    public double getMetric(int ordinal) {
+        return (ordinal < values.length) ? values[ordinal] : Double.NaN;
     }
 
-    public Map<String, Double> getMetrics() {
-        return Collections.unmodifiableMap(metrics);
+    /**
+     * Lookup per nome (colonne lette singolarmente); null se la metrica non è valorizzata.
+     */
+    public Double getMetric(String key) {
+        int ordinal = schema.ordinalOf(key);
+        if (ordinal < 0) return null;
+        double value = getMetric(ordinal);
+        return Double.isNaN(value) ? null : value;
     }
 
     /**
      * Somma il valore a quello esistente (es. Totale Churn).
      */
-    public void increaseMetric(String key, double valueToAdd) {
-        metrics.merge(key, valueToAdd, Double::sum);
+    public void increaseMetric(int ordinal, double valueToAdd) {
+        ensureCapacity(ordinal);
+        double current = values[ordinal];
+        values[ordinal] = Double.isNaN(current) ? valueToAdd : current + valueToAdd;
     }
 
     /**
      * Aggiorna il valore solo se il nuovo è maggiore (es. Max Churn).
      */
-    public void updateMax(String key, double potentialNewMax) {
-        metrics.merge(key, potentialNewMax, Math::max);
+    public void updateMax(int ordinal, double potentialNewMax) {
+        ensureCapacity(ordinal);
+        double current = values[ordinal];
+        values[ordinal] = Double.isNaN(current) ? potentialNewMax : Math.max(current, potentialNewMax);
     }
 
-    // --- Gestione Dati Complessi (Per Autori Distinti) ---
-    public void addToSet(String metricName, String value) {
-        complexData.computeIfAbsent(metricName, _ -> new HashSet<>()).add(value);
-        // Aggiorniamo subito il contatore numerico
-        metrics.put(metricName, (double) complexData.get(metricName).size());
+    // Metriche registrate dopo la creazione del contenitore (register() esplicito sull'analizzatore)
+    private void ensureCapacity(int ordinal) {
+        if (ordinal >= values.length) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, Math.max(ordinal + 1, schema.size()));
+            Arrays.fill(values, oldLength, values.length, Double.NaN);
+        }
+    }
+
+    private static double[] newValues(int size) {
+        double[] result = new double[size];
+        Arrays.fill(result, Double.NaN);
+        return result;
+    }
+
+    // --- Gestione Autori Distinti ---
+
+    /**
+     * Aggiunge un autore (id internato); i duplicati sono ignorati.
+     */
+    public void addAuthor(int authorId) {
+        int pos = Arrays.binarySearch(authors, 0, authorCount, authorId);
+        if (pos >= 0) return;
+        int insertAt = -pos - 1;
+        if (authorCount == authors.length) {
+            authors = Arrays.copyOf(authors, Math.max(2, authorCount * 2));
+        }
+        System.arraycopy(authors, insertAt, authors, insertAt + 1, authorCount - insertAt);
+        authors[insertAt] = authorId;
+        authorCount++;
+    }
+
+    /**
+     * Unisce gli autori di {@code other} a questi (Set Union).
+     */
+    public void addAuthors(MethodProcessMetrics other) {
+        for (int i = 0; i < other.authorCount; i++) {
+            addAuthor(other.authors[i]);
+        }
     }
 
-    public Set<String> getSet(String metricName) {
-        return complexData.getOrDefault(metricName, Collections.emptySet());
+    public int getAuthorCount() {
+        return authorCount;
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,61 @@
 package it.flaviosimonelli.isw2.model;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Metriche statiche di un metodo, in un {@code double[]} indicizzato dallo {@link MetricSchema}
+ * del calcolatore. NaN = metrica non valorizzata.
+ */
 public class MethodStaticMetrics {
-    private final Map<String, Double> metrics = new HashMap<>();
+    private final MetricSchema schema;
+    private final double[] values;
+
+    public MethodStaticMetrics(MetricSchema schema) {
+        this.schema = schema;
+        this.values = new double[schema.size()];
+        Arrays.fill(values, Double.NaN);
+    }
+
+    public MetricSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Valorizza la metrica con l'ordinale indicato (percorso caldo del calcolo).
+     */
+    public void set(int ordinal, double value) {
+        values[ordinal] = value;
+    }
+
+    /**
+     * Valore della metrica con l'ordinale indicato; NaN se non valorizzata.
+     */
+    public double get(int ordinal) {
+        return values[ordinal];
+    }
 
     public void addMetric(String key, double value) {
-        metrics.put(key, value);
+        int ordinal = schema.ordinalOf(key);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Metrica non registrata nello schema: " + key);
+        }
+        values[ordinal] = value;
     }
 
     public Double getMetric(String key) {
-        return metrics.get(key);
+        int ordinal = schema.ordinalOf(key);
+        if (ordinal < 0 || Double.isNaN(values[ordinal])) return null;
+        return values[ordinal];
     }
 
     public Map<String, Double> getMetrics() {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (!Double.isNaN(values[i])) metrics.put(schema.nameAt(i), values[i]);
+        }
         return Collections.unmodifiableMap(metrics);
     }
-}
\ No newline at end of file
+}
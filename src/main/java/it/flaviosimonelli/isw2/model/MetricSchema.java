@@ -0,0 +1,57 @@
+package it.flaviosimonelli.isw2.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schema delle metriche: associa a ogni nome un ordinale, assegnato alla registrazione.
+ * <p>
+ * I contenitori ({@link MethodStaticMetrics}, {@link MethodProcessMetrics}) salvano i valori in un
+ * {@code double[]} indicizzato dall'ordinale: niente Double boxati né hash della chiave a ogni aggiornamento.
+ * Il lookup per nome resta disponibile per chi legge una singola colonna (report, refactoring).
+ * </p>
+ * La registrazione avviene in fase di configurazione (costruttore del calcolatore/analizzatore);
+ * dopo, lo schema è solo letto e può essere condiviso tra thread.
+ */
+public final class MetricSchema {
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    /**
+     * Registra la metrica e ne restituisce l'ordinale. Idempotente: lo stesso nome ottiene sempre lo stesso ordinale.
+     */
+    public int register(String name) {
+        Integer existing = ordinals.get(name);
+        if (existing != null) return existing;
+        names.add(name);
+        ordinals.put(name, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    /**
+     * Ordinale della metrica, -1 se non registrata.
+     */
+    public int ordinalOf(String name) {
+        Integer ordinal = ordinals.get(name);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public String nameAt(int ordinal) {
+        return names.get(ordinal);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Nomi in ordine di ordinale (vista non modificabile).
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(names);
+    }
+}
@@ -0,0 +1,189 @@
+package it.flaviosimonelli.isw2.parser;
+
+import java.util.Arrays;
+
+/**
+ * Tokenizer minimale per sorgenti Java: produce solo ciò che serve a individuare i confini dei metodi
+ * (identificatori, punteggiatura, letterali opachi), scartando spazi e commenti.
+ * <p>
+ * I token sono memorizzati in array paralleli di primitivi; il testo degli identificatori
+ * non viene copiato ma confrontato direttamente sul sorgente.
+ * Le righe sono contate come JavaParser (\n, \r\n e \r isolato).
+ * </p>
+ */
+final class JavaTokenizer {
+    static final int IDENT = -1;
+    static final int LITERAL = -2;
+    static final int ELLIPSIS = -3;
+    static final int ARROW = -4;
+    static final int EOF = -5;
+
+    private final String source;
+    private int[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int count;
+
+    private JavaTokenizer(String source) {
+        this.source = source;
+        int capacity = Math.max(16, source.length() / 4);
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    /**
+     * @throws UnsupportedSourceException se il sorgente contiene costrutti che il tokenizer non gestisce
+     *                                    (text block, letterali non chiusi).
+     */
+    static JavaTokenizer tokenize(String source) {
+        JavaTokenizer tokenizer = new JavaTokenizer(source);
+        tokenizer.run();
+        return tokenizer;
+    }
+
+    private void run() {
+        final String src = source;
+        final int length = src.length();
+        int pos = 0;
+        int line = 1;
+
+        while (pos < length) {
+            char c = src.charAt(pos);
+
+            if (c == '\n') {
+                line++;
+                pos++;
+            } else if (c == '\r') {
+                line++;
+                pos++;
+                if (pos < length && src.charAt(pos) == '\n') pos++;
+            } else if (c == ' ' || c == '\t' || c == '\f') {
+                pos++;
+            } else if (c == '/' && pos + 1 < length && src.charAt(pos + 1) == '/') {
+                while (pos < length && src.charAt(pos) != '\n' && src.charAt(pos) != '\r') pos++;
+            } else if (c == '/' && pos + 1 < length && src.charAt(pos + 1) == '*') {
+                int close = src.indexOf("*/", pos + 2);
+                if (close < 0) throw new UnsupportedSourceException("commento non chiuso");
+                line += countLines(pos + 2, close);
+                pos = close + 2;
+            } else if (c == '"') {
+                if (src.startsWith("\"\"\"", pos)) throw new UnsupportedSourceException("text block");
+                int end = skipQuoted(pos, '"');
+                add(LITERAL, pos, end, line);
+                pos = end;
+            } else if (c == '\'') {
+                int end = skipQuoted(pos, '\'');
+                add(LITERAL, pos, end, line);
+                pos = end;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = pos + 1;
+                while (end < length && Character.isJavaIdentifierPart(src.charAt(end))) end++;
+                add(IDENT, pos, end, line);
+                pos = end;
+            } else if (isDigit(c) || (c == '.' && pos + 1 < length && isDigit(src.charAt(pos + 1)))) {
+                // Il valore dei numeri non interessa: basta non spezzarli in token strutturali
+                int end = pos + 1;
+                while (end < length && (Character.isLetterOrDigit(src.charAt(end)) || src.charAt(end) == '_' || src.charAt(end) == '.')) end++;
+                add(LITERAL, pos, end, line);
+                pos = end;
+            } else if (c == '.' && src.startsWith("...", pos)) {
+                add(ELLIPSIS, pos, pos + 3, line);
+                pos += 3;
+            } else if (c == '-' && pos + 1 < length && src.charAt(pos + 1) == '>') {
+                add(ARROW, pos, pos + 2, line);
+                pos += 2;
+            } else if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '\\') {
+                // Fuori da letterali e commenti un backslash può essere solo un escape unicode
+                throw new UnsupportedSourceException("escape unicode nel codice");
+            } else {
+                // Punteggiatura e operatori: un token per carattere ('>>' diventa due '>')
+                add(c, pos, pos + 1, line);
+                pos++;
+            }
+        }
+        add(EOF, length, length, line);
+    }
+
+    private int skipQuoted(int pos, char quote) {
+        int i = pos + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                break;
+            } else {
+                i++;
+            }
+        }
+        throw new UnsupportedSourceException("letterale non chiuso");
+    }
+
+    private int countLines(int from, int to) {
+        int newLines = 0;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            if (c == '\n') {
+                newLines++;
+            } else if (c == '\r') {
+                newLines++;
+                if (i + 1 < to && source.charAt(i + 1) == '\n') i++;
+            }
+        }
+        return newLines;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void add(int kind, int start, int end, int line) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        lines[count] = line;
+        count++;
+    }
+
+    // --- Accesso ai token (indici fuori range = EOF) ---
+
+    int size() {
+        return count;
+    }
+
+    int kind(int i) {
+        return (i < count) ? kinds[i] : EOF;
+    }
+
+    int line(int i) {
+        return lines[Math.min(i, count - 1)];
+    }
+
+    boolean isIdent(int i, String word) {
+        return kind(i) == IDENT
+                && ends[i] - starts[i] == word.length()
+                && source.startsWith(word, starts[i]);
+    }
+
+    String text(int i) {
+        return source.substring(starts[i], ends[i]);
+    }
+
+    void appendText(StringBuilder sb, int i) {
+        sb.append(source, starts[i], ends[i]);
+    }
+}
@@ -0,0 +1,20 @@
+package it.flaviosimonelli.isw2.parser;
+
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+
+/**
+ * Posizione di un metodo nel file: identità (come prodotta da JavaParserUtils) e righe di inizio/fine.
+ *
+ * @param identity  identità del metodo (firma completa, classe, nome)
+ * @param beginLine prima riga della dichiarazione (annotazioni e modificatori inclusi), base-1
+ * @param endLine   ultima riga (graffa di chiusura del corpo o ';'), base-1
+ */
+public record MethodBoundary(MethodIdentity identity, int beginLine, int endLine) {
+
+    /**
+     * True se l'intervallo di righe [start, end] (base-1, estremi inclusi) interseca il metodo.
+     */
+    public boolean overlaps(int start, int end) {
+        return start <= endLine && end >= beginLine;
+    }
+}
@@ -0,0 +1,90 @@
+package it.flaviosimonelli.isw2.parser;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import it.flaviosimonelli.isw2.model.MethodIdDictionary;
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+import it.flaviosimonelli.isw2.util.AppConfig;
+import it.flaviosimonelli.isw2.util.JavaParserUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Individua i metodi di un file sorgente (firma come {@link JavaParserUtils} e righe di inizio/fine)
+ * senza costruire l'AST completo.
+ * <p>
+ * SZZ e metriche di processo hanno bisogno solo dei confini dei metodi per mappare gli edit:
+ * uno scanner sui token costa molto meno di {@code StaticJavaParser.parse}. Quando lo scanner
+ * non può garantire lo stesso risultato (costrutti oltre Java 11, escape unicode, sorgenti malformati)
+ * si ripiega su JavaParser, che resta il riferimento.
+ * </p>
+ * Configurazione: {@code method.locator} = LEXER (default) | JAVAPARSER. Thread-safe.
+ */
+public class MethodBoundaryLocator {
+    private static final Logger logger = LoggerFactory.getLogger(MethodBoundaryLocator.class);
+
+    private final boolean lexerEnabled;
+
+    // Statistiche: file risolti dallo scanner e file passati a JavaParser
+    private final AtomicLong lexerFiles = new AtomicLong();
+    private final AtomicLong fallbackFiles = new AtomicLong();
+
+    public MethodBoundaryLocator() {
+        this.lexerEnabled = !"JAVAPARSER".equalsIgnoreCase(AppConfig.getProperty("method.locator", "LEXER"));
+    }
+
+    /**
+     * @return i metodi del file nell'ordine di {@code cu.findAll(MethodDeclaration.class)}.
+     * @throws com.github.javaparser.ParseProblemException se il file non è parsabile (come StaticJavaParser).
+     */
+    public List<MethodBoundary> locate(String sourceCode) {
+        if (lexerEnabled) {
+            try {
+                List<MethodBoundary> methods = MethodBoundaryScanner.scan(sourceCode);
+                lexerFiles.incrementAndGet();
+                return methods;
+            } catch (UnsupportedSourceException e) {
+                logger.trace("Scanner leggero non applicabile ({}), uso JavaParser.", e.getMessage());
+            }
+        }
+        fallbackFiles.incrementAndGet();
+        return locateWithJavaParser(sourceCode);
+    }
+
+    /**
+     * Percorso di riferimento: parsing completo con JavaParser.
+     */
+    public static List<MethodBoundary> locateWithJavaParser(String sourceCode) {
+        CompilationUnit cu = StaticJavaParser.parse(sourceCode);
+        List<MethodBoundary> methods = new ArrayList<>();
+
+        for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+            if (method.getBegin().isEmpty() || method.getEnd().isEmpty()) continue;
+
+            MethodIdentity identity = MethodIdDictionary.global().canonical(new MethodIdentity(
+                    JavaParserUtils.getFullyQualifiedSignature(method, cu),
+                    JavaParserUtils.getParentClassName(method),
+                    method.getNameAsString()
+            ));
+            methods.add(new MethodBoundary(identity, method.getBegin().get().line, method.getEnd().get().line));
+        }
+        return methods;
+    }
+
+    /**
+     * Logga quanti file sono stati risolti dallo scanner e quanti con il fallback su JavaParser.
+     */
+    public void logStats(String context) {
+        long lexer = lexerFiles.get();
+        long fallback = fallbackFiles.get();
+        long total = lexer + fallback;
+        double lexerRate = (total > 0) ? (double) lexer / total * 100.0 : 0.0;
+        logger.info("Method locator [{}]: {} file via scanner, {} via JavaParser (scanner {}%).",
+                context, lexer, fallback, "%.1f".formatted(lexerRate));
+    }
+}
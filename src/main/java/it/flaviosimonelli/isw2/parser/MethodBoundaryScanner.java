@@ -0,0 +1,656 @@
+package it.flaviosimonelli.isw2.parser;
+
+import it.flaviosimonelli.isw2.model.MethodIdDictionary;
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static it.flaviosimonelli.isw2.parser.JavaTokenizer.ARROW;
+import static it.flaviosimonelli.isw2.parser.JavaTokenizer.ELLIPSIS;
+import static it.flaviosimonelli.isw2.parser.JavaTokenizer.EOF;
+import static it.flaviosimonelli.isw2.parser.JavaTokenizer.IDENT;
+
+/**
+ * Scanner a discesa ricorsiva sui token: riconosce dichiarazioni di tipo, membri e corpi dei metodi
+ * senza costruire l'AST, producendo gli stessi {@link MethodBoundary} che si otterrebbero da JavaParser.
+ * <p>
+ * Regole replicate da JavaParser / {@code JavaParserUtils}:
+ * <ul>
+ * <li>Firma: {@code nome(Tipo1, Tipo2)}, generics del tipo esterno rimossi (tranne per gli array),
+ * varargs come array, annotazioni sui tipi rimosse, receiver parameter escluso.</li>
+ * <li>Catena di classi: solo class/interface/enum (anche locali); classi anonime, record e
+ * annotation type non compaiono nel prefisso.</li>
+ * <li>Righe: dalla prima annotazione/modificatore alla graffa di chiusura (o ';').</li>
+ * </ul>
+ * Costrutti successivi a Java 11 (livello di default di StaticJavaParser, su cui il parsing fallisce),
+ * escape unicode fuori da commenti/letterali e sorgenti malformati generano {@link UnsupportedSourceException}.
+ * </p>
+ * Istanza monouso, non thread-safe.
+ */
+final class MethodBoundaryScanner {
+
+    private static final Set<String> MODIFIERS = Set.of(
+            "public", "protected", "private", "static", "abstract", "final", "native",
+            "synchronized", "transient", "volatile", "strictfp", "default");
+
+    // Tipi di corpo
+    private static final int CLASS = 1;
+    private static final int ENUM = 2;
+    private static final int ANNOTATION = 3;
+
+    // Terminatori per scanCode
+    private static final int END_BRACE = 0;
+    private static final int END_PAREN = 1;
+    private static final int END_SEMI = 2;
+
+    private final JavaTokenizer tokens;
+    private final List<MethodBoundary> result = new ArrayList<>();
+    private String packagePrefix = "";
+
+    private MethodBoundaryScanner(JavaTokenizer tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * @return i metodi del file in ordine di apparizione (lo stesso di {@code cu.findAll(MethodDeclaration.class)}).
+     * @throws UnsupportedSourceException se il risultato potrebbe differire da quello di JavaParser.
+     */
+    static List<MethodBoundary> scan(String sourceCode) {
+        checkUnicodeEscapes(sourceCode);
+
+        MethodBoundaryScanner scanner = new MethodBoundaryScanner(JavaTokenizer.tokenize(sourceCode));
+        scanner.scanCompilationUnit();
+        return scanner.result;
+    }
+
+    /**
+     * JavaParser traduce gli escape unicode prima del lexing. Dentro commenti e letterali sono innocui,
+     * a meno che non producano caratteri strutturali (fine riga, apici, backslash, fine commento).
+     * Fuori da commenti e letterali li rifiuta il tokenizer.
+     */
+    private static void checkUnicodeEscapes(String sourceCode) {
+        int index = sourceCode.indexOf("\\u");
+        while (index >= 0) {
+            int hex = index + 2;
+            while (hex < sourceCode.length() && sourceCode.charAt(hex) == 'u') hex++;
+            if (hex + 4 > sourceCode.length()) throw new UnsupportedSourceException("escape unicode malformato");
+            int value;
+            try {
+                value = Integer.parseInt(sourceCode, hex, hex + 4, 16);
+            } catch (NumberFormatException e) {
+                throw new UnsupportedSourceException("escape unicode malformato");
+            }
+            if ("\n\r\"'\\*/".indexOf(value) >= 0) throw new UnsupportedSourceException("escape unicode strutturale");
+            index = sourceCode.indexOf("\\u", hex);
+        }
+    }
+
+    // --- Livello file ---
+
+    private void scanCompilationUnit() {
+        int p = 0;
+        while (kind(p) != EOF) {
+            if (kind(p) == ';') {
+                p++;
+                continue;
+            }
+            p = skipModifiers(p);
+            if (tokens.isIdent(p, "package")) {
+                p = parsePackage(p + 1);
+            } else if (tokens.isIdent(p, "import")) {
+                p = skipPast(p, ';');
+            } else {
+                int declKind = typeDeclarationKind(p);
+                if (declKind < 0) throw unsupported("dichiarazione top-level non riconosciuta", p);
+                p = parseTypeDeclaration(p, "", declKind);
+            }
+        }
+    }
+
+    private int parsePackage(int p) {
+        StringBuilder sb = new StringBuilder();
+        while (kind(p) != ';') {
+            if (kind(p) == IDENT) {
+                tokens.appendText(sb, p);
+            } else if (kind(p) == '.') {
+                sb.append('.');
+            } else {
+                throw unsupported("package malformato", p);
+            }
+            p++;
+        }
+        packagePrefix = sb.isEmpty() ? "" : sb + ".";
+        return p + 1;
+    }
+
+    // --- Dichiarazioni di tipo ---
+
+    /**
+     * @return CLASS/ENUM/ANNOTATION se in {@code p} inizia una dichiarazione di tipo, -1 altrimenti.
+     */
+    private int typeDeclarationKind(int p) {
+        if (tokens.isIdent(p, "class") || tokens.isIdent(p, "interface")) return CLASS;
+        if (tokens.isIdent(p, "enum")) return ENUM;
+        if (kind(p) == '@' && tokens.isIdent(p + 1, "interface")) return ANNOTATION;
+        if (tokens.isIdent(p, "record") && kind(p + 1) == IDENT) throw unsupported("record", p);
+        return -1;
+    }
+
+    /**
+     * @param p posizione della keyword (o di '@' per gli annotation type).
+     * @return posizione successiva alla graffa di chiusura del corpo.
+     */
+    private int parseTypeDeclaration(int p, String classPrefix, int declKind) {
+        int nameIndex = (declKind == ANNOTATION) ? p + 2 : p + 1;
+        if (kind(nameIndex) != IDENT) throw unsupported("nome del tipo mancante", nameIndex);
+
+        // Come JavaParserUtils: nel prefisso solo class/interface/enum
+        String prefix = (declKind == ANNOTATION) ? classPrefix : classPrefix + tokens.text(nameIndex) + ".";
+
+        // Header (type parameters, extends, implements) fino alla graffa
+        int q = nameIndex + 1;
+        while (kind(q) != '{') {
+            int k = kind(q);
+            if (k == '<') {
+                q = skipAngles(q);
+            } else if (k == '@') {
+                q = skipAnnotation(q);
+            } else if (k == IDENT && tokens.isIdent(q, "permits")) {
+                throw unsupported("sealed", q);
+            } else if (k == IDENT || k == '.' || k == ',') {
+                q++;
+            } else {
+                throw unsupported("header di tipo non riconosciuto", q);
+            }
+        }
+        return parseTypeBody(q + 1, prefix, declKind);
+    }
+
+    /**
+     * @param p posizione successiva alla graffa di apertura.
+     * @return posizione successiva alla graffa di chiusura.
+     */
+    private int parseTypeBody(int p, String prefix, int bodyKind) {
+        List<MethodBoundary> constantMethods = List.of();
+        if (bodyKind == ENUM) {
+            int firstConstantMethod = result.size();
+            p = parseEnumConstants(p, prefix);
+            // Nell'AST di JavaParser i membri dell'enum precedono le costanti:
+            // i metodi dei corpi delle costanti vanno riportati dopo quelli dell'enum
+            List<MethodBoundary> found = result.subList(firstConstantMethod, result.size());
+            constantMethods = new ArrayList<>(found);
+            found.clear();
+        }
+        while (kind(p) != '}') {
+            if (kind(p) == EOF) throw unsupported("corpo di tipo non chiuso", p);
+            p = parseMember(p, prefix, bodyKind);
+        }
+        result.addAll(constantMethods);
+        return p + 1;
+    }
+
+    /**
+     * @return posizione del primo membro dopo le costanti (o della graffa di chiusura).
+     */
+    private int parseEnumConstants(int p, String prefix) {
+        while (true) {
+            p = skipModifiers(p);
+            int k = kind(p);
+            if (k == ';') return p + 1;
+            if (k == '}') return p;
+            if (k == ',') {
+                p++;
+                continue;
+            }
+            if (k != IDENT) throw unsupported("costante enum non riconosciuta", p);
+            p++;
+            if (kind(p) == '(') {
+                p = scanCode(p + 1, END_PAREN, prefix) + 1;
+            }
+            if (kind(p) == '{') {
+                // Il corpo della costante non compare nella catena di classi
+                p = parseTypeBody(p + 1, prefix, CLASS);
+            }
+        }
+    }
+
+    // --- Membri ---
+
+    private int parseMember(int p, String prefix, int bodyKind) {
+        if (kind(p) == ';') return p + 1;
+
+        int memberStart = p;
+        p = skipModifiers(p);
+
+        int declKind = typeDeclarationKind(p);
+        if (declKind >= 0) {
+            return parseTypeDeclaration(p, prefix, declKind);
+        }
+        if (kind(p) == '{') {
+            // Blocco di inizializzazione (anche static)
+            return scanCode(p + 1, END_BRACE, prefix) + 1;
+        }
+        if (kind(p) == '<') {
+            p = skipAngles(p);
+        }
+
+        // Tipo + nome (o solo nome per i costruttori)
+        int headerStart = p;
+        while (true) {
+            int k = kind(p);
+            if (k == IDENT || k == '.' || k == '[' || k == ']') {
+                p++;
+            } else if (k == '<') {
+                p = skipAngles(p);
+            } else if (k == '@') {
+                p = skipAnnotation(p);
+            } else {
+                break;
+            }
+        }
+
+        int k = kind(p);
+        if (k == '=' || k == ';' || k == ',') {
+            // Campo: l'inizializzatore può contenere classi anonime
+            return scanCode(p, END_SEMI, prefix, headerStart) + 1;
+        }
+        if (k != '(' || kind(p - 1) != IDENT || p - 1 < headerStart) {
+            throw unsupported("membro non riconosciuto", p);
+        }
+        return parseCallable(memberStart, headerStart, p, prefix, bodyKind);
+    }
+
+    /**
+     * Metodo, costruttore o membro di annotation type.
+     * @param openParen posizione della parentesi dei parametri (il nome è subito prima).
+     */
+    private int parseCallable(int memberStart, int headerStart, int openParen, String prefix, int bodyKind) {
+        int nameIndex = openParen - 1;
+        int closeParen = matchParen(openParen);
+        boolean isMethod = nameIndex > headerStart && bodyKind != ANNOTATION;
+
+        int slot = -1;
+        String name = null;
+        String signature = null;
+        if (isMethod) {
+            name = tokens.text(nameIndex);
+            signature = name + "(" + buildParameterTypes(openParen + 1, closeParen) + ")";
+            // Il metodo va inserito prima di eventuali metodi annidati nel corpo (pre-ordine)
+            slot = result.size();
+            result.add(null);
+        }
+
+        // Dimensioni legacy, throws, default (annotation type) fino al corpo o ';'
+        int q = closeParen + 1;
+        while (kind(q) != '{' && kind(q) != ';') {
+            if (tokens.isIdent(q, "default")) {
+                q = scanCode(q + 1, END_SEMI, prefix);
+                break;
+            }
+            if (kind(q) == '@') {
+                q = skipAnnotation(q);
+            } else if (kind(q) == '<') {
+                q = skipAngles(q);
+            } else if (kind(q) == IDENT || kind(q) == '.' || kind(q) == ',' || kind(q) == '[' || kind(q) == ']') {
+                q++;
+            } else {
+                throw unsupported("dichiarazione di metodo non riconosciuta", q);
+            }
+        }
+
+        int end = (kind(q) == '{') ? scanCode(q + 1, END_BRACE, prefix) : q;
+
+        if (isMethod) {
+            String className = prefix.isEmpty() ? "" : prefix.substring(0, prefix.length() - 1);
+            MethodIdentity identity = MethodIdDictionary.global().canonical(
+                    new MethodIdentity(packagePrefix + prefix + signature, className, name));
+            result.set(slot, new MethodBoundary(identity, tokens.line(memberStart), tokens.line(end)));
+        }
+        return end + 1;
+    }
+
+    // --- Firma ---
+
+    /**
+     * Tipi dei parametri separati da ", " nel formato di {@code Signature.asString()} di JavaParser.
+     */
+    private String buildParameterTypes(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        int start = from;
+        int angleDepth = 0;
+        for (int p = from; p <= to; p++) {
+            int k = kind(p);
+            if (k == '@') {
+                p = skipAnnotation(p) - 1;
+            } else if (k == '<') {
+                angleDepth++;
+            } else if (k == '>') {
+                angleDepth--;
+            } else if ((k == ',' && angleDepth == 0) || p == to) {
+                if (p > start) {
+                    appendParameterType(sb, start, p);
+                } else if (p < to || start > from) {
+                    throw unsupported("parametro vuoto", p);
+                }
+                start = p + 1;
+            }
+        }
+        return sb.toString();
+    }
+
+    private void appendParameterType(StringBuilder sb, int from, int to) {
+        // Modificatori e annotazioni del parametro
+        int p = from;
+        while (true) {
+            if (kind(p) == '@') {
+                p = skipAnnotation(p);
+            } else if (tokens.isIdent(p, "final")) {
+                p++;
+            } else {
+                break;
+            }
+        }
+
+        // Dimensioni dopo il nome (String args[])
+        int nameIndex = to - 1;
+        int trailingDims = 0;
+        while (nameIndex > p && kind(nameIndex) == ']' && kind(nameIndex - 1) == '[') {
+            trailingDims++;
+            nameIndex -= 2;
+        }
+        while (nameIndex > p && kind(nameIndex) == ']') {
+            // Annotazioni tra le parentesi (int @A [] x) o forme non previste
+            throw unsupported("dimensioni non riconosciute", nameIndex);
+        }
+        if (kind(nameIndex) != IDENT || nameIndex <= p) throw unsupported("parametro senza nome", nameIndex);
+        if (tokens.isIdent(nameIndex, "this")) return; // Receiver parameter: non fa parte della firma
+
+        if (!sb.isEmpty()) sb.append(", ");
+        int typeStart = sb.length();
+
+        boolean varargs = kind(nameIndex - 1) == ELLIPSIS;
+        int typeEnd = varargs ? nameIndex - 1 : nameIndex;
+        boolean isArray = varargs || trailingDims > 0;
+
+        // Posizione dei type argument del tipo più esterno (rimossi se il tipo non è un array)
+        int outerArgsStart = -1;
+        int depth = 0;
+        for (int i = p; i < typeEnd; i++) {
+            int k = kind(i);
+            if (k == '@') {
+                i = skipAnnotation(i) - 1;
+            } else if (k == IDENT) {
+                if (depth > 0 && (tokens.isIdent(i, "extends") || tokens.isIdent(i, "super"))) {
+                    sb.append(' ');
+                    tokens.appendText(sb, i);
+                    sb.append(' ');
+                } else {
+                    tokens.appendText(sb, i);
+                }
+            } else if (k == '<') {
+                if (depth == 0) outerArgsStart = sb.length();
+                depth++;
+                sb.append('<');
+            } else if (k == '>') {
+                depth--;
+                sb.append('>');
+            } else if (k == '.') {
+                // Type argument dello scope (Outer<A>.Inner): restano
+                if (depth == 0) outerArgsStart = -1;
+                sb.append('.');
+            } else if (k == '[' || k == ']') {
+                if (depth == 0) isArray = true;
+                sb.append((char) k);
+            } else if (k == ',' || k == '?') {
+                sb.append((char) k);
+            } else {
+                throw unsupported("tipo di parametro non riconosciuto", i);
+            }
+        }
+        if (depth != 0 || sb.length() == typeStart) throw unsupported("tipo di parametro malformato", from);
+
+        if (!isArray && outerArgsStart >= 0) {
+            sb.setLength(outerArgsStart);
+        }
+        for (int i = 0; i < trailingDims; i++) sb.append("[]");
+        if (varargs) sb.append("[]");
+    }
+
+    // --- Codice (corpi, inizializzatori, argomenti) ---
+
+    private int scanCode(int p, int terminator, String prefix) {
+        return scanCode(p, terminator, prefix, p);
+    }
+
+    /**
+     * Scorre codice bilanciato cercando classi anonime e locali (i cui metodi vanno riportati)
+     * e costrutti non supportati da JavaParser al livello Java 11.
+     *
+     * @return posizione del terminatore ('}' o ')' di chiusura, oppure ';' a profondità zero).
+     */
+    private int scanCode(int p, int terminator, String prefix, int regionStart) {
+        int depth = 0;
+        while (true) {
+            int k = kind(p);
+            switch (k) {
+                case '(', '[', '{' -> {
+                    depth++;
+                    p++;
+                }
+                case ')', ']', '}' -> {
+                    if (depth == 0) {
+                        boolean expected = (terminator == END_PAREN && k == ')') || (terminator == END_BRACE && k == '}');
+                        if (!expected) throw unsupported("parentesi non bilanciate", p);
+                        return p;
+                    }
+                    depth--;
+                    p++;
+                }
+                case ';' -> {
+                    if (depth == 0 && terminator == END_SEMI) return p;
+                    p++;
+                }
+                case EOF -> throw unsupported("fine file inattesa", p);
+                case IDENT -> p = scanIdentifier(p, prefix, regionStart);
+                default -> p++;
+            }
+        }
+    }
+
+    private int scanIdentifier(int p, String prefix, int regionStart) {
+        boolean afterDot = p > regionStart && kind(p - 1) == '.';
+
+        if (tokens.isIdent(p, "new")) {
+            return scanObjectCreation(p, prefix);
+        }
+        if (!afterDot && tokens.isIdent(p, "class")) {
+            // Classe locale: compare nella catena
+            return parseTypeDeclaration(p, prefix, CLASS);
+        }
+        if (!afterDot && (tokens.isIdent(p, "enum") || tokens.isIdent(p, "interface"))) {
+            throw unsupported("enum/interface locale", p);
+        }
+        if (tokens.isIdent(p, "record") && kind(p + 1) == IDENT && (kind(p + 2) == '(' || kind(p + 2) == '<')) {
+            throw unsupported("record locale", p);
+        }
+        if (tokens.isIdent(p, "case")) {
+            checkCaseLabel(p + 1);
+        } else if (tokens.isIdent(p, "default") && kind(p + 1) == ARROW) {
+            throw unsupported("switch con frecce", p);
+        } else if (tokens.isIdent(p, "instanceof")) {
+            checkInstanceof(p + 1);
+        } else if (tokens.isIdent(p, "yield") && !afterDot && kind(p + 1) != '=' && kind(p + 1) != '.') {
+            throw unsupported("yield", p);
+        } else if (tokens.isIdent(p, "_")) {
+            throw unsupported("identificatore _", p);
+        }
+        return p + 1;
+    }
+
+    /**
+     * {@code new Tipo(args) { corpo }}: il corpo è una classe anonima, che non compare nella catena.
+     */
+    private int scanObjectCreation(int p, String prefix) {
+        int q = p + 1;
+        if (kind(q) == '<') q = skipAngles(q);
+        while (kind(q) == '@') q = skipAnnotation(q);
+        if (kind(q) != IDENT) return p + 1;
+        q++;
+        while (true) {
+            if (kind(q) == '<') {
+                q = skipAngles(q);
+            } else if (kind(q) == '.' && kind(q + 1) == IDENT) {
+                q += 2;
+            } else if (kind(q) == '.' && kind(q + 1) == '@') {
+                q = skipAnnotation(q + 1);
+            } else {
+                break;
+            }
+        }
+        if (kind(q) != '(') {
+            // Creazione di array: prosegue la scansione normale
+            return q;
+        }
+        int closeParen = scanCode(q + 1, END_PAREN, prefix);
+        if (kind(closeParen + 1) == '{') {
+            return parseTypeBody(closeParen + 2, prefix, CLASS);
+        }
+        return closeParen + 1;
+    }
+
+    /**
+     * Etichette con frecce o multiple richiedono livelli di linguaggio successivi a Java 11
+     * (con un ternario nell'etichetta non distinguiamo i ':' e lasciamo decidere a JavaParser).
+     */
+    private void checkCaseLabel(int p) {
+        int depth = 0;
+        while (true) {
+            int k = kind(p);
+            if (k == '(' || k == '[' || k == '{') {
+                depth++;
+            } else if (k == ')' || k == ']' || k == '}') {
+                if (depth == 0) throw unsupported("case malformato", p);
+                depth--;
+            } else if (depth == 0 && k == ':') {
+                return;
+            } else if (depth == 0 && (k == ARROW || k == ',' || k == '?')) {
+                throw unsupported("etichetta case non supportata", p);
+            } else if (k == EOF || k == ';') {
+                throw unsupported("case malformato", p);
+            }
+            p++;
+        }
+    }
+
+    /**
+     * Pattern matching ({@code x instanceof String s}) richiede Java 14+.
+     */
+    private void checkInstanceof(int p) {
+        if (tokens.isIdent(p, "final")) throw unsupported("pattern instanceof", p);
+        while (kind(p) == '@') p = skipAnnotation(p);
+        if (kind(p) != IDENT) return;
+        p++;
+        while (true) {
+            if (kind(p) == '<') {
+                p = skipAngles(p);
+            } else if (kind(p) == '.' && kind(p + 1) == IDENT) {
+                p += 2;
+            } else if (kind(p) == '[' && kind(p + 1) == ']') {
+                p += 2;
+            } else {
+                break;
+            }
+        }
+        // Dopo il tipo, un identificatore (binding) o '(' (record pattern) indicano un pattern
+        if (kind(p) == IDENT || kind(p) == '(') throw unsupported("pattern instanceof", p);
+    }
+
+    // --- Helpers ---
+
+    private int skipModifiers(int p) {
+        while (true) {
+            if (kind(p) == '@' && !tokens.isIdent(p + 1, "interface")) {
+                p = skipAnnotation(p);
+            } else if (kind(p) == IDENT && MODIFIERS.contains(tokens.text(p))) {
+                p++;
+            } else {
+                return p;
+            }
+        }
+    }
+
+    /**
+     * @param p posizione di '@'.
+     * @return posizione successiva all'annotazione (nome qualificato ed eventuali argomenti).
+     */
+    private int skipAnnotation(int p) {
+        p++;
+        if (kind(p) != IDENT) throw unsupported("annotazione malformata", p);
+        p++;
+        while (kind(p) == '.' && kind(p + 1) == IDENT) p += 2;
+        if (kind(p) == '(') p = matchParen(p) + 1;
+        return p;
+    }
+
+    /**
+     * @param p posizione di '<'.
+     * @return posizione successiva al '>' corrispondente.
+     */
+    private int skipAngles(int p) {
+        int depth = 0;
+        while (true) {
+            int k = kind(p);
+            if (k == '<') {
+                depth++;
+            } else if (k == '>') {
+                depth--;
+                if (depth == 0) return p + 1;
+            } else if (k == '@') {
+                p = skipAnnotation(p);
+                continue;
+            } else if (k != IDENT && k != '.' && k != ',' && k != '?' && k != '[' && k != ']' && k != '&') {
+                throw unsupported("type argument non riconosciuti", p);
+            }
+            p++;
+        }
+    }
+
+    /**
+     * @param p posizione di '('.
+     * @return posizione della ')' corrispondente.
+     */
+    private int matchParen(int p) {
+        int depth = 0;
+        while (true) {
+            int k = kind(p);
+            if (k == '(') {
+                depth++;
+            } else if (k == ')') {
+                depth--;
+                if (depth == 0) return p;
+            } else if (k == EOF || k == ';') {
+                // Le graffe sono ammesse: valori array nelle annotazioni (@A({"x", "y"}))
+                throw unsupported("parentesi non bilanciate", p);
+            }
+            p++;
+        }
+    }
+
+    private int skipPast(int p, int terminator) {
+        while (kind(p) != terminator) {
+            if (kind(p) == EOF) throw unsupported("fine file inattesa", p);
+            p++;
+        }
+        return p + 1;
+    }
+
+    private int kind(int p) {
+        return tokens.kind(p);
+    }
+
+    private UnsupportedSourceException unsupported(String reason, int p) {
+        return new UnsupportedSourceException(reason + " (riga " + tokens.line(p) + ")");
+    }
+}
@@ -0,0 +1,133 @@
+package it.flaviosimonelli.isw2.parser;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Indice a intervalli dei metodi di un file, costruito una sola volta per file parsato.
+ * <p>
+ * Risponde a "quali metodi intersecano le righe [a, b]" con due ricerche binarie invece di
+ * confrontare ogni Edit con ogni metodo. I metodi sono ordinati per riga di inizio; accanto
+ * a ciascuno si conserva il massimo delle righe di fine dei precedenti (prefix max), così
+ * i metodi annidati (classi anonime, classi interne) non rompono la ricerca.
+ * </p>
+ * <p>
+ * Limite: un metodo che inizia presto e finisce tardi (al limite, uno che copre l'intero file,
+ * come un metodo che contiene una grande classe anonima) porta il prefix max al massimo fin dalla
+ * sua posizione. Da lì in poi la prima ricerca binaria non scarta più nulla e la ricerca degenera
+ * in una scansione lineare dei metodi che iniziano prima della fine dell'edit.
+ * </p>
+ * <p>
+ * L'indice è immutabile e può essere condiviso tra thread.
+ * </p>
+ */
+public final class MethodIntervalIndex {
+
+    private static final MethodIntervalIndex EMPTY = new MethodIntervalIndex(List.of());
+
+    private final MethodBoundary[] methods;   // ordinati per beginLine
+    private final int[] begins;
+    private final int[] ends;
+    private final int[] maxEndSoFar;          // max(ends[0..i])
+    private final int[] documentOrder;        // posizione del metodo nella lista originale
+
+    private MethodIntervalIndex(List<MethodBoundary> boundaries) {
+        int n = boundaries.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        // Ordinamento stabile: a parità di inizio resta l'ordine del documento
+        Arrays.sort(order, Comparator.comparingInt(i -> boundaries.get(i).beginLine()));
+
+        this.methods = new MethodBoundary[n];
+        this.begins = new int[n];
+        this.ends = new int[n];
+        this.maxEndSoFar = new int[n];
+        this.documentOrder = new int[n];
+
+        int runningMax = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            MethodBoundary method = boundaries.get(order[i]);
+            methods[i] = method;
+            begins[i] = method.beginLine();
+            ends[i] = method.endLine();
+            runningMax = Math.max(runningMax, method.endLine());
+            maxEndSoFar[i] = runningMax;
+            documentOrder[i] = order[i];
+        }
+    }
+
+    /**
+     * Costruisce l'indice sui confini restituiti da {@link MethodBoundaryLocator#locate(String)}.
+     */
+    public static MethodIntervalIndex of(List<MethodBoundary> boundaries) {
+        return boundaries.isEmpty() ? EMPTY : new MethodIntervalIndex(boundaries);
+    }
+
+    public int size() {
+        return methods.length;
+    }
+
+    public boolean isEmpty() {
+        return methods.length == 0;
+    }
+
+    /**
+     * Invoca {@code action} per ogni metodo che interseca [start, end] (base-1, estremi inclusi),
+     * in ordine di riga di inizio.
+     */
+    public void forEachOverlapping(int start, int end, Consumer<MethodBoundary> action) {
+        int hi = lastBeginAtMost(end);
+        for (int i = firstMaxEndAtLeast(start); i <= hi; i++) {
+            if (ends[i] >= start) {
+                action.accept(methods[i]);
+            }
+        }
+    }
+
+    /**
+     * Primo metodo, nell'ordine della lista originale, che interseca [start, end].
+     * È il metodo che troverebbe una scansione lineare che si ferma al primo match.
+     * @return il metodo, oppure null se le righe non cadono in nessun metodo.
+     */
+    public MethodBoundary firstOverlapping(int start, int end) {
+        int hi = lastBeginAtMost(end);
+        int best = -1;
+        for (int i = firstMaxEndAtLeast(start); i <= hi; i++) {
+            if (ends[i] >= start && (best < 0 || documentOrder[i] < documentOrder[best])) {
+                best = i;
+            }
+        }
+        return best < 0 ? null : methods[best];
+    }
+
+    /**
+     * Ultima posizione con beginLine <= line (-1 se nessuna).
+     */
+    private int lastBeginAtMost(int line) {
+        int lo = 0;
+        int hi = begins.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (begins[mid] <= line) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    /**
+     * Prima posizione il cui prefix max delle righe di fine è >= line: i metodi precedenti
+     * finiscono tutti prima di {@code line} e non possono intersecare.
+     */
+    private int firstMaxEndAtLeast(int line) {
+        int lo = 0;
+        int hi = maxEndSoFar.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxEndSoFar[mid] < line) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
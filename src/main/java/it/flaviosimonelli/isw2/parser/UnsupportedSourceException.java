@@ -0,0 +1,12 @@
+package it.flaviosimonelli.isw2.parser;
+
+/**
+ * Segnala che lo scanner leggero non è in grado di garantire lo stesso risultato di JavaParser
+ * su questo sorgente: il chiamante deve ripiegare sul parsing completo.
+ */
+class UnsupportedSourceException extends RuntimeException {
+    UnsupportedSourceException(String reason) {
+        // Nessuno stack trace: è un segnale di controllo, non un errore
+        super(reason, null, false, false);
+    }
+}
@@ -1,12 +1,10 @@
 package it.flaviosimonelli.isw2.snoring;
 
-import it.flaviosimonelli.isw2.jira.bean.JiraRelease;
+import it.flaviosimonelli.isw2.jira.service.ReleaseTimeline;
 import it.flaviosimonelli.isw2.util.AppConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
 public class SnoringControlService {
     private static final Logger logger = LoggerFactory.getLogger(SnoringControlService.class);
 
@@ -26,7 +24,7 @@ public class SnoringControlService {
     private int statsBuggyKeptSnoring = 0;
     private int statsCleanDroppedSnoring = 0;
 
-    public SnoringControlService(List<JiraRelease> releases) {
+    public SnoringControlService(ReleaseTimeline releases) {
         this.totalReleases = releases.size();
 
         // 1. Carica Configurazione
@@ -42,7 +40,7 @@ public class SnoringControlService {
         printInitLog(releases);
     }
 
-    private void printInitLog(List<JiraRelease> releases) {
+    private void printInitLog(ReleaseTimeline releases) {
         String stopReleaseName = (stopIndex > 0 && stopIndex <= releases.size())
                 ? releases.get(stopIndex - 1).getName()
                 : "N/A";
@@ -0,0 +1,102 @@
+package it.flaviosimonelli.isw2.store;
+
+import it.flaviosimonelli.isw2.util.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Archivio locale su file dei risultati di analisi costosi (metriche per blob, edit per commit,
+ * metodi modificati per commit SZZ, file Java toccati per commit), per rendere "caldi" i run successivi
+ * di DATASET_ONLY/FULL.
+ * <p>
+ * Ogni tipo di dato vive in una {@link StoreSection} separata, versionata da un fingerprint:
+ * quando la configurazione che ha prodotto i dati cambia, la sezione viene invalidata in automatico.
+ * Le chiavi sono content-addressed (blob id, hash commit), quindi restano valide finché la
+ * configurazione non cambia, anche se il repository riceve nuovi commit.
+ * </p>
+ * Percorso: {@code <output.base.path>/cache/<projectKey>/<sezione>.store}
+ */
+public class AnalysisStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisStore.class);
+
+    // Nomi delle sezioni (uno per tipo di dato)
+    public static final String STATIC_METRICS = "static-metrics";
+    public static final String COMMIT_EDITS = "commit-edits";
+    public static final String SZZ_METHODS = "szz-methods";
+    public static final String TOUCHED_PATHS = "touched-paths";
+
+    private static final String FILE_EXTENSION = ".store";
+
+    // null = store disabilitato
+    private final Path directory;
+    private final Map<String, StoreSection> sections = new HashMap<>();
+
+    private AnalysisStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Crea lo store per il progetto leggendo la configurazione
+     * ({@code analysis.store.enabled}, {@code output.base.path}).
+     */
+    public static AnalysisStore fromConfig(String projectKey) {
+        if (!AppConfig.getBoolean("analysis.store.enabled", true)) {
+            logger.info("Analysis store disabilitato da configurazione.");
+            return disabled();
+        }
+        String basePath = AppConfig.getProperty("output.base.path", "./results");
+        Path dir = Paths.get(basePath, "cache", projectKey);
+        logger.info("Analysis store attivo in: {}", dir.toAbsolutePath());
+        return new AnalysisStore(dir);
+    }
+
+    /**
+     * Store che non persiste nulla: ogni sezione è vuota e ignora le scritture.
+     */
+    public static AnalysisStore disabled() {
+        return new AnalysisStore(null);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Apre (una sola volta per run) la sezione richiesta.
+     * @param name        nome della sezione (es. {@link #STATIC_METRICS}).
+     * @param fingerprint descrizione della configurazione che produce i dati della sezione.
+     */
+    public synchronized StoreSection section(String name, String fingerprint) {
+        return sections.computeIfAbsent(name, n -> openSection(n, fingerprint));
+    }
+
+    private StoreSection openSection(String name, String fingerprint) {
+        if (directory == null) {
+            return new StoreSection(name);
+        }
+        try {
+            return new StoreSection(name, directory.resolve(name + FILE_EXTENSION), fingerprint);
+        } catch (IOException e) {
+            logger.warn("Impossibile aprire la sezione '{}' dello store, proseguo senza persistenza: {}", name, e.getMessage());
+            return new StoreSection(name);
+        }
+    }
+
+    /**
+     * Forza la scrittura su disco delle entry accumulate (es. a fine release).
+     */
+    public synchronized void flush() {
+        sections.values().forEach(StoreSection::flush);
+    }
+
+    @Override
+    public synchronized void close() {
+        sections.values().forEach(StoreSection::close);
+    }
+}
@@ -0,0 +1,181 @@
+package it.flaviosimonelli.isw2.store;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+import it.flaviosimonelli.isw2.git.service.GitService;
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+import it.flaviosimonelli.isw2.parser.MethodBoundary;
+import it.flaviosimonelli.isw2.parser.MethodBoundaryLocator;
+import it.flaviosimonelli.isw2.parser.MethodIntervalIndex;
+import it.flaviosimonelli.isw2.util.AppConfig;
+import org.eclipse.jgit.diff.Edit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache in memoria dell'analisi di un commit: per ogni file Java modificato, la edit list
+ * e l'indice dei metodi del file nella versione post-commit.
+ * <p>
+ * SZZ (fix commit) e metriche di processo (tutti i commit) mappano gli stessi edit sugli stessi
+ * metodi: con la cache condivisa ogni commit viene diffato, letto e parsato una sola volta
+ * per {@code createDataset}. La cache è limitata in memoria ({@code commit.cache.max.mb},
+ * 0 = disabilitata) con eviction LRU sulla dimensione stimata delle entry.
+ * </p>
+ * Thread-safe: due thread che chiedono lo stesso commit possono calcolarlo entrambi, ma ne resta una sola copia.
+ */
+public class CommitAnalysisCache {
+    private static final Logger logger = LoggerFactory.getLogger(CommitAnalysisCache.class);
+
+    // Stime grossolane dell'occupazione in memoria (header oggetti + riferimenti)
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    private static final long FILE_OVERHEAD_BYTES = 160;
+    private static final long EDIT_BYTES = 40;
+    private static final long METHOD_OVERHEAD_BYTES = 120;
+
+    private final GitService gitService;
+    private final MethodBoundaryLocator methodLocator = new MethodBoundaryLocator();
+    private final long maxBytes;
+
+    // access-order = true: l'iterazione parte dall'entry usata meno di recente
+    private final LinkedHashMap<String, CachedCommit> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes = 0;
+
+    // Statistiche
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Analisi di un file in un commit.
+     * @param edits      edit list del file (coordinate JGit)
+     * @param methods    metodi della versione post-commit; vuoto se il file non esiste o è vuoto
+     * @param parseError messaggio di errore se il file non è parsabile (in tal caso {@code methods} è vuoto)
+     */
+    public record FileAnalysis(List<Edit> edits, MethodIntervalIndex methods, String parseError) {
+        public boolean isParsed() {
+            return parseError == null;
+        }
+    }
+
+    private record CachedCommit(Map<String, FileAnalysis> files, long bytes) {}
+
+    public CommitAnalysisCache(GitService gitService) {
+        this(gitService, AppConfig.getInt("commit.cache.max.mb", 256) * 1024L * 1024L);
+    }
+
+    public CommitAnalysisCache(GitService gitService, long maxBytes) {
+        this.gitService = gitService;
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Analisi dei file Java modificati dal commit, nell'ordine dei diff restituiti da {@link GitService}.
+     * I filtri di dominio (es. file di test) restano a carico del chiamante.
+     */
+    public Map<String, FileAnalysis> getJavaFileAnalyses(GitCommit commit) {
+        String hash = commit.getHash();
+        synchronized (this) {
+            CachedCommit cached = entries.get(hash);
+            if (cached != null) {
+                hits++;
+                return cached.files();
+            }
+            misses++;
+        }
+
+        CachedCommit computed = analyze(commit);
+        synchronized (this) {
+            CachedCommit existing = entries.get(hash);
+            if (existing != null) {
+                // Calcolato in parallelo da un altro thread: teniamo la copia già in cache
+                return existing.files();
+            }
+            if (computed.bytes() <= maxBytes) {
+                entries.put(hash, computed);
+                currentBytes += computed.bytes();
+                evictIfNeeded();
+            }
+        }
+        return computed.files();
+    }
+
+    private CachedCommit analyze(GitCommit commit) {
+        Map<String, List<Edit>> diffs = gitService.getDiffsWithEdits(commit);
+        Map<String, FileAnalysis> files = new LinkedHashMap<>();
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        Map<String, String> sources = readJavaSources(commit, diffs);
+
+        for (Map.Entry<String, List<Edit>> entry : diffs.entrySet()) {
+            String filePath = entry.getKey();
+            if (!filePath.endsWith(".java")) continue;
+
+            List<Edit> edits = entry.getValue();
+            List<MethodBoundary> methods = Collections.emptyList();
+            String parseError = null;
+            try {
+                String sourceCode = (sources != null)
+                        ? sources.get(filePath)
+                        : gitService.getRawFileContent(commit, filePath);
+                if (sourceCode != null && !sourceCode.isEmpty()) {
+                    // Servono solo i confini dei metodi: niente AST completo
+                    methods = methodLocator.locate(sourceCode);
+                }
+            } catch (Exception e) {
+                parseError = String.valueOf(e.getMessage());
+            }
+
+            files.put(filePath, new FileAnalysis(edits, MethodIntervalIndex.of(methods), parseError));
+            bytes += FILE_OVERHEAD_BYTES + 2L * filePath.length() + EDIT_BYTES * edits.size() + estimateBytes(methods);
+        }
+        return new CachedCommit(Collections.unmodifiableMap(files), bytes);
+    }
+
+    /**
+     * Legge in blocco i sorgenti Java modificati dal commit (una visita dell'albero, blob in ordine di pack).
+     * @return path -> sorgente, oppure null se la lettura bulk fallisce (si ripiega sulla lettura per file).
+     */
+    private Map<String, String> readJavaSources(GitCommit commit, Map<String, List<Edit>> diffs) {
+        List<String> javaPaths = diffs.keySet().stream().filter(p -> p.endsWith(".java")).toList();
+        try {
+            return gitService.getRawFileContents(commit, javaPaths);
+        } catch (Exception e) {
+            logger.debug("Lettura bulk fallita per il commit {}, lettura per file: {}", commit.getHash(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static long estimateBytes(List<MethodBoundary> methods) {
+        long bytes = 0;
+        for (MethodBoundary method : methods) {
+            MethodIdentity id = method.identity();
+            // Stringhe Latin-1: circa un byte per carattere più l'header
+            bytes += METHOD_OVERHEAD_BYTES + id.fullSignature().length() + id.className().length() + id.methodName().length();
+        }
+        return bytes;
+    }
+
+    private void evictIfNeeded() {
+        var iterator = entries.values().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            currentBytes -= iterator.next().bytes();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Logga l'efficacia della cache e le statistiche del locator condiviso.
+     */
+    public synchronized void logStats() {
+        long total = hits + misses;
+        double hitRate = (total > 0) ? (double) hits / total * 100.0 : 0.0;
+        logger.info("Cache analisi commit: hit={} miss={} (riuso {}%), eviction={}, commit in cache={} (~{} MB su {} MB).",
+                hits, misses, "%.1f".formatted(hitRate), evictions, entries.size(),
+                currentBytes / (1024 * 1024), maxBytes / (1024 * 1024));
+        methodLocator.logStats("SZZ + Process metrics");
+    }
+}
@@ -0,0 +1,161 @@
+package it.flaviosimonelli.isw2.store;
+
+import it.flaviosimonelli.isw2.model.MethodIdDictionary;
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+import it.flaviosimonelli.isw2.model.MethodStaticMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
+import org.eclipse.jgit.diff.Edit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializzazione su una riga dei dati persistiti nell'{@link AnalysisStore}.
+ * <p>
+ * Usa i separatori ASCII RS (0x1E) tra record e US (0x1F) tra campi,
+ * che non compaiono né nelle firme dei metodi né nei path dei file.
+ * </p>
+ */
+public final class StoreCodec {
+    private static final char RECORD_SEP = '\u001E';
+    private static final char FIELD_SEP = '\u001F';
+    private static final String RECORD_SPLIT = String.valueOf(RECORD_SEP);
+    private static final String FIELD_SPLIT = String.valueOf(FIELD_SEP);
+
+    private StoreCodec() {
+        throw new IllegalStateException("Utility class - non istanziabile");
+    }
+
+    // --- Metriche statiche per blob ---
+
+    /**
+     * Record: firma, classe, metodo, valori nell'ordine degli ordinali di {@code schema}.
+     */
+    public static String encodeStaticMetrics(Map<MethodIdentity, MethodStaticMetrics> metrics, MetricSchema schema) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<MethodIdentity, MethodStaticMetrics> entry : metrics.entrySet()) {
+            if (!sb.isEmpty()) sb.append(RECORD_SEP);
+            appendIdentity(sb, entry.getKey());
+            for (int i = 0; i < schema.size(); i++) {
+                double value = entry.getValue().get(i);
+                sb.append(FIELD_SEP).append(!Double.isNaN(value) ? value : 0.0);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static Map<MethodIdentity, MethodStaticMetrics> decodeStaticMetrics(String payload, MetricSchema schema) {
+        // LinkedHashMap: stesso ordine di apparizione dei metodi del calcolo originale
+        Map<MethodIdentity, MethodStaticMetrics> result = new LinkedHashMap<>();
+        if (payload.isEmpty()) return result;
+
+        for (String rec : payload.split(RECORD_SPLIT)) {
+            String[] fields = rec.split(FIELD_SPLIT, -1);
+            if (fields.length != 3 + schema.size()) {
+                throw new IllegalArgumentException("Record metriche malformato: " + fields.length + " campi");
+            }
+            MethodStaticMetrics metrics = new MethodStaticMetrics(schema);
+            for (int i = 0; i < schema.size(); i++) {
+                metrics.set(i, Double.parseDouble(fields[3 + i]));
+            }
+            result.put(decodeIdentity(fields), metrics);
+        }
+        return result;
+    }
+
+    // --- Edit list per commit ---
+
+    /**
+     * Record: path, poi quadruple beginA,endA,beginB,endB per ogni Edit.
+     */
+    public static String encodeEdits(Map<String, List<Edit>> diffs) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, List<Edit>> entry : diffs.entrySet()) {
+            if (!sb.isEmpty()) sb.append(RECORD_SEP);
+            sb.append(entry.getKey());
+            for (Edit edit : entry.getValue()) {
+                sb.append(FIELD_SEP).append(edit.getBeginA())
+                        .append(FIELD_SEP).append(edit.getEndA())
+                        .append(FIELD_SEP).append(edit.getBeginB())
+                        .append(FIELD_SEP).append(edit.getEndB());
+            }
+        }
+        return sb.toString();
+    }
+
+    public static Map<String, List<Edit>> decodeEdits(String payload) {
+        Map<String, List<Edit>> result = new HashMap<>();
+        if (payload.isEmpty()) return result;
+
+        for (String rec : payload.split(RECORD_SPLIT)) {
+            String[] fields = rec.split(FIELD_SPLIT, -1);
+            if ((fields.length - 1) % 4 != 0) {
+                throw new IllegalArgumentException("Record edit malformato per " + fields[0]);
+            }
+            List<Edit> edits = new ArrayList<>((fields.length - 1) / 4);
+            for (int i = 1; i < fields.length; i += 4) {
+                edits.add(new Edit(
+                        Integer.parseInt(fields[i]), Integer.parseInt(fields[i + 1]),
+                        Integer.parseInt(fields[i + 2]), Integer.parseInt(fields[i + 3])));
+            }
+            result.put(fields[0], edits);
+        }
+        return result;
+    }
+
+    // --- Insiemi di metodi (SZZ) ---
+
+    public static String encodeMethods(Set<MethodIdentity> methods) {
+        StringBuilder sb = new StringBuilder();
+        for (MethodIdentity id : methods) {
+            if (!sb.isEmpty()) sb.append(RECORD_SEP);
+            appendIdentity(sb, id);
+        }
+        return sb.toString();
+    }
+
+    public static Set<MethodIdentity> decodeMethods(String payload) {
+        Set<MethodIdentity> result = new HashSet<>();
+        if (payload.isEmpty()) return result;
+
+        for (String rec : payload.split(RECORD_SPLIT)) {
+            String[] fields = rec.split(FIELD_SPLIT, -1);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Record metodo malformato: " + rec);
+            }
+            result.add(decodeIdentity(fields));
+        }
+        return result;
+    }
+
+    // --- Path toccati per commit ---
+
+    public static String encodePaths(Set<String> paths) {
+        return String.join(RECORD_SPLIT, paths);
+    }
+
+    public static Set<String> decodePaths(String payload) {
+        Set<String> result = new HashSet<>();
+        if (payload.isEmpty()) return result;
+        Collections.addAll(result, payload.split(RECORD_SPLIT));
+        return result;
+    }
+
+    // --- Helpers ---
+
+    private static void appendIdentity(StringBuilder sb, MethodIdentity id) {
+        sb.append(id.fullSignature())
+                .append(FIELD_SEP).append(id.className())
+                .append(FIELD_SEP).append(id.methodName());
+    }
+
+    private static MethodIdentity decodeIdentity(String[] fields) {
+        return MethodIdDictionary.global().canonical(new MethodIdentity(fields[0], fields[1], fields[2]));
+    }
+}
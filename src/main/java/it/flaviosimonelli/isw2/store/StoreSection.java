@@ -0,0 +1,190 @@
+package it.flaviosimonelli.isw2.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Sezione del {@link AnalysisStore}: una mappa chiave -> payload testuale persistita su un file append-only.
+ * <p>
+ * La prima riga del file contiene il fingerprint della configurazione che ha prodotto i dati.
+ * Se all'apertura il fingerprint non coincide con quello corrente (es. metriche o ruleset cambiati),
+ * il file viene riscritto da zero: le entry obsolete non vengono mai restituite.
+ * </p>
+ * Formato riga: {@code crc32<TAB>chiave<TAB>payload}, con il CRC32 (8 cifre esadecimali) calcolato su
+ * {@code chiave<TAB>payload}. Il payload non deve contenere '\n'.
+ * All'apertura le righe con checksum errato vengono scartate (la chiave verrà ricalcolata e riscritta)
+ * e una riga finale senza '\n' (run interrotto a metà scrittura) viene troncata prima di riprendere ad appendere.
+ */
+public class StoreSection {
+    private static final Logger logger = LoggerFactory.getLogger(StoreSection.class);
+    private static final String HEADER_PREFIX = "#store-v2|fingerprint=";
+    private static final int CRC_LENGTH = 8;
+
+    private final String name;
+    private final Map<String, String> entries = new HashMap<>();
+    private BufferedWriter writer;
+
+    /**
+     * Crea una sezione disabilitata: get restituisce sempre null e put non fa nulla.
+     */
+    StoreSection(String name) {
+        this.name = name;
+        this.writer = null;
+    }
+
+    /**
+     * Apre (o crea) la sezione persistita in {@code file}, validandone il fingerprint.
+     */
+    StoreSection(String name, Path file, String fingerprint) throws IOException {
+        this.name = name;
+        String expectedHeader = HEADER_PREFIX + fingerprint;
+
+        boolean reusable = Files.isRegularFile(file) && loadIfCompatible(file, expectedHeader);
+
+        if (reusable) {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            logger.info("Store '{}': caricate {} entry da {}", name, entries.size(), file);
+        } else {
+            Files.createDirectories(file.getParent());
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            writer.write(expectedHeader);
+            writer.write('\n');
+        }
+    }
+
+    private boolean loadIfCompatible(Path file, String expectedHeader) throws IOException {
+        long validLength = 0;   // Fine dell'ultima riga completa (terminata da '\n')
+        int rejected = 0;
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            boolean header = true;
+            long offset = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString(StandardCharsets.UTF_8);
+                line.reset();
+                validLength = offset;
+                if (header) {
+                    if (!expectedHeader.equals(text)) {
+                        logger.info("Store '{}': fingerprint cambiato, le entry esistenti vengono invalidate.", name);
+                        return false;
+                    }
+                    header = false;
+                } else if (!loadRecord(text)) {
+                    rejected++;
+                }
+            }
+            if (header) {
+                return false; // Header assente o incompleto
+            }
+        }
+
+        if (rejected > 0) {
+            logger.warn("Store '{}': {} righe corrotte scartate, verranno ricalcolate.", name, rejected);
+        }
+        if (Files.size(file) > validLength) {
+            // Riga finale troncata: la tagliamo, altrimenti il prossimo append finirebbe sulla stessa riga
+            logger.warn("Store '{}': riga finale incompleta rimossa ({} byte).", name, Files.size(file) - validLength);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Carica una riga se il checksum è corretto. Una riga successiva con la stessa chiave prevale.
+     */
+    private boolean loadRecord(String line) {
+        if (line.length() <= CRC_LENGTH || line.charAt(CRC_LENGTH) != '\t') return false;
+        String record = line.substring(CRC_LENGTH + 1);
+        int sep = record.indexOf('\t');
+        if (sep <= 0 || !line.substring(0, CRC_LENGTH).equals(checksum(record))) return false;
+
+        entries.put(record.substring(0, sep), record.substring(sep + 1));
+        return true;
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().toHexDigits((int) crc.getValue());
+    }
+
+    public synchronized String get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, String payload) {
+        if (writer == null) return;
+        if (payload.indexOf('\n') >= 0 || key.indexOf('\t') >= 0) {
+            logger.warn("Store '{}': entry {} non serializzabile su una riga, ignorata.", name, key);
+            return;
+        }
+        // Le entry sono immutabili (chiavi content-addressed): se c'è già, non la riscriviamo.
+        // Le righe scartate al caricamento non sono in mappa, quindi vengono riscritte qui.
+        if (entries.putIfAbsent(key, payload) != null) return;
+
+        try {
+            String record = key + '\t' + payload;
+            writer.write(checksum(record));
+            writer.write('\t');
+            writer.write(record);
+            writer.write('\n');
+        } catch (IOException e) {
+            logger.warn("Store '{}': scrittura fallita, persistenza disabilitata per questa sezione: {}", name, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void flush() {
+        if (writer == null) return;
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            logger.warn("Store '{}': flush fallito: {}", name, e.getMessage());
+        }
+    }
+
+    synchronized void close() {
+        flush();
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.debug("Store '{}': errore in chiusura: {}", name, e.getMessage());
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,41 @@
+package it.flaviosimonelli.isw2.szz;
+
+import it.flaviosimonelli.isw2.model.MethodIdMap;
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Registro dei metodi buggy prodotto da SZZ.
+ * <p>
+ * Per ogni metodo tiene un {@link BitSet} sugli indici delle release (stesso ordine della lista
+ * release di SZZ): bit i acceso = metodo buggy nella release i. Un bug che vive per molte release
+ * costa qualche bit invece di una copia dell'identità in un HashSet per release, e
+ * {@link #isBuggy(MethodIdentity, int)} è O(1). I BitSet sono indicizzati dall'id del metodo ({@link MethodIdMap}).
+ * </p>
+ */
+public class BuggyRegistry {
+
+    private final int releaseCount;
+    private final Map<MethodIdentity, BitSet> buggyReleases = new MethodIdMap<>();
+
+    public BuggyRegistry(int releaseCount) {
+        this.releaseCount = releaseCount;
+    }
+
+    /**
+     * Marca i metodi come buggy nelle release [fromIndex, toIndex) (IV inclusa, FV esclusa).
+     */
+    public void markBuggy(Iterable<MethodIdentity> methods, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > releaseCount || fromIndex >= toIndex) return;
+        for (MethodIdentity method : methods) {
+            buggyReleases.computeIfAbsent(method, k -> new BitSet(releaseCount)).set(fromIndex, toIndex);
+        }
+    }
+
+    public boolean isBuggy(MethodIdentity method, int releaseIndex) {
+        BitSet releases = buggyReleases.get(method);
+        return releases != null && releases.get(releaseIndex);
+    }
+}
@@ -5,40 +5,79 @@ import it.flaviosimonelli.isw2.git.bean.GitCommit;
 import it.flaviosimonelli.isw2.git.service.GitService;
 import it.flaviosimonelli.isw2.jira.bean.JiraRelease;
 import it.flaviosimonelli.isw2.jira.bean.JiraTicket;
+import it.flaviosimonelli.isw2.jira.service.ReleaseTimeline;
 import it.flaviosimonelli.isw2.model.MethodIdentity;
+import it.flaviosimonelli.isw2.parser.MethodIntervalIndex;
+import it.flaviosimonelli.isw2.store.AnalysisStore;
+import it.flaviosimonelli.isw2.store.CommitAnalysisCache;
+import it.flaviosimonelli.isw2.store.CommitAnalysisCache.FileAnalysis;
+import it.flaviosimonelli.isw2.store.StoreCodec;
+import it.flaviosimonelli.isw2.store.StoreSection;
 import it.flaviosimonelli.isw2.szz.impl.IncrementalProportionStrategy;
 import it.flaviosimonelli.isw2.util.AppConfig;
-import it.flaviosimonelli.isw2.util.JavaParserUtils;
 import org.eclipse.jgit.diff.Edit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.github.javaparser.StaticJavaParser;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.MethodDeclaration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SZZService {
     private static final Logger logger = LoggerFactory.getLogger(SZZService.class);
 
     private static final String REPORT_SEP = "===============================================================";
     private static final String SECTION_SEP = "---------------------------------------------------------------";
+    // Versione della logica di estrazione dei metodi modificati (parsing + intersezione edit)
+    private static final String METHODS_FINGERPRINT_PREFIX = "szz-methods-v2|testMarker=";
+
+    /**
+     * Nome del registro prodotto dalla strategia principale (quella impostata con setEstimationStrategy).
+     */
+    public static final String PRIMARY_STRATEGY = "primary";
 
     private final GitService gitService;
-    private final List<JiraRelease> releases;
+    private final ReleaseTimeline releases;
 
     private final String testPathMarker;
+    // Analisi dei commit (diff + confini metodi), condivisa con le metriche di processo
+    private final CommitAnalysisCache commitCache;
+
+    // Worker per l'analisi dei fix commit (1 = sequenziale)
+    private final int workerCount;
+
+    // Memo per run: commit hash -> metodi modificati, con statistiche di riuso per il report
+    private final Map<String, Set<MethodIdentity>> modifiedMethodsMemo = new ConcurrentHashMap<>();
+    private final AtomicLong memoHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong computedCommits = new AtomicLong();
 
     // Campo per la strategia (Polimorfismo)
     private IVEstimationStrategy estimationStrategy;
 
-    public SZZService(GitService gitService, List<JiraRelease> releases) {
+    // Metodi modificati per commit persistiti tra run diversi (null = nessuno store collegato)
+    private StoreSection methodsStore;
+
+    /**
+     * @param commitCache cache di analisi dei commit dello stesso run, condivisa con le metriche di processo
+     */
+    public SZZService(GitService gitService, ReleaseTimeline releases, CommitAnalysisCache commitCache) {
         this.gitService = gitService;
         this.releases = releases;
         // Default Strategy: Incremental Proportion
         this.estimationStrategy = new IncrementalProportionStrategy(releases);
-        this.testPathMarker = AppConfig.getProperty("git.test.path.marker", "/test/");
+        // Stesso marker del filtro applicato da GitService su diff e snapshot
+        this.testPathMarker = gitService.getTestPathMarker();
+        this.commitCache = commitCache;
+
+        // 0 (o assente) = un worker per core; 1 = percorso sequenziale
+        int configuredThreads = AppConfig.getInt("szz.threads", 0);
+        this.workerCount = (configuredThreads > 0) ? configuredThreads : Runtime.getRuntime().availableProcessors();
     }
 
     /**
@@ -48,45 +87,150 @@ public class SZZService {
         this.estimationStrategy = strategy;
     }
 
-    public Map<String, Set<MethodIdentity>> getBuggyMethodsPerRelease(List<JiraTicket> tickets) {
-        Map<String, Set<MethodIdentity>> buggyMap = initializeBuggyMap();
+    /**
+     * Collega lo store persistente: i metodi modificati da ogni fix commit vengono riusati tra run diversi.
+     */
+    public void setAnalysisStore(AnalysisStore store) {
+        this.methodsStore = store.section(AnalysisStore.SZZ_METHODS,
+                METHODS_FINGERPRINT_PREFIX + testPathMarker + "|" + gitService.diffFingerprint());
+    }
+
+    /**
+     * Esegue SZZ sui ticket e restituisce, per ogni metodo, le release (indici in {@code releases}) in cui è buggy.
+     */
+    public BuggyRegistry getBuggyMethodsPerRelease(List<JiraTicket> tickets) {
+        return getBuggyMethodsPerStrategy(tickets, Map.of()).get(PRIMARY_STRATEGY);
+    }
+
+    /**
+     * Come {@link #getBuggyMethodsPerRelease}, ma etichetta gli stessi fix commit con più strategie di stima dell'IV.
+     * <p>
+     * La parte costosa (linking, diff, parsing) viene eseguita una sola volta; ogni strategia ripete solo
+     * la passata ordinata di stima dell'IV e il labeling.
+     * </p>
+     * @param extraStrategies strategie aggiuntive per nome (istanze nuove: {@code learn} ne modifica lo stato).
+     * @return un registro per strategia: prima {@link #PRIMARY_STRATEGY}, poi le aggiuntive nell'ordine della mappa.
+     */
+    public Map<String, BuggyRegistry> getBuggyMethodsPerStrategy(List<JiraTicket> tickets,
+                                                                 Map<String, IVEstimationStrategy> extraStrategies) {
+        Map<String, IVEstimationStrategy> strategies = new LinkedHashMap<>();
+        strategies.put(PRIMARY_STRATEGY, estimationStrategy);
+        strategies.putAll(extraStrategies);
         SZZStats stats = new SZZStats();
 
         // Sorting per data resolution (importante per Proportion)
         tickets.sort(Comparator.comparing(JiraTicket::getResolution));
 
+        // 1. Passata ordinata e veloce: FV/OV (comuni a tutte le strategie)
+        List<TicketVersions> resolved = new ArrayList<>();
         for (JiraTicket ticket : tickets) {
-            processTicket(ticket, buggyMap, stats);
+            TicketVersions versions = resolveVersions(ticket, stats);
+            if (versions != null) resolved.add(versions);
+        }
+
+        // 2. Passata costosa, indipendente dall'ordine e dalla strategia: fix commit e metodi modificati
+        List<Set<MethodIdentity>> buggyMethods = analyzeFixCommits(resolved);
+
+        for (int i = 0; i < resolved.size(); i++) {
+            if (!buggyMethods.get(i).isEmpty()) {
+                stats.updateProcessedStats(resolved.get(i).ticket(), buggyMethods.get(i).size());
+            }
+        }
+
+        // 3. IV + LABELING per strategia, nell'ordine dei ticket (Proportion dipende dall'ordine)
+        Map<String, BuggyRegistry> registries = new LinkedHashMap<>();
+        for (Map.Entry<String, IVEstimationStrategy> strategy : strategies.entrySet()) {
+            registries.put(strategy.getKey(), labelWithStrategy(resolved, buggyMethods, strategy.getValue()));
         }
 
         printDetailedReport(tickets.size(), stats);
-        return buggyMap;
+        return registries;
+    }
+
+    private BuggyRegistry labelWithStrategy(List<TicketVersions> resolved, List<Set<MethodIdentity>> buggyMethods,
+                                            IVEstimationStrategy strategy) {
+        BuggyRegistry buggyRegistry = new BuggyRegistry(releases.size());
+        for (int i = 0; i < resolved.size(); i++) {
+            TicketVersions versions = resolved.get(i);
+            // Anche i ticket senza fix commit addestrano Proportion: l'IV va calcolato comunque
+            JiraRelease iv = determineInjectedVersion(versions.ticket(), versions.fv(), versions.ov(), strategy);
+            Set<MethodIdentity> methods = buggyMethods.get(i);
+            if (!methods.isEmpty()) {
+                markBuggyInReleases(buggyRegistry, methods, iv, versions.fv());
+            }
+        }
+        return buggyRegistry;
     }
 
-    private void processTicket(JiraTicket ticket, Map<String, Set<MethodIdentity>> buggyMap, SZZStats stats) {
+    /**
+     * Versioni calcolate per un ticket nella passata ordinata.
+     */
+    private record TicketVersions(JiraTicket ticket, JiraRelease fv, JiraRelease ov) {}
+
+    private TicketVersions resolveVersions(JiraTicket ticket, SZZStats stats) {
         stats.updateInputStats(ticket);
 
-        // 1. DETERMINAZIONE VERSIONI (FV, OV, IV)
+        // DETERMINAZIONE VERSIONI (FV, OV)
         JiraRelease fv = determineFixVersion(ticket);
         JiraRelease ov = getReleaseByDate(ticket.getCreated());
 
         if (fv == null || ov == null) {
             logSkip(ticket, fv, ov);
-            return;
+            return null;
         }
 
-        JiraRelease iv = determineInjectedVersion(ticket, fv, ov);
+        return new TicketVersions(ticket, fv, ov);
+    }
 
-        // 2. ANALISI GIT (Linkage + Heuristic)
-        List<GitCommit> fixCommits = collectFixCommits(ticket);
-        if (fixCommits.isEmpty()) return;
+    /**
+     * Analisi git (Linkage + Heuristic) dei ticket, su un pool limitato ({@code szz.threads}).
+     * @return per ogni ticket (stessa posizione di {@code resolved}) i metodi modificati dai suoi fix commit.
+     */
+    private List<Set<MethodIdentity>> analyzeFixCommits(List<TicketVersions> resolved) {
+        List<Set<MethodIdentity>> results = new ArrayList<>(resolved.size());
 
-        Set<MethodIdentity> buggyMethods = extractMethodsFromCommits(fixCommits);
-        if (buggyMethods.isEmpty()) return;
+        if (workerCount <= 1 || resolved.size() <= 1) {
+            for (TicketVersions versions : resolved) {
+                results.add(analyzeTicketCommits(versions.ticket()));
+            }
+            return results;
+        }
 
-        // 3. LABELING
-        markBuggyInReleases(buggyMap, buggyMethods, iv, fv);
-        stats.updateProcessedStats(ticket, buggyMethods.size());
+        // Carica commit table e indice ticket prima di condividere il GitService tra i worker
+        gitService.getAllCommits();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.min(workerCount, resolved.size()))) {
+            List<Future<Set<MethodIdentity>>> futures = new ArrayList<>(resolved.size());
+            for (TicketVersions versions : resolved) {
+                futures.add(pool.submit(() -> analyzeTicketCommits(versions.ticket())));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(collectResult(resolved.get(i).ticket(), futures.get(i)));
+            }
+        }
+        return results;
+    }
+
+    private Set<MethodIdentity> analyzeTicketCommits(JiraTicket ticket) {
+        List<GitCommit> fixCommits = collectFixCommits(ticket);
+        if (fixCommits.isEmpty()) return Collections.emptySet();
+        return extractMethodsFromCommits(fixCommits);
+    }
+
+    private Set<MethodIdentity> collectResult(JiraTicket ticket, Future<Set<MethodIdentity>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Analisi SZZ interrotta sul ticket {}", ticket.getKey());
+            return Collections.emptySet();
+        } catch (ExecutionException e) {
+            // Stesso comportamento del percorso sequenziale: l'errore interrompe la generazione
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Analisi SZZ fallita sul ticket " + ticket.getKey(), e.getCause());
+        }
     }
 
     private JiraRelease determineFixVersion(JiraTicket ticket) {
@@ -97,13 +241,14 @@ public class SZZService {
         return fv;
     }
 
-    private JiraRelease determineInjectedVersion(JiraTicket ticket, JiraRelease fv, JiraRelease ov) {
+    private JiraRelease determineInjectedVersion(JiraTicket ticket, JiraRelease fv, JiraRelease ov,
+                                                 IVEstimationStrategy strategy) {
         JiraRelease iv = getEarliestReleaseFromList(ticket.getAffectedVersions());
 
         if (iv != null) {
-            estimationStrategy.learn(iv, fv, ov);
+            strategy.learn(iv, fv, ov);
         } else {
-            iv = estimationStrategy.estimate(fv, ov);
+            iv = strategy.estimate(fv, ov);
         }
 
         // Sanity Check
@@ -132,14 +277,6 @@ public class SZZService {
         return methods;
     }
 
-    private Map<String, Set<MethodIdentity>> initializeBuggyMap() {
-        Map<String, Set<MethodIdentity>> map = new HashMap<>();
-        for (JiraRelease r : releases) {
-            map.put(r.getName(), new HashSet<>());
-        }
-        return map;
-    }
-
     // ==================================================================================
     //                           HELPERS DI RICERCA RELEASE
     // ==================================================================================
@@ -173,18 +310,53 @@ public class SZZService {
     }
 
     private Set<MethodIdentity> identifyModifiedMethods(GitCommit commit) {
+        // Lo stesso commit può chiudere più ticket (più chiavi nel messaggio, recupero euristico)
+        Set<MethodIdentity> memoized = modifiedMethodsMemo.get(commit.getHash());
+        if (memoized != null) {
+            memoHits.incrementAndGet();
+            return memoized;
+        }
+
+        Set<MethodIdentity> modifiedMethods = Collections.unmodifiableSet(loadOrComputeModifiedMethods(commit));
+        Set<MethodIdentity> previous = modifiedMethodsMemo.putIfAbsent(commit.getHash(), modifiedMethods);
+        return (previous != null) ? previous : modifiedMethods;
+    }
+
+    private Set<MethodIdentity> loadOrComputeModifiedMethods(GitCommit commit) {
+        if (methodsStore != null) {
+            String payload = methodsStore.get(commit.getHash());
+            if (payload != null) {
+                try {
+                    Set<MethodIdentity> stored = StoreCodec.decodeMethods(payload);
+                    storeHits.incrementAndGet();
+                    return stored;
+                } catch (IllegalArgumentException e) {
+                    logger.debug("Entry metodi non valida per {}: {}", commit.getHash(), e.getMessage());
+                }
+            }
+        }
+
+        Set<MethodIdentity> modifiedMethods = computeModifiedMethods(commit);
+        computedCommits.incrementAndGet();
+        if (methodsStore != null) {
+            methodsStore.put(commit.getHash(), StoreCodec.encodeMethods(modifiedMethods));
+        }
+        return modifiedMethods;
+    }
+
+    private Set<MethodIdentity> computeModifiedMethods(GitCommit commit) {
         Set<MethodIdentity> modifiedMethods = new HashSet<>();
-        Map<String, List<Edit>> diffs = gitService.getDiffsWithEdits(commit);
+        // Diff e confini dei metodi condivisi con le metriche di processo
+        Map<String, FileAnalysis> files = commitCache.getJavaFileAnalyses(commit);
 
         // 1. Iteriamo sulle entry della mappa
-        for (Map.Entry<String, List<Edit>> entry : diffs.entrySet()) {
+        for (Map.Entry<String, FileAnalysis> entry : files.entrySet()) {
             String filePath = entry.getKey();
-            List<Edit> edits = entry.getValue();
 
             // 2. Uniamo i filtri iniziali in un unico check positivo
             if (isJavaSourceFile(filePath)) {
-                // 3. Estraiamo la logica di parsing in un metodo dedicato (opzionale ma consigliato)
-                processFileEdits(commit, filePath, edits, modifiedMethods);
+                // 3. Estraiamo la logica di mapping in un metodo dedicato
+                processFileEdits(commit, filePath, entry.getValue(), modifiedMethods);
             }
         }
         return modifiedMethods;
@@ -194,85 +366,53 @@ public class SZZService {
         return filePath.endsWith(".java") && !filePath.contains(this.testPathMarker);
     }
 
-    private void processFileEdits(GitCommit commit, String filePath, List<Edit> edits, Set<MethodIdentity> result) {
-        try {
-            String sourceCode = gitService.getRawFileContent(commit, filePath);
-
-            // Controllo validità contenuto senza 'continue'
-            if (sourceCode != null && !sourceCode.isEmpty()) {
-                CompilationUnit cu = StaticJavaParser.parse(sourceCode);
-
-                // Estraiamo i metodi che intersecano le modifiche
-                cu.findAll(MethodDeclaration.class).stream()
-                        .filter(method -> isIntersection(method, edits))
-                        .forEach(method -> {
-                            result.add(new MethodIdentity(
-                                    JavaParserUtils.getFullyQualifiedSignature(method, cu),
-                                    JavaParserUtils.getParentClassName(method),
-                                    method.getNameAsString()
-                            ));
-                        });
-            }
-        } catch (Exception e) {
-            logger.debug("Impossibile analizzare il file {} nel commit {}: {}", filePath, commit.getHash(), e.getMessage());
+    private void processFileEdits(GitCommit commit, String filePath, FileAnalysis file, Set<MethodIdentity> result) {
+        if (!file.isParsed()) {
+            logger.debug("Impossibile analizzare il file {} nel commit {}: {}", filePath, commit.getHash(), file.parseError());
+            return;
+        }
+        // L'indice a intervalli evita il confronto di ogni edit con ogni metodo
+        for (Edit edit : file.edits()) {
+            collectIntersectingMethods(file.methods(), edit, result);
         }
     }
 
-    private boolean isIntersection(MethodDeclaration method, List<Edit> edits) {
-        if (!method.getBegin().isPresent() || !method.getEnd().isPresent()) return false;
-
-        // Range del metodo nel file corrente (Post-Fix)
-        // JavaParser usa indici base-1
-        int methodStart = method.getBegin().get().line;
-        int methodEnd = method.getEnd().get().line;
-
-        for (Edit edit : edits) {
-            // --- LOGICA CORRETTA PER LE COORDINATE ---
-
-            // JGit usa indici base-0.
-            // beginB è inclusivo.
-            // endB è esclusivo (tranne che per le DELETE dove beginB == endB).
-
-            int editStart;
-            int editEnd;
-
-            if (edit.getType() == Edit.Type.DELETE) {
-                // Caso DELETE: Le righe non esistono più nel file B.
-                // L'edit avviene in un "punto" tra due righe attuali.
-                // Consideriamo la riga successiva alla cancellazione come "toccata".
-                editStart = edit.getBeginB() + 1;
-                editEnd = editStart; // È un punto puntuale
-            } else {
-                // Caso INSERT o REPLACE: Ci sono nuove righe nel file B.
-                // Convertiamo da 0-based (JGit) a 1-based (JavaParser).
-                editStart = edit.getBeginB() + 1;
-
-                // JGit endB è esclusivo, quindi per avere l'ultima riga inclusiva
-                // normalmente faremmo (endB - 1) + 1 => endB.
-                // Esempio: Modifica righe 0,1 (2 righe). begin=0, end=2.
-                // Vogliamo righe 1,2.
-                // start = 0+1 = 1.
-                // end = 2.
-                editEnd = edit.getEndB();
-            }
+    private void collectIntersectingMethods(MethodIntervalIndex index, Edit edit, Set<MethodIdentity> result) {
+        // --- LOGICA CORRETTA PER LE COORDINATE ---
 
-            // Controllo intersezioni tra range [methodStart, methodEnd] e [editStart, editEnd]
-            if (verifyOverlap(methodStart, methodEnd, editStart, editEnd)) {
-                return true;
-            }
+        // JGit usa indici base-0.
+        // beginB è inclusivo.
+        // endB è esclusivo (tranne che per le DELETE dove beginB == endB).
+
+        int editStart;
+        int editEnd;
+
+        if (edit.getType() == Edit.Type.DELETE) {
+            // Caso DELETE: Le righe non esistono più nel file B.
+            // L'edit avviene in un "punto" tra due righe attuali.
+            // Consideriamo la riga successiva alla cancellazione come "toccata".
+            editStart = edit.getBeginB() + 1;
+            editEnd = editStart; // È un punto puntuale
+        } else {
+            // Caso INSERT o REPLACE: Ci sono nuove righe nel file B.
+            // Convertiamo da 0-based (JGit) a 1-based (JavaParser).
+            editStart = edit.getBeginB() + 1;
+
+            // JGit endB è esclusivo, quindi per avere l'ultima riga inclusiva
+            // normalmente faremmo (endB - 1) + 1 => endB.
+            // Esempio: Modifica righe 0,1 (2 righe). begin=0, end=2.
+            // Vogliamo righe 1,2.
+            // start = 0+1 = 1.
+            // end = 2.
+            editEnd = edit.getEndB();
         }
-        return false;
-    }
 
-    // Helper per pulizia del codice
-    private boolean verifyOverlap(int mStart, int mEnd, int eStart, int eEnd) {
-        // Logica standard di overlap:
-        // max(start1, start2) <= min(end1, end2)
-        return Math.max(mStart, eStart) <= Math.min(mEnd, eEnd);
+        // Tutti i metodi il cui range [beginLine, endLine] interseca [editStart, editEnd]
+        index.forEachOverlapping(editStart, editEnd, method -> result.add(method.identity()));
     }
 
-    private void markBuggyInReleases(Map<String, Set<MethodIdentity>> map, Set<MethodIdentity> methods, JiraRelease iv, JiraRelease fv) {
-        // Cerchiamo gli indici nella lista ordinata 'releases'
+    private void markBuggyInReleases(BuggyRegistry registry, Set<MethodIdentity> methods, JiraRelease iv, JiraRelease fv) {
+        // Cerchiamo gli indici nella timeline (lookup per identità, niente scansione)
         int start = releases.indexOf(iv);
         int end = releases.indexOf(fv);
         // 1. CHECK VALIDITÀ
@@ -289,34 +429,19 @@ public class SZZService {
                     "IV='{}' (idx={}), FV='{}' (idx={})", iv.getName(), start, fv.getName(), end);
             return;
         }
-        // 3. LOOP DI LABELING
+        // 3. LABELING
         // Da start (incluso) a end (escluso).
         // Esempio: IV=4.0.0 (idx 0), FV=4.2.0 (idx 2).
-        // Loop: i=0 (4.0.0 Buggy), i=1 (4.1.0 Buggy). Stop. (4.2.0 Pulita).
-        for (int i = start; i < end; i++) {
-            String name = releases.get(i).getName();
-            // Controllo difensivo sulla mappa (dovrebbe sempre esserci)
-            if (map.containsKey(name)) {
-                map.get(name).addAll(methods);
-            } else {
-                logger.error("SZZ CRITICAL: La mappa buggy non contiene la release '{}'", name);
-            }
-        }
+        // Buggy: 4.0.0 (idx 0), 4.1.0 (idx 1). Pulita: 4.2.0.
+        registry.markBuggy(methods, start, end);
     }
 
     private JiraRelease getReleaseByName(String name) {
-        return releases.stream()
-                .filter(r -> r.getName().equalsIgnoreCase(name))
-                .findFirst()
-                .orElse(null);
+        return releases.getByName(name);
     }
 
     private JiraRelease getReleaseByDate(LocalDate date) {
-        if (date == null) return null;
-        for (JiraRelease r : releases) {
-            if (!r.getReleaseDate().isBefore(date)) return r;
-        }
-        return null;
+        return releases.getFirstOnOrAfter(date);
     }
 
     private void printDetailedReport(int total, SZZStats s) {
@@ -338,11 +463,17 @@ public class SZZService {
                - Avevano Affected Version (Ground Truth): %10$d (%11$.2f%%)
                - Avevano Fix Version (Esplicita):         %12$d (%13$.2f%%)
                - Avevano ENTRAMBE (AV + FV):              %14$d (%15$.2f%%)
+            %7$s
+            3. METODI MODIFICATI PER FIX COMMIT (Commit distinti: %16$d)
+               - Riusati dal memo (commit già visto):     %17$d
+               - Letti dallo store persistente:           %18$d
+               - Calcolati (diff + parsing):              %19$d
             %1$s
             """.formatted(
                 REPORT_SEP, total, s.inFV, s.inNoFV, s.inAV, s.inNoAV,
                 SECTION_SEP, s.procTotal, percProc,
-                s.procAV, percAV, s.procFV, percFV, s.procBoth, percBoth
+                s.procAV, percAV, s.procFV, percFV, s.procBoth, percBoth,
+                modifiedMethodsMemo.size(), memoHits.get(), storeHits.get(), computedCommits.get()
         );
         logger.info("\n{}", report);
     }
@@ -376,14 +507,13 @@ public class SZZService {
         }
 
         // 3. Recupero Candidati
-        List<GitCommit> candidates = gitService.findCommitsInDateRange(start, end);
+        // Filtro B (applicato dalla tabella dei commit): solo autori che hanno già lavorato su questo bug
+        List<GitCommit> candidates = gitService.findCommitsInDateRangeByAuthors(start, end, knownAuthors);
 
         // 4. Filtraggio Euristico
         return candidates.stream()
                 // Filtro A: Escludiamo i duplicati già noti
                 .filter(candidate -> !strongCommits.contains(candidate))
-                // Filtro B: Solo autori che hanno già lavorato su questo bug
-                .filter(candidate -> knownAuthors.contains(candidate.getAuthorName()))
                 // Filtro C: Solo commit che toccano almeno un file "sospetto"
                 .filter(candidate -> {
                     Set<String> candidateFiles = gitService.getTouchedJavaFilePaths(candidate);
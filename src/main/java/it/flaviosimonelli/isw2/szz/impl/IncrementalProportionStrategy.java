@@ -1,6 +1,7 @@
 package it.flaviosimonelli.isw2.szz.impl;
 
 import it.flaviosimonelli.isw2.jira.bean.JiraRelease;
+import it.flaviosimonelli.isw2.jira.service.ReleaseTimeline;
 import it.flaviosimonelli.isw2.szz.IVEstimationStrategy;
 import it.flaviosimonelli.isw2.util.AppConfig;
 import org.slf4j.Logger;
@@ -12,20 +13,28 @@ import java.util.List;
 public class IncrementalProportionStrategy implements IVEstimationStrategy {
     private static final Logger logger = LoggerFactory.getLogger(IncrementalProportionStrategy.class);
 
-    private final List<JiraRelease> releases;
+    private final ReleaseTimeline releases;
     private final List<Double> pWindow;
     private final int windowSize;
     private final double defaultP;
 
 
-    public IncrementalProportionStrategy(List<JiraRelease> releases) {
-        this.releases = releases;
-        this.pWindow = new ArrayList<>();
-
+    public IncrementalProportionStrategy(ReleaseTimeline releases) {
         // 1. Caricamento Configurazione dinamica
         // Se manca nel file properties, usa i default (3 e 0.01)
-        this.windowSize = AppConfig.getInt("szz.proportion.window_size", 3);
-        this.defaultP = AppConfig.getDouble("szz.proportion.default_p", 0.01);
+        this(releases,
+                AppConfig.getInt("szz.proportion.window_size", 3),
+                AppConfig.getDouble("szz.proportion.default_p", 0.01));
+    }
+
+    /**
+     * Strategia con parametri espliciti (es. varianti per l'analisi di sensitività, {@code szz.variants}).
+     */
+    public IncrementalProportionStrategy(ReleaseTimeline releases, int windowSize, double defaultP) {
+        this.releases = releases;
+        this.pWindow = new ArrayList<>();
+        this.windowSize = windowSize;
+        this.defaultP = defaultP;
 
         logger.debug("IncrementalProportionStrategy inizializzata. WindowSize={}, DefaultP={}", windowSize, defaultP);
     }
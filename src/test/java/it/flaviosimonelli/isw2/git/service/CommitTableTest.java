@@ -0,0 +1,161 @@
+package it.flaviosimonelli.isw2.git.service;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Equivalenza tra le query di {@link CommitTable} (ricerca binaria sui tempi, filtro autori su BitSet)
+ * e il filtro lineare che sostituiscono ({@code !isBefore(from) && !isAfter(to)} su tutta la lista).
+ */
+class CommitTableTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2021, 3, 10, 12, 0, 0);
+
+    @Test
+    void rangeMatchesLinearFilterAtBoundaries() {
+        List<GitCommit> commits = sampleCommits();
+        CommitTable table = new CommitTable(commits);
+
+        for (LocalDateTime from : boundaries(commits)) {
+            for (LocalDateTime to : boundaries(commits)) {
+                assertEquals(hashes(linearRange(commits, from, to)), hashes(table.range(from, to)),
+                        "range(" + from + ", " + to + ")");
+            }
+        }
+    }
+
+    @Test
+    void rangeByAuthorsMatchesLinearFilterAtBoundaries() {
+        List<GitCommit> commits = sampleCommits();
+        CommitTable table = new CommitTable(commits);
+        List<Set<String>> authorSets = List.of(
+                Set.of(), Set.of("nobody"), Set.of("alice"), Set.of("bob", "carol"),
+                Set.of("alice", "bob", "carol", "dave"), Set.of("dave", "nobody"));
+
+        for (Set<String> authors : authorSets) {
+            for (LocalDateTime from : boundaries(commits)) {
+                for (LocalDateTime to : boundaries(commits)) {
+                    List<GitCommit> expected = linearRange(commits, from, to).stream()
+                            .filter(c -> authors.contains(c.getAuthorName()))
+                            .toList();
+                    assertEquals(hashes(expected), hashes(table.rangeByAuthors(from, to, authors)),
+                            "rangeByAuthors(" + from + ", " + to + ", " + authors + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void floorMatchesLinearScan() {
+        List<GitCommit> commits = sampleCommits();
+        CommitTable table = new CommitTable(commits);
+
+        for (LocalDateTime limit : boundaries(commits)) {
+            GitCommit expected = commits.stream().filter(c -> !c.getDate().isAfter(limit)).findFirst().orElse(null);
+            assertSame(expected, table.floor(limit), "floor(" + limit + ")");
+        }
+    }
+
+    @Test
+    void randomTablesMatchLinearFilter() {
+        Random random = new Random(11);
+        String[] names = {"alice", "bob", "carol"};
+        for (int round = 0; round < 100; round++) {
+            List<GitCommit> commits = new ArrayList<>();
+            int count = random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                // Pochi secondi distinti: molti commit nello stesso istante
+                commits.add(commit("r" + i, names[random.nextInt(names.length)], T0.plusSeconds(random.nextInt(10))));
+            }
+            commits.sort(Comparator.comparing(GitCommit::getDate).reversed());
+            CommitTable table = new CommitTable(commits);
+
+            for (int i = 0; i < 50; i++) {
+                LocalDateTime from = T0.plusSeconds(random.nextInt(12) - 1L).plusNanos(random.nextBoolean() ? 0 : 500_000_000);
+                LocalDateTime to = T0.plusSeconds(random.nextInt(12) - 1L).plusNanos(random.nextBoolean() ? 0 : 500_000_000);
+                Set<String> authors = Set.of(names[random.nextInt(names.length)]);
+
+                assertEquals(hashes(linearRange(commits, from, to)), hashes(table.range(from, to)));
+                assertEquals(hashes(linearRange(commits, from, to).stream()
+                                .filter(c -> authors.contains(c.getAuthorName())).toList()),
+                        hashes(table.rangeByAuthors(from, to, authors)));
+            }
+        }
+    }
+
+    @Test
+    void emptyTableAndUnsortedInput() {
+        CommitTable empty = new CommitTable(List.of());
+        assertTrue(empty.range(LocalDateTime.MIN, T0).isEmpty());
+        assertTrue(empty.rangeByAuthors(LocalDateTime.MIN, T0, Set.of("alice")).isEmpty());
+        assertNull(empty.floor(T0));
+
+        List<GitCommit> oldestFirst = List.of(commit("a", "alice", T0), commit("b", "alice", T0.plusSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new CommitTable(oldestFirst));
+    }
+
+    // --- Riferimento lineare (GitService prima della tabella) ---
+
+    private static List<GitCommit> linearRange(List<GitCommit> commits, LocalDateTime from, LocalDateTime to) {
+        return commits.stream()
+                .filter(c -> !c.getDate().isBefore(from) && !c.getDate().isAfter(to))
+                .toList();
+    }
+
+    /**
+     * Dal più recente al più vecchio, con più commit nello stesso secondo (anche di autori diversi).
+     */
+    private static List<GitCommit> sampleCommits() {
+        List<GitCommit> commits = new ArrayList<>();
+        commits.add(commit("c9", "alice", T0.plusDays(30)));
+        commits.add(commit("c8", "bob", T0.plusDays(1)));
+        commits.add(commit("c7", "alice", T0.plusDays(1)));
+        commits.add(commit("c6", "carol", T0.plusSeconds(1)));
+        commits.add(commit("c5", "bob", T0));
+        commits.add(commit("c4", "alice", T0));
+        commits.add(commit("c3", "carol", T0));
+        commits.add(commit("c2", "bob", T0.minusSeconds(1)));
+        commits.add(commit("c1", "dave", T0.minusDays(2).withHour(23).withMinute(59).withSecond(59)));
+        commits.add(commit("c0", "alice", T0.minusYears(5)));
+        return commits;
+    }
+
+    /**
+     * Istanti dei commit, un secondo e mezzo secondo prima e dopo ciascuno, limiti di giornata ed estremi.
+     */
+    private static List<LocalDateTime> boundaries(List<GitCommit> commits) {
+        Set<LocalDateTime> result = new LinkedHashSet<>();
+        result.add(LocalDateTime.MIN);
+        result.add(LocalDateTime.of(9999, 12, 31, 23, 59, 59));
+        for (GitCommit commit : commits) {
+            LocalDateTime date = commit.getDate();
+            result.add(date);
+            result.add(date.minusSeconds(1));
+            result.add(date.plusSeconds(1));
+            result.add(date.minusNanos(500_000_000));
+            result.add(date.plusNanos(500_000_000));
+            result.add(date.toLocalDate().atStartOfDay());
+            result.add(date.toLocalDate().atTime(23, 59, 59));
+            result.add(date.toLocalDate().plusDays(1).atStartOfDay());
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static GitCommit commit(String hash, String author, LocalDateTime date) {
+        return new GitCommit(hash, "", author, date);
+    }
+
+    private static List<String> hashes(List<GitCommit> commits) {
+        return commits.stream().map(GitCommit::getHash).toList();
+    }
+}
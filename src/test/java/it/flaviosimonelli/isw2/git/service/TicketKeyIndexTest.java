@@ -0,0 +1,133 @@
+package it.flaviosimonelli.isw2.git.service;
+
+import it.flaviosimonelli.isw2.git.bean.GitCommit;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Equivalenza tra {@link TicketKeyIndex} e la regex {@code .*\bKEY\b.*} (DOTALL) che sostituisce,
+ * chiave per chiave, sugli stessi messaggi.
+ */
+class TicketKeyIndexTest {
+
+    private static final List<String> MESSAGES = List.of(
+            "KEY-1 fix",
+            "KEY-12: digit suffix",
+            "KEY-1a non è un confine",
+            "KEY-1_ nemmeno con underscore",
+            "_KEY-1 underscore prima",
+            "MY_KEY-1 underscore nel prefisso",
+            "XKEY-1 prefisso più lungo",
+            "KEY-12-34 catena di trattini",
+            "KEY-1-2-3 catena lunga",
+            "KEY--1 doppio trattino",
+            "KEY- 1 spazio dopo il trattino",
+            "kEY-1 minuscole",
+            "fix(KEY-7), [KEY-8] e KEY-9.",
+            "KEY-1 e ancora KEY-1 nello stesso messaggio",
+            "multi\nriga\r\nKEY-3\n",
+            "éKEY-4 lettera accentata prima",
+            "KEY-4é lettera accentata dopo",
+            "ÄKEY-5ß entrambe",
+            "KEY-6١ cifra araba dopo",
+            "١KEY-6 cifra araba prima",
+            "KEY-١ solo cifra araba",
+            "中文KEY-7中文",
+            "KEY-8\u00A0spazio non separabile dopo",
+            "😀KEY-9😀 surrogati",
+            "Ｋ-10 lettera a larghezza piena",
+            "KEY-010 zero iniziale",
+            "1-2 prefisso numerico, 11-2",
+            "KEY-1x-2 cifre e lettere",
+            "A.B-3 punto nel prefisso",
+            "",
+            "KEY-");
+
+    private static final List<String> KEYS = List.of(
+            "KEY-1", "KEY-12", "KEY-2", "KEY-3", "KEY-4", "KEY-5", "KEY-6", "KEY-7", "KEY-8", "KEY-9", "KEY-10",
+            "KEY-010", "KEY-34", "KEY-12-34", "12-34", "KEY-1-2", "1-2", "2-3", "1x-2", "KEY-1x", "B-3", "A.B-3",
+            "_KEY-1", "MY_KEY-1", "XKEY-1", "kEY-1", "key-1", "KEY--1", "KEY-١", "Ｋ-10", "KEY",
+            "KEY-", "-1", "KEY-1a", "KEY-1_", "KEY-1 ", " KEY-1", "KEY-(1)");
+
+    @Test
+    void indexMatchesRegexOnEdgeCases() {
+        assertIndexMatchesRegex(commitsFor(MESSAGES), KEYS);
+    }
+
+    @Test
+    void indexMatchesRegexOnRandomMessages() {
+        // Messaggi casuali su un alfabeto ridotto: massimizza collisioni tra chiavi, trattini e confini
+        String alphabet = "KEY-12_ aé١.\n";
+        Random random = new Random(7);
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            messages.add(sb.toString());
+        }
+        assertIndexMatchesRegex(commitsFor(messages),
+                List.of("KEY-1", "KEY-12", "KEY-2", "EY-1", "Y-21", "KEY-1-2", "1-2", "a-1", "_-1", "KEY-11"));
+    }
+
+    @Test
+    void indexableKeysFollowProjectNumberFormat() {
+        assertTrue(TicketKeyIndex.isIndexable("BOOKKEEPER-1105"));
+        assertTrue(TicketKeyIndex.isIndexable("MY_KEY-1"));
+        assertTrue(TicketKeyIndex.isIndexable("12-34"));
+        assertFalse(TicketKeyIndex.isIndexable("KEY-12-34"));
+        assertFalse(TicketKeyIndex.isIndexable("KEY-1a"));
+        assertFalse(TicketKeyIndex.isIndexable("KEY-"));
+        assertFalse(TicketKeyIndex.isIndexable("-1"));
+        assertFalse(TicketKeyIndex.isIndexable("KÉY-1"));
+        assertFalse(TicketKeyIndex.isIndexable("KEY-١"));
+    }
+
+    @Test
+    void messagesAreKeptAfterIndexing() {
+        List<GitCommit> commits = commitsFor(MESSAGES);
+        new TicketKeyIndex(commits);
+        for (int i = 0; i < commits.size(); i++) {
+            assertEquals(MESSAGES.get(i), commits.get(i).getMessage());
+        }
+    }
+
+    private static void assertIndexMatchesRegex(List<GitCommit> commits, List<String> keys) {
+        TicketKeyIndex index = new TicketKeyIndex(commits);
+        for (String key : keys) {
+            assertEquals(hashes(regexMatches(commits, key)), hashes(index.get(key)), "Chiave '" + key + "'");
+        }
+    }
+
+    // Implementazione originale di GitService.findFixCommits (prima dell'ordinamento per data)
+    private static List<GitCommit> regexMatches(List<GitCommit> commits, String key) {
+        Pattern pattern = Pattern.compile(".*\\b" + Pattern.quote(key) + "\\b.*", Pattern.DOTALL);
+        List<GitCommit> matches = new ArrayList<>();
+        for (GitCommit commit : commits) {
+            if (pattern.matcher(commit.getMessage()).matches()) {
+                matches.add(commit);
+            }
+        }
+        return matches;
+    }
+
+    private static List<GitCommit> commitsFor(List<String> messages) {
+        List<GitCommit> commits = new ArrayList<>();
+        LocalDateTime date = LocalDateTime.of(2020, 1, 1, 0, 0);
+        for (int i = 0; i < messages.size(); i++) {
+            commits.add(new GitCommit("c" + i, messages.get(i), "author", date.plusMinutes(i)));
+        }
+        return commits;
+    }
+
+    private static List<String> hashes(List<GitCommit> commits) {
+        return commits.stream().map(GitCommit::getHash).toList();
+    }
+}
@@ -0,0 +1,103 @@
+package it.flaviosimonelli.isw2.metrics;
+
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import it.flaviosimonelli.isw2.metrics.impl.*;
+import it.flaviosimonelli.isw2.model.MethodStaticMetrics;
+import it.flaviosimonelli.isw2.model.MetricSchema;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Equivalenza tra la catena di riferimento ({@code metrics.engine=CHAIN}: una visita per metrica)
+ * e il {@link FusedMetricsEngine} (visita unica), metodo per metodo e metrica per metrica.
+ */
+class FusedMetricsEngineTest {
+
+    // Stessa catena di MetricsCalculator, senza PMD (non visita l'AST e richiede il contesto delle violazioni)
+    private static List<IMetric> referenceChain() {
+        return List.of(
+                new LocMetric(),
+                new StatementCountMetric(),
+                new ParameterCountMetric(),
+                new LocalVariableCountMetric(),
+                new CyclomaticComplexityMetric(),
+                new CognitiveComplexityMetric(),
+                new NestingDepthMetric(),
+                new ReturnTypeComplexityMetric());
+    }
+
+    @Test
+    void fusedMatchesChainOnCorpus() throws IOException {
+        int methods = assertEquivalent(readResource("/corpus/MetricsCorpus.java"), "MetricsCorpus");
+        assertTrue(methods >= 20, "Il corpus dovrebbe contenere almeno 20 metodi, trovati " + methods);
+    }
+
+    @Test
+    void fusedMatchesChainOnProjectSources() throws IOException {
+        // I sorgenti del progetto come corpus reale; quelli non parsabili al livello di default vengono saltati
+        Path sources = Paths.get("src", "main", "java");
+        assertTrue(Files.isDirectory(sources), "Test da eseguire dalla root del progetto");
+
+        int methods = 0;
+        try (Stream<Path> files = Files.walk(sources)) {
+            for (Path file : files.filter(p -> p.toString().endsWith(".java")).toList()) {
+                methods += assertEquivalent(Files.readString(file), file.toString());
+            }
+        }
+        assertTrue(methods > 0, "Nessun metodo confrontato nei sorgenti del progetto");
+    }
+
+    /**
+     * @return numero di metodi confrontati (0 se il file non è parsabile)
+     */
+    private static int assertEquivalent(String source, String name) {
+        CompilationUnit cu;
+        try {
+            cu = StaticJavaParser.parse(source);
+        } catch (ParseProblemException _) {
+            return 0;
+        }
+
+        List<IMetric> chain = referenceChain();
+        MetricSchema schema = new MetricSchema();
+        chain.forEach(metric -> schema.register(metric.getName()));
+        FusedMetricsEngine engine = new FusedMetricsEngine(chain, schema);
+
+        List<MethodDeclaration> declarations = cu.findAll(MethodDeclaration.class);
+        for (MethodDeclaration method : declarations) {
+            String signature = name + "#" + method.getDeclarationAsString(false, false, false);
+            MethodStaticMetrics fused = engine.calculate(method, signature);
+
+            List<String> mismatches = new ArrayList<>();
+            for (int i = 0; i < chain.size(); i++) {
+                double expected = chain.get(i).calculate(method);
+                if (Double.compare(expected, fused.get(i)) != 0) {
+                    mismatches.add(chain.get(i).getName() + ": chain=" + expected + " fused=" + fused.get(i));
+                }
+            }
+            assertTrue(mismatches.isEmpty(), signature + " -> " + mismatches);
+        }
+        return declarations.size();
+    }
+
+    private static String readResource(String path) throws IOException {
+        try (InputStream input = FusedMetricsEngineTest.class.getResourceAsStream(path)) {
+            assertNotNull(input, "Risorsa mancante: " + path);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
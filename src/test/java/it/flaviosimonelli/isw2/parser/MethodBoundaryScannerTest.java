@@ -0,0 +1,144 @@
+package it.flaviosimonelli.isw2.parser;
+
+import com.github.javaparser.ParseProblemException;
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Equivalenza tra {@link MethodBoundaryScanner} e il percorso di riferimento con JavaParser
+ * ({@link MethodBoundaryLocator#locateWithJavaParser}): firma, classe, nome e righe, metodo per metodo.
+ */
+class MethodBoundaryScannerTest {
+
+    @Test
+    void scannerMatchesJavaParserOnCorpus() throws IOException {
+        String source = readResource("/corpus/BoundaryCorpus.java");
+        List<MethodBoundary> scanned = MethodBoundaryScanner.scan(source);
+
+        assertSameBoundaries(MethodBoundaryLocator.locateWithJavaParser(source), scanned, "BoundaryCorpus");
+        assertTrue(scanned.size() >= 50, "Il corpus dovrebbe contenere almeno 50 metodi, trovati " + scanned.size());
+    }
+
+    @Test
+    void signaturesFollowJavaParserUtils() throws IOException {
+        List<MethodBoundary> scanned = MethodBoundaryScanner.scan(readResource("/corpus/BoundaryCorpus.java"));
+
+        // Generics del tipo esterno rimossi, tranne per gli array e per lo scope (Outer<A>.Inner)
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.genericParams(List, Map, Comparable)");
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.genericArrays(List<String>[], Map<String,Integer>[][])");
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.scopeGenerics(BoundaryCorpus<T>.Inner, Outer<String>.Nested)");
+        // Varargs e dimensioni dopo il nome come array
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.varargs(String, Object[])");
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.legacyDims(String[], int[][], char[][])");
+        // Receiver parameter escluso
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.receiverOnly()");
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.receiverAndArgs(int, String[])");
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.Inner.innerReceiver(T)");
+        // Enum e classi locali nella catena, corpi delle costanti e classi anonime no
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.Operation.constantHelper()");
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.Operation.InEnum.inEnum(Operation[])");
+        assertSignature(scanned, "corpus.boundary.BoundaryCorpus.LocalInAnonymous.compare(Integer, Integer)");
+    }
+
+    @Test
+    void unsupportedConstructsFallBackToJavaParser() {
+        // Record (anche annidati o locali), switch con frecce, pattern e yield: lo scanner deve rinunciare
+        List<String> sources = List.of(
+                "record Point(int x, int y) { int sum() { return x + y; } }",
+                "class A { record Inner<T>(T value) { T get() { return value; } } void m() { } }",
+                "class A { void m() { record Local(int v) { } } }",
+                "class A { enum E { X { void m() { record R() { } } } } }",
+                "class A { Object o = new Object() { void m() { record R() { } } }; }",
+                "class A { int m(int x) { switch (x) { case 1 -> { return 1; } default -> { return 0; } } } }",
+                "class A { boolean m(Object o) { return o instanceof String s && s.isEmpty(); } }",
+                "class A { int m(int x) { return switch (x) { case 1: yield 1; default: yield 0; }; } }",
+                "sealed interface S permits A { }",
+                "class A { void m() { String s = \"\\u0022\"; } }");
+
+        for (String source : sources) {
+            assertThrows(UnsupportedSourceException.class, () -> MethodBoundaryScanner.scan(source), source);
+
+            // Il locator ripiega su JavaParser: stesso risultato (o stesso errore) del riferimento
+            MethodBoundaryLocator locator = new MethodBoundaryLocator();
+            List<MethodBoundary> expected;
+            try {
+                expected = MethodBoundaryLocator.locateWithJavaParser(source);
+            } catch (ParseProblemException _) {
+                assertThrows(ParseProblemException.class, () -> locator.locate(source), source);
+                continue;
+            }
+            assertSameBoundaries(expected, locator.locate(source), source);
+        }
+    }
+
+    @Test
+    void scannerMatchesJavaParserOnProjectSources() throws IOException {
+        // I sorgenti del progetto come corpus reale: dove lo scanner non rinuncia, deve coincidere con JavaParser
+        Path sources = Paths.get("src", "main", "java");
+        assertTrue(Files.isDirectory(sources), "Test da eseguire dalla root del progetto");
+
+        int scannedFiles = 0;
+        try (Stream<Path> files = Files.walk(sources)) {
+            for (Path file : files.filter(p -> p.toString().endsWith(".java")).toList()) {
+                String source = Files.readString(file);
+                List<MethodBoundary> scanned;
+                try {
+                    scanned = MethodBoundaryScanner.scan(source);
+                } catch (UnsupportedSourceException _) {
+                    continue;
+                }
+                List<MethodBoundary> expected;
+                try {
+                    expected = MethodBoundaryLocator.locateWithJavaParser(source);
+                } catch (ParseProblemException e) {
+                    fail(file + ": lo scanner accetta un file che JavaParser rifiuta", e);
+                    return;
+                }
+                assertSameBoundaries(expected, scanned, file.toString());
+                scannedFiles++;
+            }
+        }
+        assertTrue(scannedFiles > 0, "Nessun file risolto dallo scanner");
+    }
+
+    // MethodIdentity.equals confronta solo la firma: classe, nome e righe vanno verificati a parte
+    private static void assertSameBoundaries(List<MethodBoundary> expected, List<MethodBoundary> actual, String name) {
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            MethodBoundary exp = expected.get(i);
+            MethodBoundary act = actual.get(i);
+            MethodIdentity expId = exp.identity();
+            MethodIdentity actId = act.identity();
+            String where = name + " metodo #" + i + " (" + expId.fullSignature() + ")";
+
+            assertEquals(expId.fullSignature(), actId.fullSignature(), where);
+            assertEquals(expId.className(), actId.className(), where);
+            assertEquals(expId.methodName(), actId.methodName(), where);
+            assertEquals(exp.beginLine(), act.beginLine(), where + " riga di inizio");
+            assertEquals(exp.endLine(), act.endLine(), where + " riga di fine");
+        }
+        assertEquals(expected.size(), actual.size(), name + ": numero di metodi");
+    }
+
+    private static void assertSignature(List<MethodBoundary> methods, String signature) {
+        assertTrue(methods.stream().anyMatch(m -> m.identity().fullSignature().equals(signature)),
+                "Firma attesa non trovata: " + signature);
+    }
+
+    private static String readResource(String path) throws IOException {
+        try (InputStream input = MethodBoundaryScannerTest.class.getResourceAsStream(path)) {
+            assertNotNull(input, "Risorsa mancante: " + path);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
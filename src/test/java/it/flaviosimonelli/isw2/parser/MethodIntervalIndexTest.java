@@ -0,0 +1,131 @@
+package it.flaviosimonelli.isw2.parser;
+
+import it.flaviosimonelli.isw2.model.MethodIdentity;
+import org.eclipse.jgit.diff.Edit;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Equivalenza tra {@link MethodIntervalIndex} e l'intersezione lineare che sostituisce
+ * (ogni edit confrontato con ogni metodo tramite {@link MethodBoundary#overlaps}).
+ */
+class MethodIntervalIndexTest {
+
+    @Test
+    void matchesLinearScanOnNestedAndAnonymousMethods() throws IOException {
+        // Il corpus contiene classi anonime annidate, classi locali e corpi di costanti enum
+        List<MethodBoundary> methods = MethodBoundaryLocator.locateWithJavaParser(readResource("/corpus/BoundaryCorpus.java"));
+        assertAllRangesMatch(methods);
+    }
+
+    @Test
+    void matchesLinearScanOnSyntheticLayouts() {
+        assertAllRangesMatch(List.of());
+        assertAllRangesMatch(List.of(method("single", 3, 3)));
+        // Metodo che copre l'intero file con metodi annidati: il prefix max è saturo dal primo elemento
+        assertAllRangesMatch(List.of(method("whole", 1, 40), method("a", 2, 10), method("b", 12, 12),
+                method("c", 15, 30), method("d", 16, 20), method("e", 21, 29)));
+        // Stessa riga di inizio (ordine del documento da preservare) e intervalli adiacenti
+        assertAllRangesMatch(List.of(method("outer", 5, 20), method("sameBegin", 5, 8), method("next", 9, 9),
+                method("adjacent", 21, 25), method("after", 26, 40)));
+        // Ordine del documento diverso dall'ordine per riga (membri dell'enum prima dei corpi delle costanti)
+        assertAllRangesMatch(List.of(method("member", 20, 25), method("constant1", 3, 6), method("constant2", 8, 12)));
+
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<MethodBoundary> methods = new ArrayList<>();
+            int count = random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                int begin = 1 + random.nextInt(60);
+                methods.add(method("m" + i, begin, begin + random.nextInt(25)));
+            }
+            assertAllRangesMatch(methods);
+        }
+    }
+
+    @Test
+    void deletePointEditsMatchLinearScan() throws IOException {
+        List<MethodBoundary> methods = MethodBoundaryLocator.locateWithJavaParser(readResource("/corpus/BoundaryCorpus.java"));
+        MethodIntervalIndex index = MethodIntervalIndex.of(methods);
+
+        // DELETE attorno ai confini di ogni metodo: in SZZ tocca solo la riga successiva alla cancellazione
+        for (MethodBoundary method : methods) {
+            for (int line = method.beginLine() - 1; line <= method.endLine() + 1; line++) {
+                Edit edit = new Edit(line, line + 2, line - 1, line - 1);
+                assertEquals(Edit.Type.DELETE, edit.getType());
+
+                int point = edit.getBeginB() + 1;
+                assertEquals(linearOverlapping(methods, point, point), indexedOverlapping(index, point, point),
+                        "DELETE alla riga " + point);
+                assertSame(linearFirst(methods, point, point), index.firstOverlapping(point, point),
+                        "DELETE alla riga " + point);
+            }
+        }
+    }
+
+    /**
+     * Confronta indice e scansione lineare su tutti gli intervalli [start, end] che coprono i metodi e i loro bordi.
+     */
+    private static void assertAllRangesMatch(List<MethodBoundary> methods) {
+        MethodIntervalIndex index = MethodIntervalIndex.of(methods);
+        assertEquals(methods.size(), index.size());
+
+        int maxLine = methods.stream().mapToInt(MethodBoundary::endLine).max().orElse(0) + 2;
+        for (int start = 0; start <= maxLine; start++) {
+            for (int end = start; end <= maxLine; end++) {
+                String range = "[" + start + ", " + end + "] su " + methods;
+                assertEquals(linearOverlapping(methods, start, end), indexedOverlapping(index, start, end), range);
+                assertSame(linearFirst(methods, start, end), index.firstOverlapping(start, end), range);
+            }
+        }
+    }
+
+    // --- Riferimento lineare ---
+
+    private static List<MethodBoundary> linearOverlapping(List<MethodBoundary> methods, int start, int end) {
+        List<MethodBoundary> result = new ArrayList<>();
+        for (MethodBoundary method : methods) {
+            if (method.overlaps(start, end)) {
+                result.add(method);
+            }
+        }
+        // forEachOverlapping visita in ordine di riga di inizio (stabile rispetto al documento)
+        result.sort(Comparator.comparingInt(MethodBoundary::beginLine));
+        return result;
+    }
+
+    private static MethodBoundary linearFirst(List<MethodBoundary> methods, int start, int end) {
+        for (MethodBoundary method : methods) {
+            if (method.overlaps(start, end)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static List<MethodBoundary> indexedOverlapping(MethodIntervalIndex index, int start, int end) {
+        List<MethodBoundary> result = new ArrayList<>();
+        index.forEachOverlapping(start, end, result::add);
+        return result;
+    }
+
+    private static MethodBoundary method(String name, int begin, int end) {
+        return new MethodBoundary(new MethodIdentity("Synthetic." + name + "()", "Synthetic", name), begin, end);
+    }
+
+    private static String readResource(String path) throws IOException {
+        try (InputStream input = MethodIntervalIndexTest.class.getResourceAsStream(path)) {
+            assertNotNull(input, "Risorsa mancante: " + path);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
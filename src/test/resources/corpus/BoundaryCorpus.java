@@ -0,0 +1,303 @@
+package corpus.boundary;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Corpus per il confronto tra MethodBoundaryScanner e JavaParser: firme con generics, varargs,
+ * receiver parameter, annotazioni sui tipi, dimensioni legacy e annidamenti di ogni tipo.
+ * Le graffe in commenti e letterali non devono alterare i confini: { } "{" '}'
+ */
+@SuppressWarnings({"unused", "rawtypes"})
+public class BoundaryCorpus<T extends Comparable<? super T>> {
+
+    @Target({ElementType.TYPE_USE, ElementType.PARAMETER})
+    @interface NonNull {
+        String value() default "}";
+
+        int[] codes() default {1, 2};
+    }
+
+    private final Runnable fieldTask = new Runnable() {
+        @Override
+        public void run() {
+            System.out.println("anonima in un campo {");
+        }
+    };
+
+    private final Comparator<String> a = new Comparator<>() { public int compare(String x, String y) { return 0; } },
+            b = String::compareTo;
+
+    static {
+        new Object() {
+            void inStaticInitializer() {
+            }
+        };
+    }
+
+    {
+        Supplier<Object> supplier = () -> new Object() {
+            @Override
+            public String toString() {
+                return "anonima in una lambda";
+            }
+        };
+    }
+
+    public BoundaryCorpus() {
+        class InConstructor {
+            void localMethod() {
+            }
+        }
+    }
+
+    // --- Generics ---
+
+    public void genericParams(List<String> names, Map<String, List<Integer>> index, Comparable<? super T> cmp) {
+    }
+
+    public <K extends Comparable<K>, V> Map<K, V> genericMethod(Map<? extends K, ? super V> source, Class<K> type) {
+        return null;
+    }
+
+    public void genericArrays(List<String>[] lists, Map<String, Integer>[][] matrix) {
+    }
+
+    public void qualifiedGenerics(java.util.List<java.lang.String> qualified, Map.Entry<String, T> entry) {
+    }
+
+    public void scopeGenerics(BoundaryCorpus<T>.Inner inner, Outer<String>.Nested<Integer> nested) {
+    }
+
+    public void intersectionBound(List<? extends Number> bounded, List<?> wildcard) {
+    }
+
+    // --- Varargs e array ---
+
+    public void varargs(String format, Object... args) {
+    }
+
+    public void genericVarargs(List<String>... lists) {
+    }
+
+    public void legacyDims(String args[], int matrix[][], final char[] chars[]) {
+    }
+
+    public int legacyReturn()[] {
+        return new int[0];
+    }
+
+    public void finalAndAnnotated(final @NonNull String value, @Deprecated final int... numbers) {
+    }
+
+    public void typeAnnotations(@NonNull List<@NonNull String> items, java.util.@NonNull List<String> qualified) {
+    }
+
+    public void annotationWithArgs(@SuppressWarnings({"a", "b"}) int x, @NonNull(value = ")", codes = {3}) String y) {
+    }
+
+    // --- Receiver parameter ---
+
+    public void receiverOnly(BoundaryCorpus<T> this) {
+    }
+
+    public void receiverAndArgs(@NonNull BoundaryCorpus<T> this, int x, String... rest) {
+    }
+
+    public class Inner {
+        public Inner(BoundaryCorpus<T> BoundaryCorpus.this) {
+        }
+
+        void innerReceiver(BoundaryCorpus<T>.Inner this, T value) {
+        }
+
+        class Deeper {
+            T deepest(T value) {
+                return value;
+            }
+        }
+    }
+
+    // --- Modificatori, throws, corpi vuoti ---
+
+    public static synchronized strictfp double modifiers(double x) throws IllegalStateException, java.io.IOException {
+        return x;
+    }
+
+    native long nativeMethod(long handle);
+
+    @Deprecated
+    @SuppressWarnings(
+            "multiline")
+    protected
+    void multilineHeader(
+            int a,
+            int b) {
+    }
+
+    // --- Classi anonime e locali annidate ---
+
+    public Runnable anonymousNesting() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                new Thread() {
+                    @Override
+                    public void run() {
+                        class LocalInAnonymous {
+                            void localDeep() {
+                                Comparator<Integer> c = new Comparator<Integer>() {
+                                    @Override
+                                    public int compare(Integer x, Integer y) {
+                                        return Integer.compare(x, y);
+                                    }
+                                };
+                            }
+                        }
+                    }
+                }.start();
+            }
+
+            private String helper(String s) {
+                return s + '}';
+            }
+        };
+    }
+
+    public void localClasses() {
+        abstract class LocalBase<U> {
+            abstract U make();
+        }
+        class LocalImpl extends LocalBase<String> {
+            @Override
+            String make() {
+                return "local";
+            }
+
+            class LocalInner {
+                void localInner() {
+                }
+            }
+        }
+        Object arg = call(new Object() {
+            int inArgument() {
+                return 1;
+            }
+        }, new int[]{1, 2});
+    }
+
+    private Object call(Object first, int[] second) {
+        return first;
+    }
+
+    // --- Enum e interface annidate ---
+
+    public enum Operation implements Supplier<String> {
+        PLUS("+") {
+            @Override
+            int apply(int x, int y) {
+                return x + y;
+            }
+        },
+        TIMES("*") {
+            @Override
+            int apply(int x, int y) {
+                return x * y;
+            }
+
+            private int constantHelper() {
+                return 0;
+            }
+        },
+        NOOP("0");
+
+        private final String symbol;
+
+        Operation(String symbol) {
+            this.symbol = symbol;
+        }
+
+        int apply(int x, int y) {
+            return 0;
+        }
+
+        @Override
+        public String get() {
+            return symbol;
+        }
+
+        interface InEnum {
+            void inEnum(Operation... operations);
+        }
+    }
+
+    enum Empty {
+        ;
+
+        static void onlyMember() {
+        }
+    }
+
+    interface Visitor<R> {
+        R visit(Map<String, R> node);
+
+        default R fallback(Object... nodes) {
+            return null;
+        }
+
+        static <R> Visitor<R> noop() {
+            return node -> null;
+        }
+
+        enum Kind {
+            A, B;
+
+            boolean isA() {
+                return this == A;
+            }
+        }
+    }
+
+    @interface Config {
+        int size() default 1;
+
+        Class<?>[] types() default {};
+    }
+
+    static class Outer<A> {
+        class Nested<B> {
+            void nestedGeneric(A a, B b, Outer<A>.Nested<B> self) {
+            }
+        }
+    }
+
+    // --- Letterali, commenti e switch che non devono confondere lo scanner ---
+
+    public String literals(char c) {
+        String text = "graffa { non bilanciata e \" apice";
+        char brace = '{';
+        char quote = '\'';
+        /* commento con } e ) */
+        // commento con {
+        switch (c) {
+            case '{':
+                return "{";
+            case '}':
+            default:
+                return text + brace + quote;
+        }
+    }
+}
+
+class SecondTopLevel {
+    void secondTop(int[]... arrays) {
+    }
+}
+
+interface ThirdTopLevel {
+    <T> void thirdTop(T[] values, Class<? extends T> type);
+}
@@ -0,0 +1,269 @@
+package corpus.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Corpus per il confronto tra catena di metriche (CHAIN) e motore fuso (FUSED):
+ * strutture di controllo annidate, lambda, classi anonime/locali, try/catch e dichiarazioni multiple.
+ */
+public class MetricsCorpus<T extends Comparable<T>> {
+
+    private int field = 0;
+
+    public MetricsCorpus() {
+        this.field = 1;
+    }
+
+    public void empty() {
+    }
+
+    public abstract static class Base {
+        abstract int noBody(int a, String b);
+    }
+
+    public int straight(int a, int b) {
+        int c = a + b, d = a - b;
+        int e;
+        e = c * d;
+        return e;
+    }
+
+    public int elseIfChain(int x) {
+        if (x < 0) {
+            return -1;
+        } else if (x == 0) {
+            return 0;
+        } else if (x < 10) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    public int deepNesting(List<List<Integer>> matrix) {
+        int total = 0;
+        for (int i = 0; i < matrix.size(); i++) {
+            for (Integer value : matrix.get(i)) {
+                while (value > 0) {
+                    do {
+                        if (value % 2 == 0) {
+                            try {
+                                total += value / (value - 2);
+                            } catch (ArithmeticException ex) {
+                                if (total > 100) {
+                                    total = 0;
+                                }
+                            } finally {
+                                value--;
+                            }
+                        } else {
+                            value -= 3;
+                        }
+                    } while (value > 10);
+                    value--;
+                }
+            }
+        }
+        return total;
+    }
+
+    public String switches(int code, String name) {
+        String result;
+        switch (code) {
+            case 1:
+                result = "one";
+                break;
+            case 2: {
+                int tmp = code * 2;
+                result = tmp > 3 ? "big" : "small";
+                break;
+            }
+            default:
+                switch (name.length()) {
+                    case 0:
+                        result = "";
+                        break;
+                    default:
+                        result = name;
+                }
+        }
+        return result;
+    }
+
+    public int ternaries(int a, int b, int c) {
+        int max = a > b ? (a > c ? a : c) : (b > c ? b : c);
+        boolean flag = a > 0 && b > 0 || c > 0 && !(a == b);
+        return flag ? max : -max;
+    }
+
+    public List<String> lambdas(List<String> input) {
+        List<String> out = new ArrayList<>();
+        input.forEach(s -> {
+            if (s.isEmpty()) {
+                return;
+            }
+            for (char ch : s.toCharArray()) {
+                if (Character.isUpperCase(ch)) {
+                    out.add(String.valueOf(ch));
+                }
+            }
+        });
+        Function<Integer, Integer> twice = v -> {
+            int doubled = v * 2;
+            return doubled > 10 ? doubled : v;
+        };
+        Supplier<String> lazy = () -> input.isEmpty() ? "none" : input.get(0);
+        out.add(lazy.get() + twice.apply(out.size()));
+        return out;
+    }
+
+    public Runnable anonymous(final int limit) {
+        return new Runnable() {
+            private int counter;
+
+            @Override
+            public void run() {
+                for (int i = 0; i < limit; i++) {
+                    if (i % 3 == 0) {
+                        counter++;
+                    }
+                }
+            }
+        };
+    }
+
+    public int localClass(int seed) {
+        class Accumulator {
+            int sum;
+
+            void add(int v) {
+                if (v > 0) {
+                    sum += v;
+                }
+            }
+        }
+        Accumulator acc = new Accumulator();
+        for (int i = 0; i < seed; i++) {
+            acc.add(i - seed / 2);
+        }
+        return acc.sum;
+    }
+
+    public void tryWithResources(String path) throws IOException {
+        try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(path));
+             java.io.StringWriter writer = new java.io.StringWriter()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                writer.write(line);
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public int labeledLoops(int[][] grid) {
+        int found = -1;
+        outer:
+        for (int[] row : grid) {
+            for (int cell : row) {
+                if (cell < 0) {
+                    found = cell;
+                    break outer;
+                }
+                if (cell == 0) {
+                    continue outer;
+                }
+            }
+        }
+        return found;
+    }
+
+    public synchronized <K, V extends List<? extends T>> Map<K, List<Map<String, V>>> generic(Map<K, V> source, K... keys) {
+        Map<K, List<Map<String, V>>> result = new java.util.HashMap<>();
+        for (K key : keys) {
+            V value = source.get(key);
+            if (value != null && !value.isEmpty()) {
+                result.computeIfAbsent(key, k -> new ArrayList<>()).add(Map.of("v", value));
+            }
+        }
+        return result;
+    }
+
+    public int[] arrays(int n)[] {
+        int[][] table = new int[n][];
+        for (int i = 0, j = n; i < j; i++, j--) {
+            table[i] = new int[] {i, j};
+        }
+        return table;
+    }
+
+    public int recursion(int n) {
+        if (n <= 1) return n;
+        return recursion(n - 1) + recursion(n - 2);
+    }
+
+    public boolean earlyExits(String s) {
+        if (s == null) return false;
+        if (s.isEmpty()) return true;
+        int vowels = 0;
+        for (int i = 0; i < s.length(); i++) {
+            switch (s.charAt(i)) {
+                case 'a':
+                case 'e':
+                case 'i':
+                case 'o':
+                case 'u':
+                    vowels++;
+                    break;
+                default:
+                    if (Character.isDigit(s.charAt(i))) throw new IllegalArgumentException(s);
+            }
+        }
+        return vowels > s.length() / 2;
+    }
+
+    public enum Mode {
+        FAST {
+            @Override
+            int weight(int x) {
+                return x > 0 ? x : -x;
+            }
+        },
+        SLOW {
+            @Override
+            int weight(int x) {
+                int w = 0;
+                while (x-- > 0) {
+                    w += x;
+                }
+                return w;
+            }
+        };
+
+        abstract int weight(int x);
+    }
+
+    interface Visitor<R> {
+        R visit(Object node);
+
+        default R visitAll(List<Object> nodes) {
+            R last = null;
+            for (Object node : nodes) {
+                last = visit(node);
+            }
+            return last;
+        }
+
+        static <R> Visitor<R> constant(R value) {
+            return node -> value;
+        }
+    }
+}